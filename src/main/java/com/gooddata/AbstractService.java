@@ -61,6 +61,13 @@ public abstract class AbstractService {
         this(restTemplate, new GoodDataSettings());
     }
 
+    /**
+     * @return settings of this service
+     */
+    protected GoodDataSettings getSettings() {
+        return settings;
+    }
+
     final <R> R poll(final PollHandler<?,R> handler, long timeout, final TimeUnit unit) {
         notNull(handler, "handler");
         final long start = System.currentTimeMillis();
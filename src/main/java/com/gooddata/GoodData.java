@@ -10,6 +10,7 @@ import com.gooddata.auditevent.AuditEventService;
 import com.gooddata.connector.ConnectorService;
 import com.gooddata.dataload.OutputStageService;
 import com.gooddata.dataload.processes.ProcessService;
+import com.gooddata.executeafm.ExecuteAfmService;
 import com.gooddata.export.ExportService;
 import com.gooddata.featureflag.FeatureFlagService;
 import com.gooddata.gdc.Header;
@@ -93,6 +94,7 @@ public class GoodData {
     private final ProjectTemplateService projectTemplateService;
     private final ExportService exportService;
     private final AuditEventService auditEventService;
+    private final ExecuteAfmService executeAfmService;
 
     /**
      * Create instance configured to communicate with GoodData Platform under user with given credentials.
@@ -218,6 +220,7 @@ public class GoodData {
         gdcService = new GdcService(getRestTemplate(), settings);
         dataStoreService = new DataStoreService(getHttpClient(), getRestTemplate(), gdcService, endpoint.toUri());
         datasetService = new DatasetService(getRestTemplate(), dataStoreService, settings);
+        modelService.addModelUpdateListener(datasetService::invalidateCache);
         exportService = new ExportService(getRestTemplate(), endpoint, settings);
         reportService = new ReportService(exportService, getRestTemplate(), settings);
         processService = new ProcessService(getRestTemplate(), accountService, dataStoreService, settings);
@@ -229,6 +232,7 @@ public class GoodData {
         outputStageService = new OutputStageService(getRestTemplate(), settings);
         projectTemplateService = new ProjectTemplateService(getRestTemplate(), settings);
         auditEventService = new AuditEventService(getRestTemplate(), accountService, settings);
+        executeAfmService = new ExecuteAfmService(getRestTemplate(), settings);
     }
 
     static RestTemplate createRestTemplate(GoodDataEndpoint endpoint, HttpClient httpClient) {
@@ -495,5 +499,14 @@ public class GoodData {
         return auditEventService;
     }
 
+    /**
+     * Get initialized service for AFM execution
+     * @return initialized service for AFM execution
+     */
+    @Bean
+    public ExecuteAfmService getExecuteAfmService() {
+        return executeAfmService;
+    }
+
 
 }
@@ -25,6 +25,7 @@ public class GoodDataSettings {
     private int connectionRequestTimeout = secondsToMillis(10);
     private int socketTimeout = secondsToMillis(60);
     private int pollSleep = secondsToMillis(5);
+    private int datasetCacheTtl = 0;
     private String userAgent;
 
 
@@ -189,6 +190,41 @@ public class GoodDataSettings {
         setPollSleep(secondsToMillis(pollSleep));
     }
 
+    /**
+     * Get time in milliseconds for which dataset manifests and dataset uploads information are cached
+     * by {@link com.gooddata.dataset.DatasetService}, 0 means caching is disabled.
+     *
+     * @return cache time to live milliseconds
+     */
+    public int getDatasetCacheTtl() {
+        return datasetCacheTtl;
+    }
+
+    /**
+     * Set time for which dataset manifests and dataset uploads information are cached
+     * by {@link com.gooddata.dataset.DatasetService}. The cache of a project can be invalidated explicitly
+     * by {@link com.gooddata.dataset.DatasetService#invalidateCache(com.gooddata.project.Project)}.
+     * <p>
+     * The default value is 0 (caching disabled).
+     *
+     * @param datasetCacheTtl cache time to live milliseconds
+     */
+    public void setDatasetCacheTtl(final int datasetCacheTtl) {
+        isTrue(datasetCacheTtl >= 0, "datasetCacheTtl must be not negative");
+        this.datasetCacheTtl = datasetCacheTtl;
+    }
+
+    /**
+     * Set time for which dataset manifests and dataset uploads information are cached
+     * by {@link com.gooddata.dataset.DatasetService}.
+     *
+     * @param datasetCacheTtl cache time to live seconds
+     * @see #setDatasetCacheTtl(int)
+     */
+    public void setDatasetCacheTtlSeconds(final int datasetCacheTtl) {
+        setDatasetCacheTtl(secondsToMillis(datasetCacheTtl));
+    }
+
     /**
      * User agent
      * @return user agent string
@@ -217,6 +253,7 @@ public class GoodDataSettings {
         if (connectionRequestTimeout != that.connectionRequestTimeout) return false;
         if (socketTimeout != that.socketTimeout) return false;
         if (pollSleep != that.pollSleep) return false;
+        if (datasetCacheTtl != that.datasetCacheTtl) return false;
         return userAgent != null ? userAgent.equals(that.userAgent) : that.userAgent == null;
     }
 
@@ -227,6 +264,7 @@ public class GoodDataSettings {
         result = 31 * result + connectionRequestTimeout;
         result = 31 * result + socketTimeout;
         result = 31 * result + pollSleep;
+        result = 31 * result + datasetCacheTtl;
         result = 31 * result + (userAgent != null ? userAgent.hashCode() : 0);
         return result;
     }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.GoodDataException;
+
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static com.gooddata.util.Validate.notEmpty;
+
+/**
+ * Progress of the {@link ExecutionGraph} execution persisted in the properties file after each change.
+ * It maps the node id to the uri of its running execution or to {@link #DONE} when the node finished successfully.
+ */
+class ExecutionCheckpoint {
+
+    static final String DONE = "DONE";
+
+    private final PropertiesFile file;
+    private final Properties nodes;
+
+    /**
+     * Creates new checkpoint, loading the given file when exists
+     * @param file properties file the checkpoint is persisted in
+     * @throws GoodDataException when the file can't be read
+     */
+    ExecutionCheckpoint(final Path file) {
+        this.file = new PropertiesFile(file, "execution checkpoint");
+        this.nodes = this.file.load();
+    }
+
+    /**
+     * @param nodeId node id
+     * @return true when the node finished successfully
+     */
+    boolean isDone(final String nodeId) {
+        return DONE.equals(nodes.getProperty(nodeId));
+    }
+
+    /**
+     * @param nodeId node id
+     * @return uri of the running execution of the node, null when the node isn't running
+     */
+    String getExecutionUri(final String nodeId) {
+        final String value = nodes.getProperty(nodeId);
+        return DONE.equals(value) ? null : value;
+    }
+
+    void setRunning(final String nodeId, final String executionUri) {
+        set(nodeId, notEmpty(executionUri, "executionUri"));
+    }
+
+    void setDone(final String nodeId) {
+        set(nodeId, DONE);
+    }
+
+    /**
+     * Forgets the node, so it's executed again on resume
+     * @param nodeId node id
+     */
+    void remove(final String nodeId) {
+        if (nodes.remove(nodeId) != null) {
+            store();
+        }
+    }
+
+    private void set(final String nodeId, final String value) {
+        nodes.setProperty(notEmpty(nodeId, "nodeId"), value);
+        store();
+    }
+
+    private void store() {
+        file.store(nodes, "Execution graph checkpoint");
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.FutureResult;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
+import static java.util.Arrays.asList;
+
+/**
+ * Directed acyclic graph of schedule and process executions, executed by {@link ExecutionOrchestrator}.
+ * Each node is identified by id unique within the graph and it's executed once all its dependencies
+ * finished successfully. The dependencies must be added to the graph before the node depending on them,
+ * so the graph can't contain cycles.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     ExecutionGraph graph = new ExecutionGraph()
+ *             .addSchedule("extract", extractSchedule)
+ *             .addProcessExecution("transform", new ProcessExecution(process, "transform.grf"), "extract")
+ *             .addSchedule("load-sales", salesSchedule, "transform")
+ *             .addSchedule("load-hr", hrSchedule, "transform");
+ * </code></pre>
+ */
+public class ExecutionGraph {
+
+    private static final Pattern PROJECT_ID = Pattern.compile("/gdc/projects/([^/]+)/");
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    /**
+     * Adds execution of the given schedule
+     * @param id node id
+     * @param schedule schedule to execute
+     * @param dependencies ids of the nodes which must finish successfully before the schedule is executed
+     * @return this graph
+     */
+    public ExecutionGraph addSchedule(final String id, final Schedule schedule, final String... dependencies) {
+        notNull(schedule, "schedule");
+        notEmpty(schedule.getExecutionsUri(), "schedule.executionsUri");
+        return add(new ScheduleNode(id, projectId(schedule.getExecutionsUri()), dependencies, schedule));
+    }
+
+    /**
+     * Adds the given process execution
+     * @param id node id
+     * @param execution process execution
+     * @param dependencies ids of the nodes which must finish successfully before the process is executed
+     * @return this graph
+     */
+    public ExecutionGraph addProcessExecution(final String id, final ProcessExecution execution,
+                                              final String... dependencies) {
+        notNull(execution, "execution");
+        return add(new ProcessNode(id, projectId(execution.getExecutionsUri()), dependencies, execution));
+    }
+
+    /**
+     * @return ids of the nodes in the order they were added
+     */
+    public Set<String> getNodeIds() {
+        return Collections.unmodifiableSet(nodes.keySet());
+    }
+
+    /**
+     * @return nodes in the order they were added, so each node follows its dependencies
+     */
+    Collection<Node> getNodes() {
+        return nodes.values();
+    }
+
+    private ExecutionGraph add(final Node node) {
+        isTrue(!nodes.containsKey(node.getId()), "node " + node.getId() + " is already in the graph");
+        for (String dependency : node.getDependencies()) {
+            isTrue(nodes.containsKey(dependency),
+                    "dependency " + dependency + " of node " + node.getId() + " must be added first");
+        }
+        nodes.put(node.getId(), node);
+        return this;
+    }
+
+    private static String projectId(final String uri) {
+        final Matcher matcher = PROJECT_ID.matcher(notEmpty(uri, "uri"));
+        isTrue(matcher.find(), "uri " + uri + " doesn't belong to any project");
+        return matcher.group(1);
+    }
+
+    /**
+     * Node of the graph, knows how to start its execution and how to resume polling of the started one.
+     */
+    abstract static class Node {
+        private final String id;
+        private final String projectId;
+        private final Set<String> dependencies;
+
+        private Node(final String id, final String projectId, final String[] dependencies) {
+            this.id = notEmpty(id, "id");
+            this.projectId = projectId;
+            this.dependencies = Collections.unmodifiableSet(new LinkedHashSet<>(asList(notNull(dependencies,
+                    "dependencies"))));
+        }
+
+        String getId() {
+            return id;
+        }
+
+        String getProjectId() {
+            return projectId;
+        }
+
+        Set<String> getDependencies() {
+            return dependencies;
+        }
+
+        /**
+         * Starts the execution
+         * @return execution result, its polling uri identifies the execution
+         */
+        abstract FutureResult<?> start(ProcessService service);
+
+        /**
+         * Resumes polling of the execution started before
+         * @param executionUri polling uri of the started execution
+         * @return execution result
+         */
+        abstract FutureResult<?> resume(ProcessService service, String executionUri);
+
+        /**
+         * Checks the result of the finished execution
+         * @throws com.gooddata.GoodDataException when the execution wasn't successful
+         */
+        void checkResult(final Object result) {
+        }
+    }
+
+    private static class ScheduleNode extends Node {
+        private static final String STATUS_OK = "OK";
+
+        private final Schedule schedule;
+
+        private ScheduleNode(final String id, final String projectId, final String[] dependencies,
+                             final Schedule schedule) {
+            super(id, projectId, dependencies);
+            this.schedule = schedule;
+        }
+
+        @Override
+        FutureResult<?> start(final ProcessService service) {
+            return service.executeSchedule(schedule);
+        }
+
+        @Override
+        FutureResult<?> resume(final ProcessService service, final String executionUri) {
+            return service.getScheduleExecution(executionUri);
+        }
+
+        @Override
+        void checkResult(final Object result) {
+            final ScheduleExecution execution = (ScheduleExecution) result;
+            if (!STATUS_OK.equals(execution.getStatus())) {
+                throw new ScheduleExecutionException("Schedule " + schedule.getUri() + " execution finished with status "
+                        + execution.getStatus());
+            }
+        }
+    }
+
+    private static class ProcessNode extends Node {
+        private final ProcessExecution execution;
+
+        private ProcessNode(final String id, final String projectId, final String[] dependencies,
+                            final ProcessExecution execution) {
+            super(id, projectId, dependencies);
+            this.execution = execution;
+        }
+
+        @Override
+        FutureResult<?> start(final ProcessService service) {
+            return service.executeProcess(execution);
+        }
+
+        @Override
+        FutureResult<?> resume(final ProcessService service, final String executionUri) {
+            return service.getProcessExecution(executionUri);
+        }
+    }
+}
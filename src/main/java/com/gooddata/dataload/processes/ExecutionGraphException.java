@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.GoodDataException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents failure of some nodes of the {@link ExecutionGraph}
+ */
+public class ExecutionGraphException extends GoodDataException {
+
+    private final Map<String, GoodDataException> failures;
+    private final Set<String> skipped;
+
+    public ExecutionGraphException(final Map<String, GoodDataException> failures, final Set<String> skipped) {
+        super("Execution of nodes " + failures.keySet() + " failed, nodes " + skipped + " were skipped",
+                failures.isEmpty() ? null : failures.values().iterator().next());
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        this.skipped = Collections.unmodifiableSet(new LinkedHashSet<>(skipped));
+    }
+
+    /**
+     * @return failures of the failed nodes by node id
+     */
+    public Map<String, GoodDataException> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return ids of the nodes not executed because some of their dependencies failed
+     */
+    public Set<String> getSkipped() {
+        return skipped;
+    }
+}
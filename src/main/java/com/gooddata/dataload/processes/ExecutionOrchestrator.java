@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import org.springframework.web.client.RestClientException;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Executes {@link ExecutionGraph} of schedule and process executions across projects. The nodes which dependencies
+ * finished successfully are started concurrently, up to the given global and per project limits. All running
+ * executions are polled by the calling thread, one poll request per execution in each round. The poll failing
+ * on I/O error is repeated in the next round, the node fails after {@link #MAX_POLL_RETRIES} consecutive such failures.
+ * <p>
+ * The progress is persisted in the given checkpoint file, so the graph execution interrupted by a crash can be
+ * resumed by executing the same graph with the same checkpoint file: the successfully finished nodes aren't
+ * executed again and the polling of the running executions is resumed. A node started just before the crash
+ * may be executed twice. The failed nodes (and the nodes depending on them) are executed again on resume.
+ * Delete the checkpoint file to execute the whole graph again.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     new ExecutionOrchestrator(gd.getProcessService(), 10, 2)
+ *             .execute(graph, Paths.get("nightly-load.checkpoint"));
+ * </code></pre>
+ */
+public class ExecutionOrchestrator {
+
+    public static final long DEFAULT_POLL_MILLIS = 5000;
+    public static final int MAX_POLL_RETRIES = 5;
+
+    private final ProcessService service;
+    private final int maxRunning;
+    private final int maxRunningPerProject;
+    private final long pollMillis;
+
+    /**
+     * Creates new orchestrator polling every {@link #DEFAULT_POLL_MILLIS}
+     * @param service process service
+     * @param maxRunning maximal number of running executions
+     * @param maxRunningPerProject maximal number of running executions in a single project
+     */
+    public ExecutionOrchestrator(final ProcessService service, final int maxRunning, final int maxRunningPerProject) {
+        this(service, maxRunning, maxRunningPerProject, DEFAULT_POLL_MILLIS);
+    }
+
+    /**
+     * Creates new orchestrator
+     * @param service process service
+     * @param maxRunning maximal number of running executions
+     * @param maxRunningPerProject maximal number of running executions in a single project
+     * @param pollMillis pause between the polling rounds in which no execution finished
+     */
+    public ExecutionOrchestrator(final ProcessService service, final int maxRunning, final int maxRunningPerProject,
+                                 final long pollMillis) {
+        this.service = notNull(service, "service");
+        isTrue(maxRunning > 0, "maxRunning must be positive");
+        isTrue(maxRunningPerProject > 0, "maxRunningPerProject must be positive");
+        isTrue(pollMillis >= 0, "pollMillis must not be negative");
+        this.maxRunning = maxRunning;
+        this.maxRunningPerProject = maxRunningPerProject;
+        this.pollMillis = pollMillis;
+    }
+
+    /**
+     * Executes the given graph, waits until all its nodes finish or are skipped because of failed dependencies.
+     *
+     * @param graph graph to execute
+     * @param checkpoint file the progress is persisted in, resumes its progress when exists
+     * @throws ExecutionGraphException when some nodes failed
+     * @throws GoodDataException when the checkpoint can't be read or written or the thread was interrupted
+     */
+    public void execute(final ExecutionGraph graph, final Path checkpoint) {
+        notNull(graph, "graph");
+        new Run(graph, new ExecutionCheckpoint(notNull(checkpoint, "checkpoint"))).execute();
+    }
+
+    private class Run {
+        private final ExecutionGraph graph;
+        private final ExecutionCheckpoint checkpoint;
+
+        private final Set<String> done = new HashSet<>();
+        private final Map<String, GoodDataException> failed = new LinkedHashMap<>();
+        private final Set<String> skipped = new LinkedHashSet<>();
+        private final Map<ExecutionGraph.Node, FutureResult<?>> running = new LinkedHashMap<>();
+        private final Map<String, Integer> runningPerProject = new HashMap<>();
+        private final Map<ExecutionGraph.Node, Integer> pollFailures = new HashMap<>();
+
+        private Run(final ExecutionGraph graph, final ExecutionCheckpoint checkpoint) {
+            this.graph = graph;
+            this.checkpoint = checkpoint;
+        }
+
+        private void execute() {
+            resume();
+            startReady();
+            while (!running.isEmpty()) {
+                if (pollRunning()) {
+                    startReady();
+                } else {
+                    sleep();
+                }
+            }
+            if (!failed.isEmpty()) {
+                throw new ExecutionGraphException(failed, skipped);
+            }
+        }
+
+        private void resume() {
+            for (ExecutionGraph.Node node : graph.getNodes()) {
+                if (checkpoint.isDone(node.getId())) {
+                    done.add(node.getId());
+                } else {
+                    final String executionUri = checkpoint.getExecutionUri(node.getId());
+                    if (executionUri != null) {
+                        // already running, so it's polled even when over the limits
+                        addRunning(node, node.resume(service, executionUri));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Starts the nodes which dependencies are done, skips the nodes which dependencies failed.
+         * The nodes follow their dependencies, so a single pass propagates the skipping.
+         */
+        private void startReady() {
+            for (ExecutionGraph.Node node : graph.getNodes()) {
+                if (running.size() >= maxRunning) {
+                    return;
+                }
+                final String id = node.getId();
+                if (done.contains(id) || failed.containsKey(id) || skipped.contains(id) || running.containsKey(node)) {
+                    continue;
+                }
+                if (node.getDependencies().stream().anyMatch(d -> failed.containsKey(d) || skipped.contains(d))) {
+                    skipped.add(id);
+                } else if (done.containsAll(node.getDependencies())
+                        && runningPerProject.getOrDefault(node.getProjectId(), 0) < maxRunningPerProject) {
+                    start(node);
+                }
+            }
+        }
+
+        private void start(final ExecutionGraph.Node node) {
+            final FutureResult<?> result;
+            try {
+                result = node.start(service);
+            } catch (GoodDataException e) {
+                failed.put(node.getId(), e);
+                return;
+            }
+            checkpoint.setRunning(node.getId(), result.getPollingUri());
+            addRunning(node, result);
+        }
+
+        /**
+         * Polls each running execution once
+         * @return true when some execution finished
+         */
+        private boolean pollRunning() {
+            boolean finished = false;
+            final Iterator<Map.Entry<ExecutionGraph.Node, FutureResult<?>>> iterator = running.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<ExecutionGraph.Node, FutureResult<?>> entry = iterator.next();
+                final ExecutionGraph.Node node = entry.getKey();
+                GoodDataException failure = null;
+                try {
+                    if (!entry.getValue().isDone()) {
+                        pollFailures.remove(node);
+                        continue;
+                    }
+                    node.checkResult(entry.getValue().get());
+                } catch (GoodDataException e) {
+                    failure = e;
+                } catch (RestClientException e) {
+                    // transient failure, the execution is still running
+                    if (pollFailures.merge(node, 1, Integer::sum) <= MAX_POLL_RETRIES) {
+                        continue;
+                    }
+                    failure = new GoodDataException("Unable to poll execution " + entry.getValue().getPollingUri(), e);
+                }
+                if (failure == null) {
+                    done.add(node.getId());
+                    checkpoint.setDone(node.getId());
+                } else {
+                    failed.put(node.getId(), failure);
+                    checkpoint.remove(node.getId());
+                }
+                iterator.remove();
+                pollFailures.remove(node);
+                runningPerProject.merge(node.getProjectId(), -1, Integer::sum);
+                finished = true;
+            }
+            return finished;
+        }
+
+        private void addRunning(final ExecutionGraph.Node node, final FutureResult<?> result) {
+            running.put(node, result);
+            runningPerProject.merge(node.getProjectId(), 1, Integer::sum);
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GoodDataException("Interrupted while executing graph, resume it using the checkpoint", e);
+            }
+        }
+    }
+}
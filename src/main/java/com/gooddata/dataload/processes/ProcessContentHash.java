@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.util.Sha256;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Content hash of process data, stable across re-packaging: the hash is computed from the sorted relative paths
+ * and the contents of the files only, timestamps and other file attributes are ignored. The files of a zip archive
+ * are hashed the same way as the files of a directory, so a directory and its zip archive have the same hash.
+ */
+class ProcessContentHash {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ProcessContentHash() {
+    }
+
+    /**
+     * @param processData process directory, zip archive or single file
+     * @return hex encoded SHA-256 hash
+     */
+    static String compute(final File processData) throws IOException {
+        final MessageDigest digest = Sha256.newDigest();
+        final Path root = processData.toPath();
+        if (Files.isDirectory(root)) {
+            final List<Path> files = new ArrayList<>();
+            try (Stream<Path> walk = Files.walk(root)) {
+                walk.filter(Files::isRegularFile).forEach(files::add);
+            }
+            final Map<String, Path> sorted = new TreeMap<>();
+            for (Path file : files) {
+                sorted.put(root.relativize(file).toString().replace(File.separatorChar, '/'), file);
+            }
+            for (Map.Entry<String, Path> file : sorted.entrySet()) {
+                try (InputStream input = Files.newInputStream(file.getValue())) {
+                    digest.update(hash(file.getKey(), input));
+                }
+            }
+        } else if (!hashZipEntries(root, digest)) {
+            digest.reset();
+            try (InputStream input = Files.newInputStream(root)) {
+                digest.update(hash(root.getFileName().toString(), input));
+            }
+        }
+        return Sha256.toHex(digest.digest());
+    }
+
+    /**
+     * Hashes the entries of the zip archive sorted by their names
+     * @return false when the file is not a zip archive
+     */
+    private static boolean hashZipEntries(final Path zip, final MessageDigest digest) throws IOException {
+        // entries are hashed separately, so they can be combined in sorted order
+        final Map<String, byte[]> entries = new TreeMap<>();
+        try (ZipInputStream input = new ZipInputStream(Files.newInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    final String name = entry.getName().replace('\\', '/');
+                    entries.put(name, hash(name, input));
+                }
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        if (entries.isEmpty()) {
+            return false;
+        }
+        for (byte[] entryHash : entries.values()) {
+            digest.update(entryHash);
+        }
+        return true;
+    }
+
+    /**
+     * @return hash of single file
+     */
+    private static byte[] hash(final String name, final InputStream content) throws IOException {
+        final MessageDigest digest = Sha256.newDigest();
+        digest.update(name.getBytes(UTF_8));
+        digest.update((byte) 0);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            size += read;
+        }
+        // length suffix separates the content from the next name
+        for (int i = 0; i < 8; i++) {
+            digest.update((byte) (size >>> (8 * i)));
+        }
+        return digest.digest();
+    }
+}
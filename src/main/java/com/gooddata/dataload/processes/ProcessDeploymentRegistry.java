@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.GoodDataException;
+
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static com.gooddata.util.Validate.notEmpty;
+
+/**
+ * Local registry of the deployed process data, used by
+ * {@link ProcessService#updateProcessIfChanged(DataloadProcess, java.io.File, ProcessDeploymentRegistry)}
+ * to skip deployments of unchanged process data. It maps the process uri to the fingerprint of the last deployment and it's persisted
+ * in the given properties file after each change. The registry is safe to be shared by multiple threads,
+ * not by multiple applications.
+ * <p>
+ * The registry knows only the deployments done through it, the process deployed by other means must be
+ * {@link #remove(String) removed} from the registry.
+ */
+public class ProcessDeploymentRegistry {
+
+    private final PropertiesFile file;
+    private final Properties fingerprints;
+
+    /**
+     * Creates new registry, loading the given file when exists
+     * @param file properties file the registry is persisted in
+     * @throws GoodDataException when the file can't be read
+     */
+    public ProcessDeploymentRegistry(final Path file) {
+        this.file = new PropertiesFile(file, "process deployment registry");
+        this.fingerprints = this.file.load();
+    }
+
+    /**
+     * @param processUri process uri
+     * @return fingerprint of the last deployment of the process, null when unknown
+     */
+    public synchronized String getFingerprint(final String processUri) {
+        return fingerprints.getProperty(notEmpty(processUri, "processUri"));
+    }
+
+    /**
+     * Records the deployment of the process
+     * @param processUri process uri
+     * @param fingerprint fingerprint of the deployment
+     * @throws GoodDataException when the registry can't be written
+     */
+    public synchronized void setFingerprint(final String processUri, final String fingerprint) {
+        fingerprints.setProperty(notEmpty(processUri, "processUri"), notEmpty(fingerprint, "fingerprint"));
+        store();
+    }
+
+    /**
+     * Forgets the deployment of the process, so the next deployment isn't skipped
+     * @param processUri process uri
+     * @throws GoodDataException when the registry can't be written
+     */
+    public synchronized void remove(final String processUri) {
+        if (fingerprints.remove(notEmpty(processUri, "processUri")) != null) {
+            store();
+        }
+    }
+
+    private void store() {
+        file.store(fingerprints, "Deployed process data");
+    }
+}
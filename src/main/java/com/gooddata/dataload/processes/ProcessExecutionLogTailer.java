@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.util.function.Consumer;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Follows the log of running process execution, passing the new log lines to the given consumer as the log grows.
+ * Only the new part of the log is fetched by each poll (using HTTP range request). The poll interval starts at
+ * the minimal one and doubles up to the maximal one while the log doesn't grow.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     FutureResult&lt;ProcessExecutionDetail&gt; execution = gd.getProcessService().executeProcess(processExecution);
+ *     ProcessExecutionDetail detail = new ProcessExecutionLogTailer(gd.getProcessService())
+ *             .tail(execution, System.out::println);
+ * </code></pre>
+ */
+public class ProcessExecutionLogTailer {
+
+    public static final long DEFAULT_MIN_POLL_MILLIS = 1000;
+    public static final long DEFAULT_MAX_POLL_MILLIS = 30000;
+
+    private static final String STATUS_QUEUED = "QUEUED";
+    private static final String STATUS_RUNNING = "RUNNING";
+    private static final byte[] NO_LOG = new byte[0];
+
+    private final ProcessService service;
+    private final long minPollMillis;
+    private final long maxPollMillis;
+
+    /**
+     * Creates new tailer polling between {@link #DEFAULT_MIN_POLL_MILLIS} and {@link #DEFAULT_MAX_POLL_MILLIS}
+     * @param service process service
+     */
+    public ProcessExecutionLogTailer(final ProcessService service) {
+        this(service, DEFAULT_MIN_POLL_MILLIS, DEFAULT_MAX_POLL_MILLIS);
+    }
+
+    /**
+     * Creates new tailer
+     * @param service process service
+     * @param minPollMillis poll interval used while the log grows
+     * @param maxPollMillis maximal poll interval used while the log doesn't grow
+     */
+    public ProcessExecutionLogTailer(final ProcessService service, final long minPollMillis,
+                                     final long maxPollMillis) {
+        this.service = notNull(service, "service");
+        isTrue(minPollMillis >= 0, "minPollMillis must not be negative");
+        isTrue(maxPollMillis >= minPollMillis, "maxPollMillis must not be less than minPollMillis");
+        this.minPollMillis = minPollMillis;
+        this.maxPollMillis = maxPollMillis;
+    }
+
+    /**
+     * Follows the log of the given execution until the execution finishes.
+     *
+     * @param execution execution started by {@link ProcessService#executeProcess(ProcessExecution)}
+     * @param lines consumer of the log lines (without line terminators)
+     * @return detail of the finished execution, successful or not
+     * @throws GoodDataException when the execution detail or log can't be obtained
+     */
+    public ProcessExecutionDetail tail(final FutureResult<ProcessExecutionDetail> execution,
+                                       final Consumer<String> lines) {
+        notNull(execution, "execution");
+        notEmpty(execution.getPollingUri(), "execution.pollingUri");
+        return tail(ProcessExecutionDetail.uriFromExecutionUri(URI.create(execution.getPollingUri())).toString(),
+                lines);
+    }
+
+    /**
+     * Follows the log of the execution of the given detail uri until the execution finishes.
+     *
+     * @param executionDetailUri execution detail uri
+     * @param lines consumer of the log lines (without line terminators)
+     * @return detail of the finished execution, successful or not
+     * @throws GoodDataException when the execution detail or log can't be obtained
+     */
+    public ProcessExecutionDetail tail(final String executionDetailUri, final Consumer<String> lines) {
+        notEmpty(executionDetailUri, "executionDetailUri");
+        notNull(lines, "lines");
+
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        long offset = 0;
+        long pollMillis = minPollMillis;
+        while (true) {
+            // the detail is got before the log, so the log of finished execution is complete
+            final ProcessExecutionDetail detail = service.getExecutionDetail(executionDetailUri);
+            final String logUri = detail.getLogUri();
+            // the detail has no log link until the execution starts
+            final byte[] chunk = logUri == null ? NO_LOG : service.getExecutionLog(logUri, offset);
+            offset += chunk.length;
+            emitLines(chunk, line, lines);
+
+            if (isFinished(detail)) {
+                if (line.size() > 0) {
+                    lines.accept(toLine(line));
+                }
+                return detail;
+            }
+
+            pollMillis = chunk.length > 0 ? minPollMillis : Math.min(Math.max(pollMillis * 2, 1), maxPollMillis);
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GoodDataException("Interrupted while following process execution log", e);
+            }
+        }
+    }
+
+    private static boolean isFinished(final ProcessExecutionDetail detail) {
+        return detail.getFinished() != null
+                || !(STATUS_QUEUED.equals(detail.getStatus()) || STATUS_RUNNING.equals(detail.getStatus()));
+    }
+
+    /**
+     * Passes the complete lines of the chunk to the consumer, the incomplete last line is kept in the line buffer
+     * (the lines are split on bytes, so multi-byte characters split between the chunks are decoded correctly).
+     */
+    private static void emitLines(final byte[] chunk, final ByteArrayOutputStream line,
+                                  final Consumer<String> lines) {
+        int start = 0;
+        for (int i = 0; i < chunk.length; i++) {
+            if (chunk[i] == '\n') {
+                line.write(chunk, start, i - start);
+                lines.accept(toLine(line));
+                start = i + 1;
+            }
+        }
+        line.write(chunk, start, chunk.length - start);
+    }
+
+    private static String toLine(final ByteArrayOutputStream line) {
+        final byte[] bytes = line.toByteArray();
+        line.reset();
+        final int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        return new String(bytes, 0, length, UTF_8);
+    }
+}
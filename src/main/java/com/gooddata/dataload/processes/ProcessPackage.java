@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.function.Consumer;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Output of the zipped process data. The data are kept in memory while they fit the given limit, bigger data are
+ * piped to the given upload as they are written (the upload runs in its own thread), so the process package
+ * is never stored on disk nor read twice.
+ */
+class ProcessPackage extends OutputStream {
+
+    static final int PIPE_SIZE = 64 * 1024;
+
+    private final long memoryLimit;
+    private final Consumer<InputStream> upload;
+
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private PipedOutputStream pipe;
+    private Thread uploader;
+    private volatile RuntimeException uploadFailure;
+    private volatile boolean aborted;
+    private boolean closed;
+
+    /**
+     * @param memoryLimit maximal size of the package kept in memory
+     * @param upload upload of the package exceeding the limit, must read the given stream until its end
+     */
+    ProcessPackage(final long memoryLimit, final Consumer<InputStream> upload) {
+        isTrue(memoryLimit >= 0, "memoryLimit must not be negative");
+        this.memoryLimit = memoryLimit;
+        this.upload = notNull(upload, "upload");
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (closed) {
+            throw new IOException("Process package is closed");
+        }
+        if (pipe == null && buffer.size() + len > memoryLimit) {
+            startUpload();
+        }
+        if (pipe == null) {
+            buffer.write(b, off, len);
+        } else {
+            try {
+                pipe.write(b, off, len);
+            } catch (IOException e) {
+                throw uploadFailure(e);
+            }
+        }
+    }
+
+    /**
+     * Finishes the package, waits for the upload to finish when the package is uploaded.
+     * @throws IOException when the upload fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (pipe != null) {
+            try {
+                pipe.close();
+            } catch (IOException e) {
+                throw uploadFailure(e);
+            }
+            final IOException failure = uploadFailure(null);
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Aborts the incomplete package, so the upload fails instead of uploading the incomplete data.
+     * Waits for the upload to finish when the package is uploaded. Does nothing when the package is closed.
+     */
+    void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (pipe != null) {
+            aborted = true;
+            try {
+                pipe.close();
+                uploader.join();
+            } catch (IOException ignored) {
+                // the upload failed already
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return true when the package exceeded the memory limit and was passed to the upload
+     */
+    boolean isUploaded() {
+        return pipe != null;
+    }
+
+    /**
+     * @return the package kept in memory
+     */
+    byte[] toByteArray() {
+        if (isUploaded()) {
+            throw new IllegalStateException("Process package was uploaded, it's not kept in memory");
+        }
+        return buffer.toByteArray();
+    }
+
+    private void startUpload() throws IOException {
+        final PipedInputStream pipeInput = new PipedInputStream(PIPE_SIZE);
+        pipe = new PipedOutputStream(pipeInput);
+        final InputStream input = new AbortableInputStream(pipeInput);
+        uploader = new Thread(() -> {
+            // closing the input lets the writer fail instead of blocking forever when the upload fails
+            try (InputStream stream = input) {
+                upload.accept(stream);
+            } catch (RuntimeException e) {
+                uploadFailure = e;
+            } catch (IOException ignored) {
+                // closing the pipe can't fail
+            }
+        }, "process-package-upload");
+        uploader.setDaemon(true);
+        uploader.start();
+
+        try {
+            buffer.writeTo(pipe);
+        } catch (IOException e) {
+            throw uploadFailure(e);
+        }
+        buffer = null;
+    }
+
+    /**
+     * Waits for the upload to finish
+     * @param writeFailure failure of the write to the pipe, if any
+     * @return the failure of the upload (or the given write failure), null when the upload succeeded
+     */
+    private IOException uploadFailure(final IOException writeFailure) throws InterruptedIOException {
+        try {
+            uploader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading process package");
+        }
+        if (uploadFailure != null) {
+            return new IOException("Unable to upload process package", uploadFailure);
+        }
+        return writeFailure;
+    }
+
+    /**
+     * Fails instead of reporting the end of the data when the package was aborted.
+     */
+    private class AbortableInputStream extends FilterInputStream {
+
+        private AbortableInputStream(final InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            return b == -1 ? end() : b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int read = super.read(b, off, len);
+            return read == -1 ? end() : read;
+        }
+
+        private int end() throws IOException {
+            if (aborted) {
+                throw new IOException("Process package was aborted");
+            }
+            return -1;
+        }
+    }
+}
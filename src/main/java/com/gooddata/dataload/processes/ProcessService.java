@@ -21,7 +21,7 @@ import com.gooddata.collections.PageableList;
 import com.gooddata.gdc.DataStoreService;
 import com.gooddata.project.Project;
 import com.gooddata.util.ZipHelper;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -31,6 +31,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -40,8 +41,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
-import java.nio.file.Files;
 import java.util.Collection;
+import java.util.UUID;
 
 import static com.gooddata.util.Validate.notEmpty;
 import static com.gooddata.util.Validate.notNull;
@@ -170,6 +171,39 @@ public class ProcessService extends AbstractService {
         return postProcess(process, processData, URI.create(process.getUri()));
     }
 
+    /**
+     * Update process with given data, unless the same data were already deployed to the process. The deployment is
+     * skipped when the fingerprint of the process name, type and the content hash of the data (computed from
+     * the sorted file paths and contents, ignoring timestamps) matches the fingerprint of the last deployment recorded
+     * in the given registry. The registry is updated after successful deployment.
+     * Process must have null path to prevent clashes with deploying from appstore.
+     *
+     * @param process to update
+     * @param processData process data to upload
+     * @param registry registry of the deployed process data
+     * @return updated process or the given process when the deployment was skipped
+     */
+    public DataloadProcess updateProcessIfChanged(DataloadProcess process, File processData,
+                                                  ProcessDeploymentRegistry registry) {
+        notNull(process, "process");
+        notNull(process.getUri(), "process.uri");
+        notNull(processData, "processData");
+        notNull(registry, "registry");
+
+        final String fingerprint;
+        try {
+            fingerprint = process.getName() + ':' + process.getType() + ':' + ProcessContentHash.compute(processData);
+        } catch (IOException e) {
+            throw new GoodDataException("Unable to read process data " + processData, e);
+        }
+        if (fingerprint.equals(registry.getFingerprint(process.getUri()))) {
+            return process;
+        }
+        final DataloadProcess updated = updateProcess(process, processData);
+        registry.setFingerprint(process.getUri(), fingerprint);
+        return updated;
+    }
+
     /**
      * Update process with data from appstore by given project.
      * Process must have set path field to valid appstore path in order to deploy from appstore.
@@ -301,6 +335,65 @@ public class ProcessService extends AbstractService {
         }
     }
 
+    /**
+     * Get process execution detail
+     * @param uri execution detail uri
+     * @return execution detail
+     */
+    ProcessExecutionDetail getExecutionDetail(String uri) {
+        notEmpty(uri, "uri");
+        try {
+            return restTemplate.getForObject(uri, ProcessExecutionDetail.class);
+        } catch (GoodDataException | RestClientException e) {
+            throw new GoodDataException("Unable to get process execution detail " + uri, e);
+        }
+    }
+
+    /**
+     * Get the part of process execution log starting at the given offset, using HTTP range request
+     * @param logUri execution log uri
+     * @param offset number of the log bytes already read
+     * @return the log bytes following the offset, empty when the log didn't grow or doesn't exist yet
+     */
+    byte[] getExecutionLog(String logUri, long offset) {
+        notEmpty(logUri, "logUri");
+        isTrue(offset >= 0, "offset must not be negative");
+        try {
+            return restTemplate.execute(logUri, HttpMethod.GET, request -> {
+                if (offset > 0) {
+                    request.getHeaders().set(HttpHeaders.RANGE, "bytes=" + offset + "-");
+                }
+            }, response -> {
+                final InputStream body = response.getBody();
+                if (response.getStatusCode() == HttpStatus.OK) {
+                    // range not supported, the whole log is returned
+                    long skipped = 0;
+                    while (skipped < offset) {
+                        final long n = body.skip(offset - skipped);
+                        if (n > 0) {
+                            skipped += n;
+                        } else if (body.read() != -1) {
+                            skipped++;
+                        } else {
+                            return new byte[0];
+                        }
+                    }
+                } else if (response.getStatusCode() != HttpStatus.PARTIAL_CONTENT) {
+                    return new byte[0];
+                }
+                return StreamUtils.copyToByteArray(body);
+            });
+        } catch (GoodDataRestException e) {
+            if (e.getStatusCode() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()
+                    || e.getStatusCode() == HttpStatus.NOT_FOUND.value()) {
+                return new byte[0];
+            }
+            throw new GoodDataException("Unable to get process execution log " + logUri, e);
+        } catch (GoodDataException | RestClientException e) {
+            throw new GoodDataException("Unable to get process execution log " + logUri, e);
+        }
+    }
+
     /**
      * Run given execution under given process
      *
@@ -321,9 +414,23 @@ public class ProcessService extends AbstractService {
             throw new ProcessExecutionException("Cannot find started execution.");
         }
 
-        final String detailLink = executionTask.getDetailUri();
+        return pollProcessExecution(executionTask.getPollUri(), executionTask.getDetailUri());
+    }
+
+    /**
+     * Resumes polling of the process execution started before
+     *
+     * @param executionUri execution uri (the polling uri of the execution result)
+     * @return result of the execution
+     */
+    FutureResult<ProcessExecutionDetail> getProcessExecution(String executionUri) {
+        notEmpty(executionUri, "executionUri");
+        return pollProcessExecution(executionUri,
+                ProcessExecutionDetail.uriFromExecutionUri(URI.create(executionUri)).toString());
+    }
 
-        return new PollResult<>(this, new AbstractPollHandler<Void, ProcessExecutionDetail>(executionTask.getPollUri(), Void.class, ProcessExecutionDetail.class) {
+    private FutureResult<ProcessExecutionDetail> pollProcessExecution(final String pollUri, final String detailLink) {
+        return new PollResult<>(this, new AbstractPollHandler<Void, ProcessExecutionDetail>(pollUri, Void.class, ProcessExecutionDetail.class) {
             @Override
             public boolean isFinished(ClientHttpResponse response) throws IOException {
                 return HttpStatus.NO_CONTENT.equals(response.getStatusCode());
@@ -510,7 +617,22 @@ public class ProcessService extends AbstractService {
             throw new ScheduleExecutionException("Cannot execute schedule", e);
         }
 
-        return new PollResult<>(this, new AbstractPollHandler<ScheduleExecution, ScheduleExecution>(scheduleExecution.getUri(), ScheduleExecution.class, ScheduleExecution.class) {
+        return pollScheduleExecution(scheduleExecution.getUri());
+    }
+
+    /**
+     * Resumes polling of the schedule execution started before
+     *
+     * @param executionUri schedule execution uri
+     * @return schedule execution
+     */
+    FutureResult<ScheduleExecution> getScheduleExecution(String executionUri) {
+        notEmpty(executionUri, "executionUri");
+        return pollScheduleExecution(executionUri);
+    }
+
+    private FutureResult<ScheduleExecution> pollScheduleExecution(final String executionUri) {
+        return new PollResult<>(this, new AbstractPollHandler<ScheduleExecution, ScheduleExecution>(executionUri, ScheduleExecution.class, ScheduleExecution.class) {
             @Override
             public boolean isFinished(ClientHttpResponse response) throws IOException {
                 final ScheduleExecution pollResult = extractData(response, ScheduleExecution.class);
@@ -594,34 +716,44 @@ public class ProcessService extends AbstractService {
     }
 
     private DataloadProcess postProcess(DataloadProcess process, File processData, URI postUri) {
-        File tempFile = createTempFile("process", ".zip");
-
-        try (OutputStream output = Files.newOutputStream(tempFile.toPath())) {
-            ZipHelper.zip(processData, output);
+        // package exceeding the multipart limit is streamed to WebDAV while zipped
+        final String uploadPath = "process-" + UUID.randomUUID() + ".zip";
+        final ProcessPackage processPackage = new ProcessPackage(MAX_MULTIPART_SIZE,
+                input -> dataStoreService.upload(uploadPath, input));
+        try {
+            // the package is closed only when zipped completely, the incomplete one is aborted
+            ZipHelper.zip(processData, StreamUtils.nonClosing(processPackage));
+            processPackage.close();
         } catch (IOException e) {
+            abortUpload(processPackage, uploadPath);
+            if (e.getCause() instanceof GoodDataException) {
+                throw new GoodDataException("Unable to upload zipped process data", e.getCause());
+            }
             throw new GoodDataException("Unable to zip process data", e);
+        } catch (RuntimeException e) {
+            abortUpload(processPackage, uploadPath);
+            throw e;
         }
 
         Object processToSend;
         HttpMethod method = HttpMethod.POST;
-        if (tempFile.length() > MAX_MULTIPART_SIZE) {
-            try (final InputStream input = Files.newInputStream(tempFile.toPath())) {
-                process.setPath(dataStoreService.getUri(tempFile.getName()).getPath());
-                dataStoreService.upload(tempFile.getName(), input);
-                processToSend = process;
-                if (DataloadProcess.TEMPLATE.matches(postUri.toString())) {
-                    method = HttpMethod.PUT;
-                }
-            } catch (IOException e) {
-                throw new GoodDataException("Unable to access zipped process data at "
-                        + tempFile.getAbsolutePath(), e);
+        if (processPackage.isUploaded()) {
+            process.setPath(dataStoreService.getUri(uploadPath).getPath());
+            processToSend = process;
+            if (DataloadProcess.TEMPLATE.matches(postUri.toString())) {
+                method = HttpMethod.PUT;
             }
         } else {
             final MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>(2);
             parts.add("process", process);
             final HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MEDIA_TYPE_ZIP);
-            parts.add("data", new HttpEntity<>(new FileSystemResource(tempFile), headers));
+            parts.add("data", new HttpEntity<>(new ByteArrayResource(processPackage.toByteArray()) {
+                @Override
+                public String getFilename() {
+                    return uploadPath;
+                }
+            }, headers));
             processToSend = parts;
         }
 
@@ -634,8 +766,17 @@ public class ProcessService extends AbstractService {
             return response.getBody();
         } catch (GoodDataException | RestClientException e) {
             throw new GoodDataException("Unable to post dataload process.", e);
-        } finally {
-            deleteTempFile(tempFile);
+        }
+    }
+
+    private void abortUpload(final ProcessPackage processPackage, final String uploadPath) {
+        processPackage.abort();
+        if (processPackage.isUploaded()) {
+            try {
+                dataStoreService.delete(uploadPath);
+            } catch (GoodDataException | RestClientException ignored) {
+                // the failed upload may have stored nothing
+            }
         }
     }
 
@@ -675,22 +816,4 @@ public class ProcessService extends AbstractService {
             throw new GoodDataException("Unable to create dataload process.", e);
         }
     }
-
-    private File createTempFile(String prefix, String suffix) {
-        File tempFile;
-        try {
-            tempFile = File.createTempFile(prefix, suffix);
-            tempFile.deleteOnExit();
-        } catch (IOException e) {
-            throw new GoodDataException("Unable to create temporary file", e);
-        }
-        return tempFile;
-    }
-
-    private void deleteTempFile(File file) {
-        notNull(file, "file");
-        if (!file.delete()) {
-            // ignored
-        }
-    }
 }
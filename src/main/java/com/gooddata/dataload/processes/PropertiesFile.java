@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.GoodDataException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Properties file stored atomically: the properties are written to a temporary file in the same directory,
+ * which then replaces the file, so the file is never left partially written.
+ */
+class PropertiesFile {
+
+    private final Path file;
+    private final String description;
+
+    /**
+     * @param file properties file
+     * @param description description of the file content used in the error messages
+     */
+    PropertiesFile(final Path file, final String description) {
+        this.file = notNull(file, "file");
+        this.description = notEmpty(description, "description");
+    }
+
+    /**
+     * @return properties loaded from the file, empty when the file doesn't exist
+     * @throws GoodDataException when the file can't be read
+     */
+    Properties load() {
+        final Properties properties = new Properties();
+        if (Files.exists(file)) {
+            try (InputStream input = Files.newInputStream(file)) {
+                properties.load(input);
+            } catch (IOException e) {
+                throw new GoodDataException("Unable to read " + description + " " + file, e);
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * @param properties properties to store
+     * @param comment comment written to the beginning of the file
+     * @throws GoodDataException when the file can't be written
+     */
+    void store(final Properties properties, final String comment) {
+        try {
+            final Path parent = file.toAbsolutePath().getParent();
+            final Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (OutputStream output = Files.newOutputStream(tmp)) {
+                properties.store(output, comment);
+            }
+            Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new GoodDataException("Unable to write " + description + " " + file, e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.util.GoodDataToStringBuilder;
+
+/**
+ * Result of loading one batch by {@link PipelinedDatasetLoader}.
+ */
+public class BatchLoadResult {
+
+    /**
+     * State of the batch
+     */
+    public enum Status {
+        /** batch was uploaded and loaded */
+        LOADED,
+        /** upload or ETL pull of the batch failed */
+        FAILED,
+        /** batch wasn't loaded because some of the previous batches failed */
+        SKIPPED
+    }
+
+    private final int index;
+    private final String dataset;
+    private final Status status;
+    private final GoodDataException failure;
+
+    BatchLoadResult(final int index, final String dataset, final Status status, final GoodDataException failure) {
+        this.index = index;
+        this.dataset = dataset;
+        this.status = status;
+        this.failure = failure;
+    }
+
+    /**
+     * @return zero based order of the batch
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getDataset() {
+        return dataset;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return cause of the failure or null when batch didn't fail
+     */
+    public GoodDataException getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return GoodDataToStringBuilder.defaultToString(this);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static com.gooddata.util.Validate.isTrue;
+
+/**
+ * Bounded pipe passing filled byte buffers from a writer thread to a reader thread.
+ * The writer blocks when {@code capacity} buffers are waiting to be read, read buffers are recycled for the writer,
+ * so at most {@code capacity + 2} buffers are ever allocated.
+ * Unlike {@link java.io.PipedInputStream} the pipe doesn't depend on liveness of the writer thread.
+ * Internal use only.
+ */
+class BufferPipe {
+
+    private final int bufferSize;
+    private final int capacity;
+
+    private final Deque<byte[]> filled = new ArrayDeque<>();
+    private final Deque<Integer> lengths = new ArrayDeque<>();
+    private final Deque<byte[]> free = new ArrayDeque<>();
+
+    private final Input input = new Input();
+
+    private boolean writerClosed;
+    private boolean readerClosed;
+    private String abortMessage;
+
+    BufferPipe(final int bufferSize, final int capacity) {
+        isTrue(bufferSize > 0, "bufferSize must be greater than zero");
+        isTrue(capacity > 0, "capacity must be greater than zero");
+        this.bufferSize = bufferSize;
+        this.capacity = capacity;
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return recycled or newly allocated buffer for the writer
+     */
+    synchronized byte[] obtainBuffer() {
+        final byte[] buffer = free.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    /**
+     * Passes the buffer to the reader, blocking while the pipe is full.
+     * The buffer must not be touched by the writer afterwards.
+     *
+     * @param buffer buffer obtained by {@link #obtainBuffer()}
+     * @param length number of valid bytes in the buffer
+     * @throws IOException when the reader is closed, the pipe is aborted or the writer is interrupted
+     */
+    synchronized void write(final byte[] buffer, final int length) throws IOException {
+        while (filled.size() >= capacity && !readerClosed && abortMessage == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the reader");
+            }
+        }
+        if (abortMessage != null) {
+            throw new IOException(abortMessage);
+        }
+        if (readerClosed) {
+            throw new IOException("Pipe closed by the reader");
+        }
+        if (writerClosed) {
+            throw new IOException("Pipe closed by the writer");
+        }
+        filled.add(buffer);
+        lengths.add(length);
+        notifyAll();
+    }
+
+    /**
+     * Signals no more data will be written, the reader gets end of stream after reading the pending buffers.
+     */
+    synchronized void closeWriter() {
+        writerClosed = true;
+        notifyAll();
+    }
+
+    /**
+     * Aborts the pipe, both reader and writer get {@link IOException} with the given message.
+     *
+     * @param message abort reason
+     */
+    synchronized void abort(final String message) {
+        if (abortMessage == null) {
+            abortMessage = message;
+        }
+        filled.clear();
+        lengths.clear();
+        notifyAll();
+    }
+
+    InputStream getInputStream() {
+        return input;
+    }
+
+    private synchronized int take(final byte[][] current, final byte[] previous) throws IOException {
+        if (previous != null) {
+            free.add(previous);
+        }
+        while (filled.isEmpty() && !writerClosed && abortMessage == null && !readerClosed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the writer");
+            }
+        }
+        if (abortMessage != null) {
+            throw new IOException(abortMessage);
+        }
+        if (readerClosed) {
+            throw new IOException("Pipe closed");
+        }
+        if (filled.isEmpty()) {
+            return -1;
+        }
+        current[0] = filled.poll();
+        notifyAll();
+        return lengths.poll();
+    }
+
+    private synchronized void closeReader() {
+        readerClosed = true;
+        filled.clear();
+        lengths.clear();
+        notifyAll();
+    }
+
+    private class Input extends InputStream {
+
+        private final byte[][] current = new byte[1][];
+        private int position;
+        private int limit;
+        private boolean eof;
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return current[0][position++] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            final int count = Math.min(len, limit - position);
+            System.arraycopy(current[0], position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            closeReader();
+        }
+
+        private boolean fill() throws IOException {
+            while (!eof && position >= limit) {
+                final byte[] previous = current[0];
+                current[0] = null;
+                final int length = take(current, previous);
+                position = 0;
+                if (length < 0) {
+                    eof = true;
+                    limit = 0;
+                } else {
+                    limit = length;
+                }
+            }
+            return !eof;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParsePosition;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Validates dataset CSV against its {@link DatasetManifest} as the data are read (i.e. uploaded), so the upload fails
+ * fast instead of failing in the ETL pull after the whole file was uploaded.
+ * <p>
+ * Checks that the header contains exactly the column names of the manifest parts, every row has the same number
+ * of columns as the header, values of date columns match the date format given by the part constraints and the
+ * quoting follows RFC 4180. Violation is reported by {@link DatasetValidationException} thrown from the read methods.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     manifest.setSource(new CsvValidatingInputStream(manifest, csv));
+ *     datasetService.loadDatasets(project, manifest).get();
+ * </code></pre>
+ */
+public class CsvValidatingInputStream extends FilterInputStream {
+
+    private static final String DATE_CONSTRAINT = "date";
+
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private enum State { FIELD_START, UNQUOTED, QUOTED, QUOTE_IN_QUOTED }
+
+    private final String dataset;
+    private final Set<String> expectedColumns = new LinkedHashSet<>();
+    private final Map<String, DateTimeFormatter> dateFormats = new HashMap<>();
+    private final Map<String, String> datePatterns = new HashMap<>();
+
+    private final List<String> header = new ArrayList<>();
+    private DateTimeFormatter[] columnFormats;
+
+    private State state = State.FIELD_START;
+    private boolean recordStarted;
+    private boolean skipLf;
+    private boolean finished;
+    private long row = 1;
+    private int column;
+
+    private byte[] field = new byte[64];
+    private int fieldLength;
+
+    /**
+     * Creates validating stream
+     * @param manifest manifest to validate the CSV against
+     * @param source CSV data
+     */
+    public CsvValidatingInputStream(final DatasetManifest manifest, final InputStream source) {
+        super(notNull(source, "source"));
+        notNull(manifest, "manifest");
+        this.dataset = manifest.getDataSet();
+        if (manifest.getParts() != null) {
+            for (DatasetManifest.Part part : manifest.getParts()) {
+                if (part.getColumnName() == null) {
+                    continue;
+                }
+                expectedColumns.add(part.getColumnName());
+                final String pattern = part.getConstraints() == null ? null : part.getConstraints().get(DATE_CONSTRAINT);
+                if (pattern != null) {
+                    try {
+                        dateFormats.put(part.getColumnName(), DateTimeFormatter.ofPattern(pattern));
+                        datePatterns.put(part.getColumnName(), pattern);
+                    } catch (IllegalArgumentException ignored) {
+                        // pattern not understood by java.time, leave the validation to the server
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if (b < 0) {
+            finish();
+        } else {
+            process((byte) b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int read = super.read(b, off, len);
+        if (read < 0) {
+            finish();
+        }
+        for (int i = off; i < off + read; i++) {
+            process(b[i]);
+        }
+        return read;
+    }
+
+    /**
+     * Skipped bytes are read and validated as well.
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit) {
+        // not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private void process(final byte b) {
+        if (skipLf) {
+            skipLf = false;
+            if (b == LF) {
+                return;
+            }
+        }
+        switch (state) {
+            case FIELD_START:
+                if (b == QUOTE) {
+                    state = State.QUOTED;
+                    recordStarted = true;
+                } else {
+                    state = State.UNQUOTED;
+                    processUnquoted(b);
+                }
+                break;
+            case UNQUOTED:
+                processUnquoted(b);
+                break;
+            case QUOTED:
+                if (b == QUOTE) {
+                    state = State.QUOTE_IN_QUOTED;
+                } else {
+                    append(b);
+                }
+                break;
+            case QUOTE_IN_QUOTED:
+                if (b == QUOTE) {
+                    append(b);
+                    state = State.QUOTED;
+                } else if (b == COMMA) {
+                    endField();
+                } else if (b == CR || b == LF) {
+                    endRecord(b);
+                } else {
+                    throw fail("unexpected character after closing quote");
+                }
+                break;
+        }
+    }
+
+    private void processUnquoted(final byte b) {
+        if (b == COMMA) {
+            endField();
+        } else if (b == CR || b == LF) {
+            endRecord(b);
+        } else if (b == QUOTE) {
+            throw fail("unexpected quote in unquoted value");
+        } else {
+            recordStarted = true;
+            append(b);
+        }
+    }
+
+    private void append(final byte b) {
+        if (!isCaptured()) {
+            return;
+        }
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = b;
+    }
+
+    private boolean isCaptured() {
+        return columnFormats == null || (column < columnFormats.length && columnFormats[column] != null);
+    }
+
+    private void endField() {
+        validateField();
+        if (columnFormats != null && column + 1 >= columnFormats.length) {
+            throw fail("more columns than " + columnFormats.length + " found in header");
+        }
+        column++;
+        fieldLength = 0;
+        recordStarted = true;
+        state = State.FIELD_START;
+    }
+
+    private void endRecord(final byte b) {
+        validateField();
+        if (columnFormats == null) {
+            validateHeader();
+        } else if (column + 1 != columnFormats.length) {
+            throw fail("found " + (column + 1) + " columns, header has " + columnFormats.length + " columns");
+        }
+        row++;
+        column = 0;
+        fieldLength = 0;
+        recordStarted = false;
+        skipLf = b == CR;
+        state = State.FIELD_START;
+    }
+
+    private void validateField() {
+        if (columnFormats == null) {
+            header.add(new String(field, 0, fieldLength, UTF_8));
+        } else if (fieldLength > 0 && isCaptured()) {
+            final String value = new String(field, 0, fieldLength, UTF_8);
+            final ParsePosition position = new ParsePosition(0);
+            columnFormats[column].parseUnresolved(value, position);
+            if (position.getErrorIndex() >= 0 || position.getIndex() != value.length()) {
+                throw fail("value '" + value + "' doesn't match date format '"
+                        + datePatterns.get(header.get(column)) + "'");
+            }
+        }
+    }
+
+    private void validateHeader() {
+        if (!expectedColumns.isEmpty()) {
+            final Set<String> missing = new LinkedHashSet<>(expectedColumns);
+            missing.removeAll(header);
+            final Set<String> unexpected = new LinkedHashSet<>(header);
+            unexpected.removeAll(expectedColumns);
+            if (!missing.isEmpty() || !unexpected.isEmpty() || header.size() != expectedColumns.size()) {
+                throw fail("header " + header + " doesn't match manifest columns " + expectedColumns
+                        + ", missing " + missing + ", unexpected " + unexpected);
+            }
+        }
+        columnFormats = new DateTimeFormatter[header.size()];
+        for (int i = 0; i < header.size(); i++) {
+            columnFormats[i] = dateFormats.get(header.get(i));
+        }
+    }
+
+    private void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (state == State.QUOTED) {
+            throw fail("unterminated quoted value");
+        }
+        if (recordStarted || column > 0) {
+            endRecord(LF);
+        }
+        if (columnFormats == null) {
+            throw fail("missing header");
+        }
+    }
+
+    private DatasetValidationException fail(final String message) {
+        return new DatasetValidationException(message, dataset, row, column + 1);
+    }
+}
@@ -19,6 +19,8 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.gooddata.util.GoodDataToStringBuilder;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -126,6 +128,27 @@ public class DatasetManifest {
         this.source = notNull(source, "source");
     }
 
+    /**
+     * @return deep copy of this manifest, the source is shared
+     */
+    DatasetManifest copy() {
+        final List<Part> partsCopy;
+        if (parts == null) {
+            partsCopy = null;
+        } else {
+            partsCopy = new ArrayList<>(parts.size());
+            for (Part part : parts) {
+                partsCopy.add(new Part(part.getUploadMode(), part.getColumnName(),
+                        part.getPopulates() == null ? null : new ArrayList<>(part.getPopulates()),
+                        part.getReferenceKey(),
+                        part.getConstraints() == null ? null : new LinkedHashMap<>(part.getConstraints())));
+            }
+        }
+        final DatasetManifest copy = new DatasetManifest(dataSet, file, partsCopy);
+        copy.source = source;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return GoodDataToStringBuilder.defaultToString(this, "source");
@@ -31,6 +31,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 import static com.gooddata.util.Validate.notEmpty;
@@ -51,10 +54,16 @@ public class DatasetService extends AbstractService {
 
     private final DataStoreService dataStoreService;
 
+    private final long cacheTtl;
+    private final ConcurrentMap<String, ConcurrentMap<String, CacheEntry<DatasetManifest>>> manifestCache =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CacheEntry<UploadsInfo>> uploadsInfoCache = new ConcurrentHashMap<>();
+
     public DatasetService(final RestTemplate restTemplate, final DataStoreService dataStoreService,
                           final GoodDataSettings settings) {
         super(restTemplate, settings);
         this.dataStoreService = notNull(dataStoreService, "dataStoreService");
+        this.cacheTtl = settings.getDatasetCacheTtl();
     }
 
     /**
@@ -64,10 +73,28 @@ public class DatasetService extends AbstractService {
     public DatasetService(final RestTemplate restTemplate, final DataStoreService dataStoreService) {
         super(restTemplate);
         this.dataStoreService = notNull(dataStoreService, "dataStoreService");
+        this.cacheTtl = 0;
     }
 
     /**
-     * Obtains manifest from given project by given datasetId
+     * Drops cached dataset manifests and dataset uploads information of the given project.
+     * Should be called after the project model changes when caching is enabled
+     * by {@link GoodDataSettings#setDatasetCacheTtl(int)}. It's called automatically when the model is updated by
+     * {@link com.gooddata.model.ModelService#updateProjectModel(Project, java.util.Collection)} of the same
+     * {@link com.gooddata.GoodData} instance.
+     *
+     * @param project project to drop the cache for
+     */
+    public void invalidateCache(final Project project) {
+        notNull(project, "project");
+        notNull(project.getId(), "project.id");
+        manifestCache.remove(project.getId());
+        uploadsInfoCache.remove(project.getId());
+    }
+
+    /**
+     * Obtains manifest from given project by given datasetId.
+     * The manifest is cached when enabled by {@link GoodDataSettings#setDatasetCacheTtl(int)}.
      *
      * @param project   project to which manifest belongs
      * @param datasetId id of dataset
@@ -79,6 +106,27 @@ public class DatasetService extends AbstractService {
         notNull(project, "project");
         notNull(project.getId(), "project.id");
         notEmpty(datasetId, "datasetId");
+        if (cacheTtl <= 0) {
+            return fetchDatasetManifest(project, datasetId);
+        }
+        final ConcurrentMap<String, CacheEntry<DatasetManifest>> projectManifests =
+                manifestCache.computeIfAbsent(project.getId(), id -> new ConcurrentHashMap<>());
+        final CacheEntry<DatasetManifest> cached = projectManifests.get(datasetId);
+        if (cached != null) {
+            if (cached.isValid()) {
+                return cached.value.copy();
+            }
+            projectManifests.remove(datasetId, cached);
+        }
+        final DatasetManifest manifest = fetchDatasetManifest(project, datasetId);
+        if (manifest == null) {
+            return null;
+        }
+        projectManifests.put(datasetId, new CacheEntry<>(manifest, cacheTtl));
+        return manifest.copy();
+    }
+
+    private DatasetManifest fetchDatasetManifest(final Project project, final String datasetId) {
         try {
             return restTemplate.getForObject(DatasetManifest.URI, DatasetManifest.class, project.getId(), datasetId);
         } catch (GoodDataRestException e) {
@@ -148,10 +196,42 @@ public class DatasetService extends AbstractService {
      */
     public FutureResult<Void> loadDatasets(final Project project, final Collection<DatasetManifest> datasets) {
         notNull(project, "project");
+        final String dirPath = createStagingPath(project);
+        final List<String> datasetsNames = uploadDatasets(dirPath, datasets);
+        try {
+            return pullLoad(project, dirPath, datasetsNames);
+        } catch (GoodDataRestException | RestClientException e) {
+            throw new DatasetException("Unable to load", datasetsNames, e);
+        }
+    }
+
+    /**
+     * Creates random staging area path for the dataset upload.
+     * Package-private for use by the loaders built on top of this service.
+     */
+    String createStagingPath(final Project project) {
+        notNull(project.getId(), "project.id");
+        return createStagingPath(project.getId());
+    }
+
+    /**
+     * Creates random staging area path for the dataset upload, starting with the given prefix.
+     * Package-private for use by the loaders built on top of this service.
+     */
+    String createStagingPath(final String prefix) {
+        return "/" + prefix + "_" + RandomStringUtils.randomAlphabetic(3) + "/";
+    }
+
+    /**
+     * Uploads given datasets and their manifests to the given staging area path.
+     * Package-private for use by the loaders built on top of this service.
+     *
+     * @return names of the uploaded datasets
+     */
+    List<String> uploadDatasets(final String dirPath, final Collection<DatasetManifest> datasets) {
         validateUploadManifests(datasets);
         final List<String> datasetsNames = new ArrayList<>(datasets.size());
         try {
-            final String dirPath = "/" + project.getId() + "_" + RandomStringUtils.randomAlphabetic(3) + "/";
             for (DatasetManifest datasetManifest : datasets) {
                 datasetsNames.add(datasetManifest.getDataSet());
                 dataStoreService.upload(dirPath + datasetManifest.getFile(), datasetManifest.getSource());
@@ -160,8 +240,7 @@ public class DatasetService extends AbstractService {
             final String manifestJson = mapper.writeValueAsString(new DatasetManifests(datasets));
             final ByteArrayInputStream inputStream = new ByteArrayInputStream(manifestJson.getBytes(UTF_8));
             dataStoreService.upload(dirPath + MANIFEST_FILE_NAME, inputStream);
-
-            return pullLoad(project, dirPath, datasetsNames);
+            return datasetsNames;
         } catch (IOException e) {
             throw new DatasetException("Unable to serialize manifest", datasetsNames, e);
         } catch (DataStoreException | GoodDataRestException | RestClientException e) {
@@ -169,6 +248,18 @@ public class DatasetService extends AbstractService {
         }
     }
 
+    /**
+     * Deletes the given staging area path, failure is ignored.
+     * Package-private for use by the loaders built on top of this service.
+     */
+    void deleteStagingPath(final String dirPath) {
+        try {
+            dataStoreService.delete(dirPath);
+        } catch (DataStoreException | GoodDataRestException ignored) {
+            // failure to clean the staging area doesn't affect the load
+        }
+    }
+
     private void validateUploadManifests(final Collection<DatasetManifest> datasets) {
         notEmpty(datasets, "datasets");
         for (DatasetManifest datasetManifest : datasets) {
@@ -184,7 +275,22 @@ public class DatasetService extends AbstractService {
         }
     }
 
-    private FutureResult<Void> pullLoad(Project project, final String dirPath, final Collection<String> datasets) {
+    /**
+     * Triggers ETL pull of the datasets uploaded to the given staging area path, the path is deleted when finished.
+     * Package-private for use by the loaders built on top of this service.
+     */
+    FutureResult<Void> pullLoad(Project project, final String dirPath, final Collection<String> datasets) {
+        return pullLoad(project, dirPath, datasets, true);
+    }
+
+    /**
+     * Triggers ETL pull of the datasets uploaded to the given staging area path.
+     * Package-private for use by the loaders built on top of this service.
+     *
+     * @param deleteWhenFinished whether to delete the staging area path when the pull successfully finishes
+     */
+    FutureResult<Void> pullLoad(final Project project, final String dirPath, final Collection<String> datasets,
+                                final boolean deleteWhenFinished) {
         notNull(project.getId(), "project.id");
         final PullTask pullTask = restTemplate
                 .postForObject(Pull.URI, new Pull(dirPath), PullTask.class, project.getId());
@@ -192,6 +298,7 @@ public class DatasetService extends AbstractService {
         return new PollResult<>(this, new AbstractPollHandler<TaskStatus, Void>(pullTask.getPollUri(), TaskStatus.class, Void.class) {
             @Override
             public void handlePollResult(TaskStatus pollResult) {
+                uploadsInfoCache.remove(project.getId());
                 if (!pollResult.isSuccess()) {
                     final String message = isEmpty(pollResult.getMessages())
                             ? String.format(ETL_PULL_DEFAULT_ERROR_MESSAGE, pollResult.getStatus())
@@ -208,10 +315,8 @@ public class DatasetService extends AbstractService {
 
             @Override
             protected void onFinish() {
-                try {
-                    dataStoreService.delete(dirPath);
-                } catch (DataStoreException ignored) {
-                    // todo log?
+                if (deleteWhenFinished) {
+                    deleteStagingPath(dirPath);
                 }
             }
         });
@@ -394,6 +499,18 @@ public class DatasetService extends AbstractService {
         }
     }
 
+    /**
+     * Returns last uploads of all datasets in the given project, obtained by single API call.
+     * Uploads contain only the summary information, i.e. the upload mode, size and processing time are not available
+     * (use {@link #getLastUploadForDataset(Project, String)} to get them).
+     *
+     * @param project GoodData project
+     * @return map of dataset identifiers to their last upload, datasets without upload are not included
+     */
+    public Map<String, Upload> getLastUploads(Project project) {
+        return getUploadsInfo(project).getLastUploads();
+    }
+
     /**
      * Returns global upload statistics for the given project.
      *
@@ -417,9 +534,23 @@ public class DatasetService extends AbstractService {
      * Package-private for testing purposes.
      */
     UploadsInfo.DataSet getDataSetInfo(Project project, String datasetId) {
+        notEmpty(datasetId, "datasetId");
+        return getUploadsInfo(project).getDataSet(datasetId);
+    }
+
+    private UploadsInfo getUploadsInfo(final Project project) {
         notNull(project, "project");
         notNull(project.getId(), "project.id");
-        notEmpty(datasetId, "datasetId");
+
+        if (cacheTtl > 0) {
+            final CacheEntry<UploadsInfo> cached = uploadsInfoCache.get(project.getId());
+            if (cached != null) {
+                if (cached.isValid()) {
+                    return cached.value;
+                }
+                uploadsInfoCache.remove(project.getId(), cached);
+            }
+        }
 
         final URI uploadsInfoUri = UploadsInfo.URI_TEMPLATE.expand(project.getId());
         try {
@@ -427,10 +558,26 @@ public class DatasetService extends AbstractService {
             if (uploadsInfo == null) {
                 throw new GoodDataException("Empty response from '" + uploadsInfoUri.toString() + "'.");
             }
-
-            return uploadsInfo.getDataSet(datasetId);
+            if (cacheTtl > 0) {
+                uploadsInfoCache.put(project.getId(), new CacheEntry<>(uploadsInfo, cacheTtl));
+            }
+            return uploadsInfo;
         } catch (RestClientException e) {
             throw new GoodDataException("Unable to get '" + uploadsInfoUri.toString() + "'.", e);
         }
     }
+
+    private static class CacheEntry<T> {
+        private final T value;
+        private final long expiresAt;
+
+        private CacheEntry(final T value, final long ttl) {
+            this.value = value;
+            this.expiresAt = System.currentTimeMillis() + ttl;
+        }
+
+        private boolean isValid() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+    }
 }
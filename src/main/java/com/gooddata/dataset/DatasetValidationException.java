@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+/**
+ * Dataset CSV doesn't match its manifest, see {@link CsvValidatingInputStream}.
+ */
+public class DatasetValidationException extends DatasetException {
+
+    private final long row;
+    private final int column;
+
+    public DatasetValidationException(String message, String dataset, long row, int column) {
+        super("row " + row + ", column " + column + ": " + message, dataset);
+        this.row = row;
+        this.column = column;
+    }
+
+    /**
+     * @return 1-based number of the invalid row, header is row 1
+     */
+    public long getRow() {
+        return row;
+    }
+
+    /**
+     * @return 1-based number of the invalid column
+     */
+    public int getColumn() {
+        return column;
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import com.gooddata.project.Project;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Writes typed rows of a dataset as CSV directly into the dataset upload, without temporary files.
+ * <p>
+ * The columns are given by the parts of the {@link DatasetManifest} (in the order of the parts), the header is written
+ * automatically. Values of the current row are set by the column index and the row is written
+ * by {@link #endRow()}, columns not set are written as empty values. Rows are encoded into reusable buffers
+ * which are passed to the upload running in the background through a bounded pipe, so the writer blocks
+ * when the upload can't keep up and the memory used is constant.
+ * <p>
+ * The writer is not thread safe. Usage example:
+ * <pre><code>
+ *     try (DatasetWriter writer = new DatasetWriter(gd.getDatasetService(), project, manifest)) {
+ *         while (resultSet.next()) {
+ *             writer.setLong(0, resultSet.getLong(1));
+ *             writer.setString(1, resultSet.getString(2));
+ *             writer.endRow();
+ *         }
+ *         writer.finish().get();
+ *     }
+ * </code></pre>
+ */
+public class DatasetWriter implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_BUFFERS = 4;
+
+    private static final byte NOT_SET = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte STRING = 3;
+
+    private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes();
+
+    private static final int MAX_SCALE = 18;
+    private static final long[] LONG_POWERS_OF_TEN = new long[MAX_SCALE + 1];
+    private static final double[] DOUBLE_POWERS_OF_TEN = new double[MAX_SCALE + 1];
+    private static final double MAX_EXACT_LONG = 1L << 53;
+
+    static {
+        long power = 1;
+        for (int i = 0; i <= MAX_SCALE; i++) {
+            LONG_POWERS_OF_TEN[i] = power;
+            DOUBLE_POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+    }
+
+    private final String dataset;
+    private final BufferPipe pipe;
+    private final ExecutorService uploader;
+    private final Future<FutureResult<Void>> upload;
+
+    private final byte[] types;
+    private final long[] longs;
+    private final double[] doubles;
+    private final CharSequence[] strings;
+
+    private byte[] buffer;
+    private int position;
+    private long rows;
+    private boolean closed;
+
+    /**
+     * Creates writer with default buffering and starts the upload of the dataset.
+     *
+     * @param datasetService service used to load the dataset
+     * @param project        project to which dataset belongs
+     * @param manifest       dataset manifest, its parts determine the columns
+     */
+    public DatasetWriter(final DatasetService datasetService, final Project project, final DatasetManifest manifest) {
+        this(datasetService, project, manifest, DEFAULT_BUFFER_SIZE, DEFAULT_MAX_BUFFERS);
+    }
+
+    /**
+     * Creates writer and starts the upload of the dataset.
+     *
+     * @param datasetService service used to load the dataset
+     * @param project        project to which dataset belongs
+     * @param manifest       dataset manifest, its parts determine the columns
+     * @param bufferSize     size of a single buffer in bytes
+     * @param maxBuffers     maximal number of filled buffers waiting for the upload
+     */
+    public DatasetWriter(final DatasetService datasetService, final Project project, final DatasetManifest manifest,
+                         final int bufferSize, final int maxBuffers) {
+        notNull(datasetService, "datasetService");
+        notNull(project, "project");
+        notNull(manifest, "manifest");
+        final List<DatasetManifest.Part> parts = notNull(manifest.getParts(), "manifest.parts");
+        isTrue(!parts.isEmpty(), "manifest.parts must not be empty");
+        this.dataset = manifest.getDataSet();
+        this.pipe = new BufferPipe(bufferSize, maxBuffers);
+
+        final int columns = parts.size();
+        this.types = new byte[columns];
+        this.longs = new long[columns];
+        this.doubles = new double[columns];
+        this.strings = new CharSequence[columns];
+
+        this.buffer = pipe.obtainBuffer();
+        this.uploader = Executors.newSingleThreadExecutor();
+        this.upload = uploader.submit(() -> {
+            try {
+                return datasetService.loadDataset(project, manifest, pipe.getInputStream());
+            } catch (RuntimeException e) {
+                // unblock the writer, the upload may not have consumed the whole stream
+                pipe.abort("Upload of dataset " + dataset + " failed");
+                throw e;
+            }
+        });
+
+        for (int i = 0; i < columns; i++) {
+            setString(i, notNull(parts.get(i).getColumnName(), "manifest.parts.columnName"));
+        }
+        endRow();
+        rows = 0;
+    }
+
+    /**
+     * @return number of columns of the dataset
+     */
+    public int getColumnCount() {
+        return types.length;
+    }
+
+    /**
+     * @return number of data rows written so far
+     */
+    public long getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Sets the column of the current row to an empty value.
+     *
+     * @param column zero based column index
+     */
+    public void setNull(final int column) {
+        checkColumn(column);
+        types[column] = NOT_SET;
+        strings[column] = null;
+    }
+
+    public void setLong(final int column, final long value) {
+        checkColumn(column);
+        types[column] = LONG;
+        longs[column] = value;
+    }
+
+    public void setInt(final int column, final int value) {
+        setLong(column, value);
+    }
+
+    public void setDouble(final int column, final double value) {
+        checkColumn(column);
+        isTrue(!Double.isNaN(value) && !Double.isInfinite(value), "value must be finite");
+        types[column] = DOUBLE;
+        doubles[column] = value;
+    }
+
+    /**
+     * Sets the column of the current row to the given text, quoted when necessary.
+     * The value is read when the row is written, so it must not change before {@link #endRow()}.
+     *
+     * @param column zero based column index
+     * @param value  text or null for empty value
+     */
+    public void setString(final int column, final CharSequence value) {
+        checkColumn(column);
+        if (value == null) {
+            setNull(column);
+        } else {
+            types[column] = STRING;
+            strings[column] = value;
+        }
+    }
+
+    /**
+     * Writes the current row and clears all its values.
+     *
+     * @throws DatasetException when the upload failed
+     */
+    public void endRow() {
+        checkOpen();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                writeByte(',');
+            }
+            switch (types[i]) {
+                case LONG:
+                    writeLong(longs[i]);
+                    break;
+                case DOUBLE:
+                    writeDouble(doubles[i]);
+                    break;
+                case STRING:
+                    writeString(strings[i]);
+                    break;
+                default:
+                    break;
+            }
+        }
+        writeByte('\r');
+        writeByte('\n');
+        Arrays.fill(types, NOT_SET);
+        Arrays.fill(strings, null);
+        rows++;
+    }
+
+    /**
+     * Flushes the written rows, finishes the upload and triggers the ETL pull of the dataset.
+     *
+     * @return {@link FutureResult} of the ETL pull task
+     * @throws DatasetException when the upload failed
+     */
+    public FutureResult<Void> finish() {
+        checkOpen();
+        flush();
+        pipe.closeWriter();
+        closed = true;
+        try {
+            return upload.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GoodDataException) {
+                throw (GoodDataException) e.getCause();
+            }
+            throw new DatasetException("Unable to upload", dataset, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pipe.abort("Writer interrupted");
+            throw new DatasetException("Interrupted while uploading", dataset, e);
+        } finally {
+            uploader.shutdownNow();
+        }
+    }
+
+    /**
+     * Aborts the upload unless the writer was finished by {@link #finish()}.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            pipe.abort("Dataset writer closed before finished");
+            uploader.shutdownNow();
+        }
+    }
+
+    private void checkColumn(final int column) {
+        isTrue(column >= 0 && column < types.length, "column index out of range");
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Dataset writer is already finished or closed");
+        }
+    }
+
+    private void writeString(final CharSequence value) {
+        final int length = value.length();
+        boolean quote = false;
+        for (int i = 0; i < length && !quote; i++) {
+            final char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (quote) {
+            writeByte('"');
+        }
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"') {
+                    writeByte('"');
+                }
+                writeByte(c);
+            } else if (c < 0x800) {
+                writeByte(0xC0 | (c >> 6));
+                writeByte(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                writeByte(0xF0 | (codePoint >> 18));
+                writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+                writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+                writeByte(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                writeByte('?');
+            } else {
+                writeByte(0xE0 | (c >> 12));
+                writeByte(0x80 | ((c >> 6) & 0x3F));
+                writeByte(0x80 | (c & 0x3F));
+            }
+        }
+        if (quote) {
+            writeByte('"');
+        }
+    }
+
+    private void writeAscii(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            writeByte(value.charAt(i));
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            for (byte b : LONG_MIN_VALUE) {
+                writeByte(b);
+            }
+            return;
+        }
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            writeByte((int) ('0' + value / divisor % 10));
+            divisor /= 10;
+        }
+    }
+
+    /**
+     * Writes the double in plain notation (the loader doesn't accept scientific notation), using the fewest
+     * fraction digits which still read back as the same double.
+     */
+    private void writeDouble(final double value) {
+        for (int scale = 0; scale <= MAX_SCALE; scale++) {
+            final double scaled = value * DOUBLE_POWERS_OF_TEN[scale];
+            if (Math.abs(scaled) >= MAX_EXACT_LONG) {
+                break;
+            }
+            // both operands are exact, so the division is the double nearest to the decimal
+            final long unscaled = Math.round(scaled);
+            if (unscaled / DOUBLE_POWERS_OF_TEN[scale] == value) {
+                writeDecimal(unscaled, scale);
+                return;
+            }
+        }
+        // too many significant digits for the exact long arithmetic
+        writeAscii(BigDecimal.valueOf(value).toPlainString());
+    }
+
+    private void writeDecimal(long unscaled, final int scale) {
+        if (unscaled < 0) {
+            writeByte('-');
+            unscaled = -unscaled;
+        }
+        writeLong(unscaled / LONG_POWERS_OF_TEN[scale]);
+        if (scale > 0) {
+            writeByte('.');
+            final long fraction = unscaled % LONG_POWERS_OF_TEN[scale];
+            for (long divisor = LONG_POWERS_OF_TEN[scale - 1]; divisor > 0; divisor /= 10) {
+                writeByte((int) ('0' + fraction / divisor % 10));
+            }
+        }
+    }
+
+    private void writeByte(final int b) {
+        if (position == buffer.length) {
+            flush();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void flush() {
+        if (position == 0) {
+            return;
+        }
+        try {
+            pipe.write(buffer, position);
+        } catch (IOException e) {
+            closed = true;
+            uploader.shutdownNow();
+            throw new DatasetException("Unable to upload", dataset, uploadFailure(e));
+        }
+        buffer = pipe.obtainBuffer();
+        position = 0;
+    }
+
+    private Throwable uploadFailure(final IOException pipeFailure) {
+        // the reader closes the pipe when the upload fails, prefer the upload failure as the cause
+        if (upload.isDone()) {
+            try {
+                upload.get();
+            } catch (ExecutionException e) {
+                return e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return pipeFailure;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.project.Project;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.noNullElements;
+import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
+import static java.util.Arrays.asList;
+
+/**
+ * Loads the same datasets (i.e. shared reference data like currencies or calendars) into many projects.
+ * <p>
+ * The datasets are uploaded to the staging area only once and the uploaded data are used by ETL pulls
+ * of all the projects, at most {@code maxConcurrentLoads} pulls run at the same time. The staging area is cleaned
+ * after all the pulls finished (it's left in place when the loading is interrupted, as the pulls already started
+ * still read it). Failure of one project doesn't affect the others, the results are aggregated
+ * per project.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     FanOutDatasetLoader loader = new FanOutDatasetLoader(gd.getDatasetService(), 20);
+ *     FanOutLoadResult result = loader.load(projects, manifest);
+ * </code></pre>
+ */
+public class FanOutDatasetLoader {
+
+    private static final String STAGING_PREFIX = "fanout";
+
+    private final DatasetService datasetService;
+    private final int maxConcurrentLoads;
+
+    /**
+     * Creates new loader
+     * @param datasetService service used to upload and load the datasets
+     * @param maxConcurrentLoads maximal number of ETL pulls running at the same time
+     */
+    public FanOutDatasetLoader(final DatasetService datasetService, final int maxConcurrentLoads) {
+        this.datasetService = notNull(datasetService, "datasetService");
+        isTrue(maxConcurrentLoads > 0, "maxConcurrentLoads must be greater than zero");
+        this.maxConcurrentLoads = maxConcurrentLoads;
+    }
+
+    public FanOutLoadResult load(final Collection<Project> projects, final DatasetManifest... datasets) {
+        return load(projects, asList(datasets));
+    }
+
+    /**
+     * Uploads the datasets once and loads them into all the given projects. The call blocks until all the loads
+     * finished.
+     *
+     * @param projects projects to load the datasets into (all must have the datasets with the same manifests)
+     * @param datasets dataset manifests with the data set as their sources
+     * @return per project results
+     * @throws DatasetException when the upload fails (no project is loaded then) or the thread was interrupted
+     */
+    public FanOutLoadResult load(final Collection<Project> projects, final Collection<DatasetManifest> datasets) {
+        notEmpty(projects, "projects");
+        noNullElements(projects, "projects");
+        projects.forEach(project -> notNull(project.getId(), "project.id"));
+        notEmpty(datasets, "datasets");
+
+        final String dirPath = datasetService.createStagingPath(STAGING_PREFIX);
+        final List<String> datasetsNames;
+        try {
+            datasetsNames = datasetService.uploadDatasets(dirPath, datasets);
+        } catch (DatasetException e) {
+            datasetService.deleteStagingPath(dirPath);
+            throw e;
+        }
+
+        final Collection<String> loaded = new ConcurrentLinkedQueue<>();
+        final Map<String, GoodDataException> failed = new ConcurrentHashMap<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrentLoads, projects.size()));
+        try {
+            for (Project project : projects) {
+                executor.execute(() -> {
+                    try {
+                        datasetService.pullLoad(project, dirPath, datasetsNames, false).get();
+                        loaded.add(project.getId());
+                    } catch (GoodDataException e) {
+                        failed.put(project.getId(), e);
+                    } catch (RuntimeException e) {
+                        failed.put(project.getId(), new DatasetException("Unable to load", datasetsNames, e));
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            // the pulls already started keep running on the server and read the staging data
+            throw new DatasetException("Interrupted while loading, staging data left in " + dirPath,
+                    datasetsNames, e);
+        }
+        datasetService.deleteStagingPath(dirPath);
+        return new FanOutLoadResult(loaded, failed);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.util.GoodDataToStringBuilder;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static java.util.Collections.unmodifiableCollection;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Result of loading the same datasets into many projects by {@link FanOutDatasetLoader}.
+ */
+public class FanOutLoadResult {
+
+    private final Collection<String> loaded;
+    private final Map<String, GoodDataException> failed;
+
+    FanOutLoadResult(final Collection<String> loaded, final Map<String, GoodDataException> failed) {
+        this.loaded = unmodifiableCollection(loaded);
+        this.failed = unmodifiableMap(failed);
+    }
+
+    /**
+     * @return ids of the projects the datasets were successfully loaded into
+     */
+    public Collection<String> getLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return ids of the projects the load failed for, mapped to the failure
+     */
+    public Map<String, GoodDataException> getFailed() {
+        return failed;
+    }
+
+    public boolean isSuccess() {
+        return failed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return GoodDataToStringBuilder.defaultToString(this);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.FutureResult;
+import com.gooddata.project.Project;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Loads only the rows of a dataset which changed since the last load.
+ * <p>
+ * For every project and dataset keeps local {@link RowHashSnapshot} of the loaded rows (hash of the reference key
+ * columns mapped to hash of the whole row) in the snapshot directory. The next load filters the given CSV
+ * on the fly (while it's uploaded) and submits only the new and changed rows using {@link UploadMode#INCREMENTAL}.
+ * When nothing changed, the load is skipped completely. The snapshot is updated when the load finishes successfully.
+ * <p>
+ * Rows removed from the source are not removed from the dataset (incremental load can't express deletes).
+ * Loads of the same dataset must not run concurrently.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     IncrementalLoadPlanner planner = new IncrementalLoadPlanner(gd.getDatasetService(), Paths.get("snapshots"));
+ *     IncrementalLoadStatistics statistics = planner.loadDataset(project, manifest, csv).get();
+ * </code></pre>
+ */
+public class IncrementalLoadPlanner {
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private final DatasetService datasetService;
+    private final Path snapshotDirectory;
+
+    /**
+     * Creates new planner
+     * @param datasetService service used to load the datasets
+     * @param snapshotDirectory directory where the snapshots are stored
+     */
+    public IncrementalLoadPlanner(final DatasetService datasetService, final Path snapshotDirectory) {
+        this.datasetService = notNull(datasetService, "datasetService");
+        this.snapshotDirectory = notNull(snapshotDirectory, "snapshotDirectory");
+    }
+
+    /**
+     * Loads new and changed rows of the given dataset CSV. Manifest must contain at least one reference key part
+     * and its upload mode is set to {@link UploadMode#INCREMENTAL}.
+     *
+     * @param project  project to which dataset belongs
+     * @param manifest dataset manifest
+     * @param dataset  complete dataset CSV
+     * @return {@link com.gooddata.FutureResult} of the task, which can throw {@link DatasetException}
+     * in case the ETL pull task fails
+     * @throws DatasetException if there is a problem to read the snapshot, read the dataset or upload the changes
+     */
+    public FutureResult<IncrementalLoadStatistics> loadDataset(final Project project, final DatasetManifest manifest,
+                                                               final InputStream dataset) {
+        notNull(project, "project");
+        notNull(project.getId(), "project.id");
+        notNull(manifest, "manifest");
+        notNull(dataset, "dataset");
+
+        final Path snapshotFile = getSnapshotFile(project, manifest.getDataSet());
+        final RowHashSnapshot snapshot = readSnapshot(snapshotFile, manifest.getDataSet());
+        final RowDeltaInputStream delta = new RowDeltaInputStream(manifest, dataset, snapshot);
+        try {
+            if (!delta.hasChanges()) {
+                return new IncrementalLoadResult(null, delta, snapshot, snapshotFile);
+            }
+        } catch (IOException e) {
+            throw new DatasetException("Unable to read dataset", manifest.getDataSet(), e);
+        }
+        manifest.setUploadMode(UploadMode.INCREMENTAL);
+        final FutureResult<Void> load = datasetService.loadDataset(project, manifest, delta);
+        return new IncrementalLoadResult(load, delta, snapshot, snapshotFile);
+    }
+
+    /**
+     * Removes the snapshot of the given dataset, so the next load uploads all rows.
+     * Should be called when the dataset is loaded by other means (i.e. full load or data deletion).
+     *
+     * @param project  project to which dataset belongs
+     * @param datasetId dataset identifier
+     */
+    public void resetSnapshot(final Project project, final String datasetId) {
+        notNull(project, "project");
+        notNull(project.getId(), "project.id");
+        notNull(datasetId, "datasetId");
+        try {
+            Files.deleteIfExists(getSnapshotFile(project, datasetId));
+        } catch (IOException e) {
+            throw new DatasetException("Unable to delete snapshot", datasetId, e);
+        }
+    }
+
+    private Path getSnapshotFile(final Project project, final String datasetId) {
+        return snapshotDirectory.resolve(project.getId() + "_" + datasetId + SNAPSHOT_SUFFIX);
+    }
+
+    private static RowHashSnapshot readSnapshot(final Path snapshotFile, final String datasetId) {
+        if (!Files.exists(snapshotFile)) {
+            return new RowHashSnapshot();
+        }
+        try {
+            return RowHashSnapshot.read(snapshotFile);
+        } catch (IOException e) {
+            throw new DatasetException("Unable to read snapshot " + snapshotFile, datasetId, e);
+        }
+    }
+
+    /**
+     * Waits for the load and stores the updated snapshot when the load succeeds
+     */
+    private static class IncrementalLoadResult implements FutureResult<IncrementalLoadStatistics> {
+
+        private final FutureResult<Void> load;
+        private final RowDeltaInputStream delta;
+        private final RowHashSnapshot snapshot;
+        private final Path snapshotFile;
+        private boolean saved;
+
+        private IncrementalLoadResult(final FutureResult<Void> load, final RowDeltaInputStream delta,
+                                      final RowHashSnapshot snapshot, final Path snapshotFile) {
+            this.load = load;
+            this.delta = delta;
+            this.snapshot = snapshot;
+            this.snapshotFile = snapshotFile;
+        }
+
+        @Override
+        public boolean isDone() {
+            return load == null || load.isDone();
+        }
+
+        @Override
+        public IncrementalLoadStatistics get() {
+            if (load != null) {
+                load.get();
+            }
+            return finish();
+        }
+
+        @Override
+        public IncrementalLoadStatistics get(final long timeout, final TimeUnit unit) {
+            if (load != null) {
+                load.get(timeout, unit);
+            }
+            return finish();
+        }
+
+        @Override
+        public String getPollingUri() {
+            return load == null ? null : load.getPollingUri();
+        }
+
+        private synchronized IncrementalLoadStatistics finish() {
+            if (load != null && !saved) {
+                try {
+                    Files.createDirectories(snapshotFile.getParent());
+                    snapshot.write(snapshotFile);
+                } catch (IOException e) {
+                    throw new DatasetException("Unable to write snapshot " + snapshotFile, delta.getDataset(), e);
+                }
+                saved = true;
+            }
+            return new IncrementalLoadStatistics(delta.getRows(), delta.getChangedRows());
+        }
+    }
+}
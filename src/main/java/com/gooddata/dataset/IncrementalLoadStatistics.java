@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.util.GoodDataToStringBuilder;
+
+/**
+ * Statistics of the load done by {@link IncrementalLoadPlanner}.
+ */
+public class IncrementalLoadStatistics {
+
+    private final long rows;
+    private final long changedRows;
+
+    IncrementalLoadStatistics(final long rows, final long changedRows) {
+        this.rows = rows;
+        this.changedRows = changedRows;
+    }
+
+    /**
+     * @return number of data rows read from the source
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return number of new or changed rows which were uploaded
+     */
+    public long getChangedRows() {
+        return changedRows;
+    }
+
+    /**
+     * @return true if there was nothing to load and the load was skipped
+     */
+    public boolean isSkipped() {
+        return changedRows == 0;
+    }
+
+    @Override
+    public String toString() {
+        return GoodDataToStringBuilder.defaultToString(this);
+    }
+}
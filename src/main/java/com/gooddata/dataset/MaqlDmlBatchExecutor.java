@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import com.gooddata.project.Project;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Executes large number of MAQL DML statements (e.g. {@code DELETE FROM} statements) efficiently.
+ * <p>
+ * The statements are merged, in the given order, into scripts not longer than {@code maxScriptLength} characters
+ * (a statement longer than the limit forms a script on its own). The scripts are submitted by
+ * {@link DatasetService#updateProjectData(Project, String)}, at most {@code maxScriptsInFlight} of them are executed
+ * concurrently. Failure of a script is reported for all the statements it contains and doesn't stop the execution
+ * of the other scripts.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     MaqlDmlBatchExecutor executor = new MaqlDmlBatchExecutor(gd.getDatasetService(), 64 * 1024, 4);
+ *     MaqlDmlBatchResult result = executor.execute(project, deleteStatements);
+ * </code></pre>
+ */
+public class MaqlDmlBatchExecutor {
+
+    private static final String STATEMENT_SEPARATOR = "\n";
+
+    private final DatasetService datasetService;
+    private final int maxScriptLength;
+    private final int maxScriptsInFlight;
+
+    /**
+     * Creates new executor
+     * @param datasetService service used to execute the scripts
+     * @param maxScriptLength maximal length of the merged script in characters
+     * @param maxScriptsInFlight maximal number of scripts executed concurrently (at least 1)
+     */
+    public MaqlDmlBatchExecutor(final DatasetService datasetService, final int maxScriptLength,
+                                final int maxScriptsInFlight) {
+        this.datasetService = notNull(datasetService, "datasetService");
+        isTrue(maxScriptLength > 0, "maxScriptLength must be greater than zero");
+        isTrue(maxScriptsInFlight > 0, "maxScriptsInFlight must be greater than zero");
+        this.maxScriptLength = maxScriptLength;
+        this.maxScriptsInFlight = maxScriptsInFlight;
+    }
+
+    /**
+     * Executes the statements in the given project. Statements not terminated by semicolon are terminated
+     * automatically. The call blocks until all the scripts are finished.
+     *
+     * @param project    project to be updated
+     * @param statements MAQL DML statements
+     * @return result of the execution
+     */
+    public MaqlDmlBatchResult execute(final Project project, final List<String> statements) {
+        notNull(project, "project");
+        notNull(project.getId(), "project.id");
+        notNull(statements, "statements");
+
+        final long start = System.currentTimeMillis();
+        final List<Script> scripts = merge(statements);
+        final Map<Integer, GoodDataException> failed = new TreeMap<>();
+        final Deque<Script> inFlight = new ArrayDeque<>();
+
+        for (Script script : scripts) {
+            if (inFlight.size() >= maxScriptsInFlight) {
+                await(inFlight.poll(), failed);
+            }
+            try {
+                script.result = datasetService.updateProjectData(project, script.maql.toString());
+                inFlight.add(script);
+            } catch (GoodDataException | RestClientException e) {
+                fail(script, e, failed);
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            await(inFlight.poll(), failed);
+        }
+
+        return new MaqlDmlBatchResult(statements.size(), scripts.size(), failed,
+                System.currentTimeMillis() - start);
+    }
+
+    private List<Script> merge(final List<String> statements) {
+        final List<Script> scripts = new ArrayList<>();
+        Script current = null;
+        for (int i = 0; i < statements.size(); i++) {
+            final String statement = terminate(notEmpty(statements.get(i), "statement"));
+            if (current == null
+                    || current.maql.length() + STATEMENT_SEPARATOR.length() + statement.length() > maxScriptLength) {
+                current = new Script(i);
+                scripts.add(current);
+            } else {
+                current.maql.append(STATEMENT_SEPARATOR);
+            }
+            current.maql.append(statement);
+            current.statementCount++;
+        }
+        return scripts;
+    }
+
+    private static String terminate(final String statement) {
+        final String trimmed = statement.trim();
+        return trimmed.endsWith(";") ? trimmed : trimmed + ";";
+    }
+
+    private static void await(final Script script, final Map<Integer, GoodDataException> failed) {
+        try {
+            script.result.get();
+        } catch (GoodDataException | RestClientException e) {
+            fail(script, e, failed);
+        }
+    }
+
+    private static void fail(final Script script, final RuntimeException e, final Map<Integer, GoodDataException> failed) {
+        final GoodDataException failure = e instanceof GoodDataException ? (GoodDataException) e
+                : new GoodDataException("Unable to execute MAQL DML", e);
+        for (int i = script.firstStatement; i < script.firstStatement + script.statementCount; i++) {
+            failed.put(i, failure);
+        }
+    }
+
+    private static class Script {
+        private final int firstStatement;
+        private final StringBuilder maql = new StringBuilder();
+        private int statementCount;
+        private FutureResult<Void> result;
+
+        private Script(final int firstStatement) {
+            this.firstStatement = firstStatement;
+        }
+    }
+}
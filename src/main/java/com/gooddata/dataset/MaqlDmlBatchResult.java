@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.util.GoodDataToStringBuilder;
+
+import java.util.Map;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Result and throughput statistics of MAQL DML statements executed by {@link MaqlDmlBatchExecutor}.
+ */
+public class MaqlDmlBatchResult {
+
+    private final int statementCount;
+    private final int scriptCount;
+    private final Map<Integer, GoodDataException> failed;
+    private final long durationMillis;
+
+    MaqlDmlBatchResult(final int statementCount, final int scriptCount, final Map<Integer, GoodDataException> failed,
+                       final long durationMillis) {
+        this.statementCount = statementCount;
+        this.scriptCount = scriptCount;
+        this.failed = unmodifiableMap(failed);
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return number of the executed statements
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * @return number of the scripts the statements were merged into
+     */
+    public int getScriptCount() {
+        return scriptCount;
+    }
+
+    /**
+     * Returns the failed statements. Statements are reported as failed when the script containing them failed.
+     *
+     * @return indexes of the failed statements (in the order given to the executor) mapped to the failure
+     */
+    public Map<Integer, GoodDataException> getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return number of successfully executed statements
+     */
+    public int getSucceededCount() {
+        return statementCount - failed.size();
+    }
+
+    public boolean isSuccess() {
+        return failed.isEmpty();
+    }
+
+    /**
+     * @return wall clock duration of the whole execution in milliseconds
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return number of statements (including the failed ones) executed per second, 0 when the duration is zero
+     */
+    public double getStatementsPerSecond() {
+        return durationMillis > 0 ? statementCount * 1000.0 / durationMillis : 0;
+    }
+
+    @Override
+    public String toString() {
+        return GoodDataToStringBuilder.defaultToString(this);
+    }
+}
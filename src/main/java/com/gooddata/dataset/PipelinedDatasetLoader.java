@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.project.Project;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notNull;
+import static java.util.Collections.singletonList;
+
+/**
+ * Loads a sequence of dataset batches overlapping the upload of the next batches with the ETL pull
+ * of the current one.
+ * <p>
+ * Batches are uploaded to the staging area sequentially in the background, at most {@code maxBatchesInFlight}
+ * batches are uploaded (or being uploaded) and not yet loaded at any time. ETL pulls are triggered strictly
+ * in the batch order and the next one starts only after the previous one finished, so the order of incremental loads
+ * is preserved. When a batch fails, no further batches are loaded and the already uploaded ones are removed
+ * from the staging area.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     PipelinedDatasetLoader loader = new PipelinedDatasetLoader(gd.getDatasetService(), 3);
+ *     List&lt;BatchLoadResult&gt; results = loader.load(project, batches);
+ * </code></pre>
+ */
+public class PipelinedDatasetLoader {
+
+    private final DatasetService datasetService;
+    private final int maxBatchesInFlight;
+
+    /**
+     * Creates new loader
+     * @param datasetService service used to upload and load the batches
+     * @param maxBatchesInFlight maximal number of batches uploaded and not yet loaded (at least 1)
+     */
+    public PipelinedDatasetLoader(final DatasetService datasetService, final int maxBatchesInFlight) {
+        this.datasetService = notNull(datasetService, "datasetService");
+        isTrue(maxBatchesInFlight > 0, "maxBatchesInFlight must be greater than zero");
+        this.maxBatchesInFlight = maxBatchesInFlight;
+    }
+
+    /**
+     * Loads the batches in the given order. Each batch is a dataset manifest with the batch data set
+     * as its source (see {@link DatasetManifest#setSource(java.io.InputStream)}). The batches are obtained
+     * from the iterator lazily, no more than {@code maxBatchesInFlight} ahead of the batch being loaded.
+     * <p>
+     * The call blocks until all the batches are loaded or some batch fails.
+     *
+     * @param project project to which datasets belong
+     * @param batches batches to load
+     * @return results of the batches taken from the iterator, in the batch order
+     */
+    public List<BatchLoadResult> load(final Project project, final Iterator<DatasetManifest> batches) {
+        notNull(project, "project");
+        notNull(project.getId(), "project.id");
+        notNull(batches, "batches");
+
+        final List<BatchLoadResult> results = new ArrayList<>();
+        final Deque<StagedBatch> staged = new ArrayDeque<>();
+        final ExecutorService uploader = Executors.newSingleThreadExecutor();
+        int index = 0;
+        boolean failed = false;
+        try {
+            while (true) {
+                while (!failed && staged.size() < maxBatchesInFlight && batches.hasNext()) {
+                    final DatasetManifest batch = notNull(batches.next(), "batch");
+                    final String dirPath = datasetService.createStagingPath(project);
+                    staged.add(new StagedBatch(index++, batch.getDataSet(), dirPath,
+                            uploader.submit(() -> datasetService.uploadDatasets(dirPath, singletonList(batch)))));
+                }
+                final StagedBatch batch = staged.poll();
+                if (batch == null) {
+                    break;
+                }
+                if (failed) {
+                    results.add(skip(batch));
+                    continue;
+                }
+                try {
+                    final List<String> datasets = awaitUpload(batch);
+                    datasetService.pullLoad(project, batch.dirPath, datasets).get();
+                    results.add(new BatchLoadResult(batch.index, batch.dataset, BatchLoadResult.Status.LOADED, null));
+                } catch (GoodDataException | RestClientException e) {
+                    failed = true;
+                    datasetService.deleteStagingPath(batch.dirPath);
+                    final GoodDataException failure = e instanceof GoodDataException ? (GoodDataException) e
+                            : new DatasetException("Unable to load", batch.dataset, e);
+                    results.add(new BatchLoadResult(batch.index, batch.dataset, BatchLoadResult.Status.FAILED, failure));
+                }
+            }
+        } finally {
+            uploader.shutdownNow();
+        }
+        return results;
+    }
+
+    private List<String> awaitUpload(final StagedBatch batch) {
+        try {
+            return batch.upload.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GoodDataException) {
+                throw (GoodDataException) e.getCause();
+            }
+            throw new DatasetException("Unable to upload", batch.dataset, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatasetException("Interrupted while uploading", batch.dataset, e);
+        }
+    }
+
+    private BatchLoadResult skip(final StagedBatch batch) {
+        // cancel the upload if not started yet, otherwise wait for it so the staging area can be cleaned
+        batch.upload.cancel(false);
+        try {
+            batch.upload.get();
+        } catch (Exception ignored) {
+            // the batch is skipped anyway
+        }
+        datasetService.deleteStagingPath(batch.dirPath);
+        return new BatchLoadResult(batch.index, batch.dataset, BatchLoadResult.Status.SKIPPED, null);
+    }
+
+    private static class StagedBatch {
+        private final int index;
+        private final String dataset;
+        private final String dirPath;
+        private final Future<List<String>> upload;
+
+        private StagedBatch(final int index, final String dataset, final String dirPath,
+                            final Future<List<String>> upload) {
+            this.index = index;
+            this.dataset = dataset;
+            this.dirPath = dirPath;
+            this.upload = upload;
+        }
+    }
+}
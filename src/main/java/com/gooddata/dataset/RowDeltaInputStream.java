@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Filters dataset CSV passing through only the header and rows which are new or changed compared
+ * to the given {@link RowHashSnapshot}. The snapshot is updated with the hashes of the passed rows.
+ * Rows are identified by the reference key columns of the manifest.
+ */
+class RowDeltaInputStream extends InputStream {
+
+    private static final long ROW_SEED = 0xcbf29ce484222325L;
+    private static final long KEY_SEED = 0x9e3779b97f4a7c15L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final byte FIELD_SEPARATOR = 0x1f;
+
+    private final InputStream source;
+    private final String dataset;
+    private final Set<String> keyColumnNames = new HashSet<>();
+    private final RowHashSnapshot snapshot;
+
+    private final byte[] input = new byte[64 * 1024];
+    private int inputPosition;
+    private int inputLimit;
+
+    private byte[] header;
+    private int headerPosition;
+    private boolean[] keyColumns;
+
+    private byte[] record = new byte[1024];
+    private int recordLength;
+    private int recordPosition;
+    private int contentLength;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+
+    private long rows;
+    private long changedRows;
+
+    RowDeltaInputStream(final DatasetManifest manifest, final InputStream source, final RowHashSnapshot snapshot) {
+        notNull(manifest, "manifest");
+        this.source = notNull(source, "source");
+        this.snapshot = notNull(snapshot, "snapshot");
+        this.dataset = manifest.getDataSet();
+        if (manifest.getParts() != null) {
+            for (DatasetManifest.Part part : manifest.getParts()) {
+                if (part.isReferenceKey() && part.getColumnName() != null) {
+                    keyColumnNames.add(part.getColumnName());
+                }
+            }
+        }
+        if (keyColumnNames.isEmpty()) {
+            throw new IllegalArgumentException("Manifest of dataset " + dataset + " has no reference key part");
+        }
+    }
+
+    /**
+     * Reads the source until the first new or changed row.
+     * @return true if there is at least one row to be passed through
+     */
+    boolean hasChanges() throws IOException {
+        readHeader();
+        return recordPosition < recordLength || nextChangedRecord();
+    }
+
+    String getDataset() {
+        return dataset;
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    long getChangedRows() {
+        return changedRows;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        if (headerPosition < header.length) {
+            return header[headerPosition++] & 0xff;
+        }
+        return record[recordPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        final int read;
+        if (headerPosition < header.length) {
+            read = Math.min(len, header.length - headerPosition);
+            System.arraycopy(header, headerPosition, b, off, read);
+            headerPosition += read;
+        } else {
+            read = Math.min(len, recordLength - recordPosition);
+            System.arraycopy(record, recordPosition, b, off, read);
+            recordPosition += read;
+        }
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private boolean ensureData() throws IOException {
+        readHeader();
+        return headerPosition < header.length || recordPosition < recordLength || nextChangedRecord();
+    }
+
+    private void readHeader() throws IOException {
+        if (header != null) {
+            return;
+        }
+        if (!readRecord()) {
+            throw new DatasetException("Missing CSV header", dataset);
+        }
+        header = Arrays.copyOf(record, recordLength);
+        keyColumns = new boolean[fieldCount];
+        boolean found = false;
+        for (int i = 0; i < fieldCount; i++) {
+            keyColumns[i] = keyColumnNames.contains(unquote(fieldStarts[i], fieldEnds[i]));
+            found |= keyColumns[i];
+        }
+        if (!found) {
+            throw new DatasetException("CSV header doesn't contain any of reference key columns " + keyColumnNames,
+                    dataset);
+        }
+        recordLength = 0;
+        recordPosition = 0;
+    }
+
+    private boolean nextChangedRecord() throws IOException {
+        while (readRecord()) {
+            if (contentLength == 0) {
+                continue;
+            }
+            rows++;
+            long keyHash = KEY_SEED;
+            for (int i = 0; i < fieldCount && i < keyColumns.length; i++) {
+                if (keyColumns[i]) {
+                    keyHash = hash(keyHash, fieldStarts[i], fieldEnds[i]);
+                    keyHash = (keyHash ^ FIELD_SEPARATOR) * FNV_PRIME;
+                }
+            }
+            if (snapshot.put(mix(keyHash), mix(hash(ROW_SEED, 0, contentLength)))) {
+                changedRows++;
+                return true;
+            }
+        }
+        recordLength = 0;
+        recordPosition = 0;
+        return false;
+    }
+
+    /**
+     * Reads next CSV record (including line terminator) into the record buffer
+     */
+    private boolean readRecord() throws IOException {
+        recordLength = 0;
+        recordPosition = 0;
+        fieldCount = 0;
+        int fieldStart = 0;
+        boolean quoted = false;
+        int b;
+        while ((b = nextByte()) >= 0) {
+            append((byte) b);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (!quoted && b == ',') {
+                addField(fieldStart, recordLength - 1);
+                fieldStart = recordLength;
+            } else if (!quoted && b == '\n') {
+                int end = recordLength - 1;
+                if (end > fieldStart && record[end - 1] == '\r') {
+                    end--;
+                }
+                addField(fieldStart, end);
+                contentLength = end;
+                return true;
+            }
+        }
+        if (recordLength == 0) {
+            return false;
+        }
+        addField(fieldStart, recordLength);
+        contentLength = recordLength;
+        return true;
+    }
+
+    private int nextByte() throws IOException {
+        if (inputPosition == inputLimit) {
+            inputLimit = source.read(input, 0, input.length);
+            inputPosition = 0;
+            if (inputLimit <= 0) {
+                inputLimit = 0;
+                return -1;
+            }
+        }
+        return input[inputPosition++] & 0xff;
+    }
+
+    private void append(final byte b) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[recordLength++] = b;
+    }
+
+    private void addField(final int start, final int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private String unquote(final int start, final int end) {
+        final String value = new String(record, start, end - start, UTF_8);
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1).replace("\"\"", "\"");
+        }
+        return value;
+    }
+
+    /**
+     * FNV-1a
+     */
+    private long hash(final long seed, final int from, final int to) {
+        long hash = seed;
+        for (int i = from; i < to; i++) {
+            hash ^= record[i] & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Murmur3 finalizer to spread the bits of FNV hash
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Snapshot of the dataset rows loaded to the platform, maps hash of the row key to hash of the whole row.
+ * Used by {@link IncrementalLoadPlanner} to find rows changed since the last load.
+ * <p>
+ * Implemented as open addressing hash map of primitive longs (16 bytes per row), zero hash is reserved as empty slot
+ * marker and is remapped. Not thread safe.
+ */
+public class RowHashSnapshot {
+
+    private static final int MAGIC = 0x47445253; // GDRS
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int IO_BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Creates empty snapshot
+     */
+    public RowHashSnapshot() {
+        this(1024);
+    }
+
+    /**
+     * Creates empty snapshot sized for the expected number of rows
+     * @param expectedRows expected number of rows
+     */
+    public RowHashSnapshot(final int expectedRows) {
+        int capacity = 16;
+        while (capacity < MAX_CAPACITY && capacity * 3L / 4 < expectedRows) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Returns row hash stored for the given key hash
+     * @param keyHash hash of the row key
+     * @return row hash or 0 when there is no row with the given key
+     */
+    public long get(final long keyHash) {
+        final long key = nonZero(keyHash);
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            } else if (keys[i] == 0) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Stores row hash for the given key hash
+     * @param keyHash hash of the row key
+     * @param rowHash hash of the row
+     * @return true if the row was added or its hash changed
+     */
+    public boolean put(final long keyHash, final long rowHash) {
+        final long key = nonZero(keyHash);
+        final long value = nonZero(rowHash);
+        int i = index(key);
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                final boolean changed = values[i] != value;
+                values[i] = value;
+                return changed;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * 3L / 4) {
+            resize();
+        }
+        return true;
+    }
+
+    /**
+     * @return number of rows in the snapshot
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reads snapshot from the given file
+     * @param file file written by {@link #write(Path)}
+     * @return snapshot
+     * @throws IOException when the file can't be read or is not a snapshot
+     */
+    public static RowHashSnapshot read(final Path file) throws IOException {
+        notNull(file, "file");
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+            buffer.flip();
+            fill(channel, buffer, HEADER_SIZE);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("File " + file + " is not a row hash snapshot");
+            }
+            final long rows = buffer.getLong();
+            final RowHashSnapshot snapshot = new RowHashSnapshot((int) Math.min(rows, MAX_CAPACITY));
+            for (long i = 0; i < rows; i++) {
+                if (buffer.remaining() < 16) {
+                    fill(channel, buffer, 16);
+                }
+                snapshot.put(buffer.getLong(), buffer.getLong());
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Writes the snapshot to the given file. The file is replaced atomically (when supported by the filesystem).
+     * @param file target file
+     * @throws IOException when the file can't be written
+     */
+    public void write(final Path file) throws IOException {
+        notNull(file, "file");
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(size);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    if (buffer.remaining() < 16) {
+                        drain(channel, buffer);
+                    }
+                    buffer.putLong(keys[i]).putLong(values[i]);
+                }
+            }
+            drain(channel, buffer);
+            channel.force(false);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer holds at least the given number of bytes, buffer is left flipped
+     */
+    private static void fill(final FileChannel channel, final ByteBuffer buffer, final int required) throws IOException {
+        // buffer is in read mode, switch it to write mode keeping the unread bytes
+        buffer.compact();
+        while (buffer.position() < required) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of snapshot file");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void drain(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void resize() {
+        final long[] oldKeys = keys;
+        final long[] oldValues = values;
+        if (oldKeys.length >= MAX_CAPACITY) {
+            throw new IllegalStateException("Row hash snapshot is full");
+        }
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int j = index(oldKeys[i]);
+                while (keys[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private int index(final long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private static long nonZero(final long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+}
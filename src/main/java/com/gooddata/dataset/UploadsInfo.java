@@ -11,8 +11,11 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.gooddata.md.Meta;
+import com.gooddata.util.GDDateTimeDeserializer;
 import com.gooddata.util.GoodDataToStringBuilder;
+import org.joda.time.DateTime;
 import org.springframework.web.util.UriTemplate;
 
 import java.util.Collection;
@@ -60,6 +63,22 @@ class UploadsInfo {
         }
     }
 
+    /**
+     * Returns last uploads of all datasets, datasets without any upload are omitted.
+     *
+     * @return map of dataset identifiers to their last {@link Upload}
+     */
+    Map<String, Upload> getLastUploads() {
+        final Map<String, Upload> lastUploads = new HashMap<>();
+        for (DataSet dataSet : datasets.values()) {
+            final Upload lastUpload = dataSet.getLastUpload();
+            if (lastUpload != null) {
+                lastUploads.put(dataSet.getDatasetId(), lastUpload);
+            }
+        }
+        return lastUploads;
+    }
+
     @Override
     public String toString() {
         return GoodDataToStringBuilder.defaultToString(this);
@@ -106,10 +125,24 @@ class UploadsInfo {
         }
 
         /**
-         * @return {@link Upload} uri of the last upload
+         * @return {@link Upload} uri of the last upload or null when there is no upload
          */
         String getLastUploadUri() {
-            return lastUpload.uri;
+            return lastUpload != null ? lastUpload.uri : null;
+        }
+
+        /**
+         * Returns the last upload summary. Upload mode, size and processing time are not part of the summary
+         * and are null.
+         *
+         * @return the last {@link Upload} or null when there is no upload
+         */
+        Upload getLastUpload() {
+            if (lastUpload == null) {
+                return null;
+            }
+            return new Upload(lastUpload.message, lastUpload.progress, lastUpload.status, null, lastUpload.uri,
+                    lastUpload.date, null, null);
         }
 
         @Override
@@ -128,9 +161,21 @@ class UploadsInfo {
     private static class LastUpload {
 
         private final String uri;
-
-        private LastUpload(@JsonProperty("uri") String uri) {
+        private final String status;
+        private final Double progress;
+        private final String message;
+        private final DateTime date;
+
+        private LastUpload(@JsonProperty("uri") String uri,
+                           @JsonProperty("status") String status,
+                           @JsonProperty("progress") Double progress,
+                           @JsonProperty("msg") String message,
+                           @JsonProperty("date") @JsonDeserialize(using = GDDateTimeDeserializer.class) DateTime date) {
             this.uri = uri;
+            this.status = status;
+            this.progress = progress;
+            this.message = message;
+            this.date = date;
         }
 
         @Override
@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gooddata.executeafm.afm.Afm;
+import com.gooddata.executeafm.afm.AttributeFilter;
+import com.gooddata.executeafm.afm.AttributeItem;
+import com.gooddata.executeafm.afm.CompatibilityFilter;
+import com.gooddata.executeafm.afm.FilterItem;
+import com.gooddata.executeafm.afm.MeasureDefinition;
+import com.gooddata.executeafm.afm.MeasureItem;
+import com.gooddata.executeafm.afm.NegativeAttributeFilter;
+import com.gooddata.executeafm.afm.PositiveAttributeFilter;
+import com.gooddata.executeafm.afm.SimpleMeasureDefinition;
+import com.gooddata.md.MetadataService;
+import com.gooddata.project.Project;
+import com.gooddata.util.Sha256;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Rewrites {@link Execution} into the canonical form, so the executions differing only in the way they are written
+ * are equal:
+ * <ul>
+ *     <li>{@link IdentifierObjQualifier}s are resolved to {@link UriObjQualifier}s, by single
+ *     {@link MetadataService#identifiersToUris(Project, Collection)} call for all the identifiers of the execution
+ *     which weren't resolved before,</li>
+ *     <li>attribute filters of the same display form are merged into single filter (positive filters are intersected,
+ *     negative filters are united and subtracted from the positive ones), negative filters without elements
+ *     and duplicate filters are dropped,</li>
+ *     <li>filters and their elements are sorted.</li>
+ * </ul>
+ * The order of attributes and measures is kept, as it determines the layout of the execution result.
+ * <p>
+ * The {@link #fingerprint(Execution)} of the normalized execution identifies it stably across JVMs, e.g. to key
+ * caches of execution results.
+ */
+public class AfmNormalizer {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String FILTERS = "filters";
+    private static final int FINGERPRINT_BYTES = 16;
+
+    private final MetadataService metadataService;
+    private final ConcurrentMap<String, String> resolvedUris = new ConcurrentHashMap<>();
+
+    /**
+     * Creates new normalizer
+     * @param metadataService service used to resolve identifiers
+     */
+    public AfmNormalizer(final MetadataService metadataService) {
+        this.metadataService = notNull(metadataService, "metadataService");
+    }
+
+    /**
+     * Rewrites the given execution into the canonical form. The given execution is not modified.
+     *
+     * @param project project of the execution
+     * @param execution execution
+     * @return normalized execution
+     * @throws ExecuteAfmException when some of the identifiers can't be resolved
+     */
+    public Execution normalize(final Project project, final Execution execution) {
+        notNull(project, "project");
+        notNull(project.getId(), "project.id");
+        notNull(execution, "execution");
+        notNull(execution.getAfm(), "execution.afm");
+
+        final Afm afm = execution.getAfm();
+        final Map<String, String> uris = resolveIdentifiers(project, afm);
+
+        final Afm normalized = new Afm(
+                afm.getAttributes() == null ? null : afm.getAttributes().stream()
+                        .map(attribute -> new AttributeItem(resolve(attribute.getDisplayForm(), uris),
+                                attribute.getLocalIdentifier(), attribute.getAlias()))
+                        .collect(toList()),
+                afm.getFilters() == null ? null : normalizeFilters(afm.getFilters(), uris),
+                afm.getMeasures() == null ? null : afm.getMeasures().stream()
+                        .map(measure -> new MeasureItem(normalize(measure.getDefinition(), uris),
+                                measure.getLocalIdentifier(), measure.getAlias(), measure.getFormat()))
+                        .collect(toList()),
+                afm.getNativeTotals() == null ? null : new ArrayList<>(afm.getNativeTotals()));
+        return new Execution(normalized, execution.getResultSpec());
+    }
+
+    /**
+     * Drops the identifiers resolved so far.
+     */
+    public void clearCache() {
+        resolvedUris.clear();
+    }
+
+    /**
+     * Computes 128 bit fingerprint of the given execution, as the hex encoded beginning of SHA-256 hash of its
+     * canonical JSON form, where the object properties are sorted by name and the filters are sorted too.
+     * The execution should be {@link #normalize(Project, Execution) normalized} before, otherwise the executions
+     * referencing the same objects by identifier and by uri have different fingerprints.
+     *
+     * @param execution execution
+     * @return fingerprint of 32 hexadecimal characters
+     */
+    public static String fingerprint(final Execution execution) {
+        notNull(execution, "execution");
+        final byte[] hash = Sha256.newDigest().digest(canonicalJson(execution).getBytes(UTF_8));
+        return Sha256.toHex(hash, FINGERPRINT_BYTES);
+    }
+
+    static String canonicalJson(final Object value) {
+        final StringBuilder canonical = new StringBuilder();
+        writeCanonical(MAPPER.valueToTree(value), canonical, false);
+        return canonical.toString();
+    }
+
+    private Map<String, String> resolveIdentifiers(final Project project, final Afm afm) {
+        final Set<String> identifiers = new LinkedHashSet<>();
+        if (afm.getAttributes() != null) {
+            afm.getAttributes().forEach(attribute -> collect(attribute.getDisplayForm(), identifiers));
+        }
+        if (afm.getFilters() != null) {
+            afm.getFilters().forEach(filter -> collect(filter, identifiers));
+        }
+        if (afm.getMeasures() != null) {
+            for (MeasureItem measure : afm.getMeasures()) {
+                final MeasureDefinition definition = measure.getDefinition();
+                if (definition != null) {
+                    collect(definition.getObjQualifier(), identifiers);
+                    if (definition instanceof SimpleMeasureDefinition
+                            && ((SimpleMeasureDefinition) definition).hasFilters()) {
+                        ((SimpleMeasureDefinition) definition).getFilters().forEach(f -> collect(f, identifiers));
+                    }
+                }
+            }
+        }
+
+        final String prefix = project.getId() + ':';
+        final Map<String, String> uris = new LinkedHashMap<>();
+        final List<String> unresolved = new ArrayList<>();
+        for (String identifier : identifiers) {
+            final String uri = resolvedUris.get(prefix + identifier);
+            if (uri != null) {
+                uris.put(identifier, uri);
+            } else {
+                unresolved.add(identifier);
+            }
+        }
+        if (!unresolved.isEmpty()) {
+            final Map<String, String> resolved = metadataService.identifiersToUris(project, unresolved);
+            final List<String> missing = new ArrayList<>();
+            for (String identifier : unresolved) {
+                final String uri = resolved.get(identifier);
+                if (uri == null) {
+                    missing.add(identifier);
+                } else {
+                    uris.put(identifier, uri);
+                    resolvedUris.put(prefix + identifier, uri);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new ExecuteAfmException("Unable to resolve identifiers " + missing + " in project "
+                        + project.getId());
+            }
+        }
+        return uris;
+    }
+
+    private static void collect(final CompatibilityFilter filter, final Set<String> identifiers) {
+        if (filter instanceof FilterItem) {
+            collect(((FilterItem) filter).getObjQualifier(), identifiers);
+        }
+    }
+
+    private static void collect(final ObjQualifier qualifier, final Set<String> identifiers) {
+        if (qualifier instanceof IdentifierObjQualifier) {
+            identifiers.add(((IdentifierObjQualifier) qualifier).getIdentifier());
+        }
+    }
+
+    private static ObjQualifier resolve(final ObjQualifier qualifier, final Map<String, String> uris) {
+        if (qualifier instanceof IdentifierObjQualifier) {
+            return new UriObjQualifier(uris.get(((IdentifierObjQualifier) qualifier).getIdentifier()));
+        }
+        return qualifier;
+    }
+
+    private static MeasureDefinition normalize(final MeasureDefinition definition, final Map<String, String> uris) {
+        if (definition instanceof SimpleMeasureDefinition) {
+            final SimpleMeasureDefinition simple = (SimpleMeasureDefinition) definition;
+            return new SimpleMeasureDefinition(resolve(simple.getItem(), uris), simple.getAggregation(),
+                    simple.getComputeRatio(), simple.getFilters() == null ? null
+                    : normalizeFilters(simple.getFilters(), uris).stream()
+                            .map(FilterItem.class::cast)
+                            .collect(toList()));
+        }
+        if (definition != null && definition.getObjQualifier() instanceof IdentifierObjQualifier) {
+            return definition.withObjUriQualifier((UriObjQualifier) resolve(definition.getObjQualifier(), uris));
+        }
+        return definition;
+    }
+
+    private static List<CompatibilityFilter> normalizeFilters(final List<? extends CompatibilityFilter> filters,
+                                                              final Map<String, String> uris) {
+        final Map<String, List<AttributeFilter>> attributeFilters = new LinkedHashMap<>();
+        final Map<String, CompatibilityFilter> normalized = new TreeMap<>();
+        for (CompatibilityFilter filter : filters) {
+            if (filter == null) {
+                continue;
+            }
+            CompatibilityFilter resolved = filter;
+            if (filter instanceof FilterItem && ((FilterItem) filter).getObjQualifier() instanceof IdentifierObjQualifier) {
+                final FilterItem item = (FilterItem) filter;
+                resolved = item.withObjUriQualifier((UriObjQualifier) resolve(item.getObjQualifier(), uris));
+            }
+            if (resolved instanceof PositiveAttributeFilter || resolved instanceof NegativeAttributeFilter) {
+                final AttributeFilter attributeFilter = (AttributeFilter) resolved;
+                attributeFilters.computeIfAbsent(canonicalJson(attributeFilter.getDisplayForm()), k -> new ArrayList<>())
+                        .add(attributeFilter);
+            } else {
+                normalized.put(canonicalJson(resolved), resolved);
+            }
+        }
+        for (List<AttributeFilter> sameDisplayForm : attributeFilters.values()) {
+            for (AttributeFilter merged : merge(sameDisplayForm)) {
+                normalized.put(canonicalJson(merged), merged);
+            }
+        }
+        return new ArrayList<>(normalized.values());
+    }
+
+    /**
+     * Merges the attribute filters of the same display form, all the filters must be satisfied. The positive filters
+     * with empty {@code in} don't filter anything, so they're ignored. When no element satisfies all the filters,
+     * the filters are kept unmerged, as the merged positive filter with empty {@code in} wouldn't filter anything.
+     * @return merged filters, empty when the filters don't filter anything
+     */
+    private static List<AttributeFilter> merge(final List<AttributeFilter> filters) {
+        Set<String> in = null;
+        final Set<String> notIn = new TreeSet<>();
+        for (AttributeFilter filter : filters) {
+            if (filter instanceof PositiveAttributeFilter) {
+                final List<String> elements = elements(((PositiveAttributeFilter) filter).getIn());
+                if (elements.isEmpty()) {
+                    continue;
+                }
+                if (in == null) {
+                    in = new TreeSet<>(elements);
+                } else {
+                    in.retainAll(elements);
+                }
+            } else {
+                notIn.addAll(elements(((NegativeAttributeFilter) filter).getNotIn()));
+            }
+        }
+        final ObjQualifier displayForm = filters.get(0).getDisplayForm();
+        if (in != null) {
+            in.removeAll(notIn);
+            if (in.isEmpty()) {
+                return filters;
+            }
+            return singletonList(new PositiveAttributeFilter(displayForm, new ArrayList<>(in)));
+        }
+        if (notIn.isEmpty()) {
+            return emptyList();
+        }
+        return singletonList(new NegativeAttributeFilter(displayForm, new ArrayList<>(notIn)));
+    }
+
+    private static List<String> elements(final List<String> elements) {
+        return elements == null ? emptyList() : elements;
+    }
+
+    private static void writeCanonical(final JsonNode node, final StringBuilder out, final boolean unordered) {
+        if (node.isObject()) {
+            final Map<String, JsonNode> fields = new TreeMap<>();
+            final Iterator<Map.Entry<String, JsonNode>> iterator = node.fields();
+            while (iterator.hasNext()) {
+                final Map.Entry<String, JsonNode> field = iterator.next();
+                fields.put(field.getKey(), field.getValue());
+            }
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<String, JsonNode> field : fields.entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append(quote(field.getKey())).append(':');
+                writeCanonical(field.getValue(), out, FILTERS.equals(field.getKey()));
+            }
+            out.append('}');
+        } else if (node.isArray()) {
+            final List<String> items = new ArrayList<>(node.size());
+            for (JsonNode item : node) {
+                final StringBuilder itemOut = new StringBuilder();
+                writeCanonical(item, itemOut, false);
+                items.add(itemOut.toString());
+            }
+            if (unordered) {
+                items.sort(null);
+            }
+            out.append('[').append(String.join(",", items)).append(']');
+        } else {
+            out.append(node.toString());
+        }
+    }
+
+    private static String quote(final String value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize " + value, e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm;
+
+import com.gooddata.GoodDataException;
+
+/**
+ * Exception during AFM execution or obtaining its result
+ */
+public class ExecuteAfmException extends GoodDataException {
+
+    public ExecuteAfmException(final String message) {
+        super(message);
+    }
+
+    public ExecuteAfmException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm;
+
+import com.gooddata.AbstractService;
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import com.gooddata.GoodDataRestException;
+import com.gooddata.GoodDataSettings;
+import com.gooddata.PollResult;
+import com.gooddata.SimplePollHandler;
+import com.gooddata.executeafm.response.ExecutionResponse;
+import com.gooddata.executeafm.result.ColumnarExecutionResult;
+import com.gooddata.executeafm.result.ExecutionResult;
+import com.gooddata.executeafm.result.Paging;
+import com.gooddata.project.Project;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
+import static java.util.stream.Collectors.joining;
+import static org.springframework.http.HttpMethod.GET;
+
+/**
+ * Service for executing AFM (Attribute, Filter, Measure) and obtaining the execution results.
+ */
+public class ExecuteAfmService extends AbstractService {
+
+    public static final String AFM_EXECUTION_URI = "/gdc/app/projects/{projectId}/executeAfm";
+    public static final UriTemplate AFM_EXECUTION_TEMPLATE = new UriTemplate(AFM_EXECUTION_URI);
+
+    static final String OFFSET_PARAM = "offset";
+    static final String LIMIT_PARAM = "limit";
+
+    /**
+     * Service for AFM execution
+     * @param restTemplate REST template
+     * @param settings settings
+     */
+    public ExecuteAfmService(final RestTemplate restTemplate, final GoodDataSettings settings) {
+        super(restTemplate, settings);
+    }
+
+    /**
+     * Executes the given AFM in the given project. The result of the execution is computed asynchronously
+     * and can be obtained by {@link #getResult(ExecutionResponse)} or {@link #getResultPages(ExecutionResponse, int...)}.
+     *
+     * @param project project of the execution
+     * @param execution execution
+     * @return response describing the result dimensions and referencing the result
+     * @throws ExecuteAfmException when the execution fails
+     */
+    public ExecutionResponse executeAfm(final Project project, final Execution execution) {
+        notNull(project, "project");
+        notNull(project.getId(), "project.id");
+        notNull(execution, "execution");
+
+        try {
+            final ExecutionResponse response = restTemplate.postForObject(AFM_EXECUTION_URI, execution,
+                    ExecutionResponse.class, project.getId());
+            if (response == null) {
+                throw new ExecuteAfmException("Empty response when executing AFM");
+            }
+            return response;
+        } catch (GoodDataRestException | RestClientException e) {
+            throw new ExecuteAfmException("Unable to execute AFM", e);
+        }
+    }
+
+    /**
+     * Gets the execution result, as paged by the server by default.
+     *
+     * @param response execution response
+     * @return {@link FutureResult} of the result, the result is null when the execution has no data
+     * @throws ExecuteAfmException when the result can't be obtained
+     */
+    public FutureResult<ExecutionResult> getResult(final ExecutionResponse response) {
+        notNull(response, "response");
+        return getResult(notEmpty(response.getExecutionResultUri(), "executionResultUri"), ExecutionResult.class);
+    }
+
+    /**
+     * Gets a page of the execution result.
+     *
+     * @param response execution response
+     * @param page the page to get, given by the offset and count (the page size) for each dimension of the result
+     * @return {@link FutureResult} of the result page, the result is null when the execution has no data
+     * @throws ExecuteAfmException when the result can't be obtained
+     */
+    public FutureResult<ExecutionResult> getResult(final ExecutionResponse response, final Paging page) {
+        notNull(response, "response");
+        notNull(page, "page");
+        return getResult(pageUri(response, page), ExecutionResult.class);
+    }
+
+    /**
+     * Gets the execution result in the memory efficient columnar representation, as paged by the server by default.
+     *
+     * @param response execution response
+     * @return {@link FutureResult} of the result, the result is null when the execution has no data
+     * @throws ExecuteAfmException when the result can't be obtained
+     * @see ColumnarExecutionResult
+     */
+    public FutureResult<ColumnarExecutionResult> getColumnarResult(final ExecutionResponse response) {
+        notNull(response, "response");
+        return getResult(notEmpty(response.getExecutionResultUri(), "executionResultUri"),
+                ColumnarExecutionResult.class);
+    }
+
+    /**
+     * Gets a page of the execution result in the memory efficient columnar representation.
+     *
+     * @param response execution response
+     * @param page the page to get, given by the offset and count (the page size) for each dimension of the result
+     * @return {@link FutureResult} of the result page, the result is null when the execution has no data
+     * @throws ExecuteAfmException when the result can't be obtained
+     * @see ColumnarExecutionResult
+     */
+    public FutureResult<ColumnarExecutionResult> getColumnarResult(final ExecutionResponse response,
+                                                                   final Paging page) {
+        notNull(response, "response");
+        notNull(page, "page");
+        return getResult(pageUri(response, page), ColumnarExecutionResult.class);
+    }
+
+    /**
+     * Gets all the pages of the execution result. The pages are obtained lazily, while the caller processes
+     * a page, the next one is fetched in the background. Pages are iterated in the row-major order, i.e. the last
+     * dimension changes the fastest.
+     * <p>
+     * The returned iterator should be closed when not iterated to the end.
+     *
+     * @param response execution response
+     * @param pageSize page size for each dimension of the result, single value is used for all the dimensions
+     * @return iterator over the result pages
+     */
+    public ExecutionResultIterator getResultPages(final ExecutionResponse response, final int... pageSize) {
+        notNull(response, "response");
+        notNull(response.getDimensions(), "response.dimensions");
+        notNull(pageSize, "pageSize");
+        final int dimensions = Math.max(response.getDimensions().size(), 1);
+        isTrue(pageSize.length == 1 || pageSize.length == dimensions,
+                "pageSize must be given for all " + dimensions + " dimensions or by single value");
+
+        final int[] size = new int[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            size[i] = pageSize.length == 1 ? pageSize[0] : pageSize[i];
+            isTrue(size[i] > 0, "pageSize must be greater than zero");
+        }
+        return new ExecutionResultIterator(this, response, size);
+    }
+
+    /**
+     * Reads the execution result (page) by the given extractor, waiting while the result is being computed.
+     * The extractor gets the response body as the stream, so the result is not materialized.
+     *
+     * @param uri execution result uri
+     * @param extractor extractor called with the finished result
+     * @param timeout maximal time to wait for the result
+     * @param unit unit of the timeout, null to wait without limit
+     * @return false when the execution has no data
+     * @throws ExecuteAfmException when the result can't be obtained or the timeout expires
+     */
+    boolean readResult(final String uri, final ResponseExtractor<?> extractor, final long timeout,
+                       final TimeUnit unit) {
+        final long start = System.currentTimeMillis();
+        final ResponseExtractor<HttpStatus> statusExtractor = response -> {
+            if (response.getStatusCode() == HttpStatus.OK) {
+                extractor.extractData(response);
+            }
+            return response.getStatusCode();
+        };
+        while (true) {
+            final HttpStatus status;
+            try {
+                status = restTemplate.execute(URI.create(uri), GET, null, statusExtractor);
+            } catch (GoodDataRestException | RestClientException e) {
+                throw new ExecuteAfmException("Unable to get execution result: " + uri, e);
+            }
+            switch (status) {
+                case OK:
+                    return true;
+                case NO_CONTENT:
+                    return false;
+                case ACCEPTED:
+                    break;
+                default:
+                    throw new ExecuteAfmException("Unable to get execution result, unknown HTTP response code: "
+                            + status);
+            }
+            if (unit != null && start + unit.toMillis(timeout) < System.currentTimeMillis()) {
+                throw new ExecuteAfmException("Timeout while waiting for execution result: " + uri);
+            }
+            try {
+                Thread.sleep(getSettings().getPollSleep());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExecuteAfmException("Interrupted while waiting for execution result: " + uri, e);
+            }
+        }
+    }
+
+    private <T> FutureResult<T> getResult(final String uri, final Class<T> resultClass) {
+        return new PollResult<>(this, new SimplePollHandler<T>(uri, resultClass) {
+            @Override
+            public boolean isFinished(final ClientHttpResponse response) throws IOException {
+                switch (response.getStatusCode()) {
+                    case OK:
+                    case NO_CONTENT:
+                        return true;
+                    case ACCEPTED:
+                        return false;
+                    default:
+                        throw new ExecuteAfmException("Unable to get execution result, unknown HTTP response code: "
+                                + response.getStatusCode());
+                }
+            }
+
+            @Override
+            public void handlePollException(final GoodDataRestException e) {
+                throw new ExecuteAfmException("Unable to get execution result: " + uri, e);
+            }
+        });
+    }
+
+    private static String pageUri(final ExecutionResponse response, final Paging page) {
+        return pageUri(notEmpty(response.getExecutionResultUri(), "executionResultUri"),
+                notNull(page.getOffset(), "page.offset"), notNull(page.getCount(), "page.count"));
+    }
+
+    /**
+     * Replaces the paging parameters of the given execution result uri.
+     */
+    static String pageUri(final String executionResultUri, final List<Integer> offset, final List<Integer> limit) {
+        isTrue(offset.size() == limit.size(), "offset and limit must have the same number of dimensions");
+        try {
+            return UriComponentsBuilder.fromUriString(executionResultUri)
+                    .replaceQueryParam(OFFSET_PARAM, offset.stream().map(String::valueOf).collect(joining(",")))
+                    .replaceQueryParam(LIMIT_PARAM, limit.stream().map(String::valueOf).collect(joining(",")))
+                    .build(true)
+                    .toUriString();
+        } catch (IllegalArgumentException e) {
+            throw new GoodDataException("Invalid execution result uri: " + executionResultUri, e);
+        }
+    }
+}
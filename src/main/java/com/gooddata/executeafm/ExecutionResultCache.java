@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm;
+
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import com.gooddata.executeafm.result.ExecutionResult;
+import com.gooddata.project.Project;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Client side cache of execution results, avoiding repeated executions of the same AFM.
+ * <p>
+ * Results are keyed by the project and {@link AfmNormalizer#fingerprint(Execution) fingerprint} of the execution,
+ * i.e. the key doesn't depend on the order of the AFM filters nor the order of the JSON properties. When created with
+ * {@link AfmNormalizer}, executions are normalized before, so the executions referencing the same objects by identifier
+ * and by uri share the cached result. At most {@code maxEntries} results are cached, the least recently used one
+ * is evicted first, and each result expires after the given time to live.
+ * Concurrent requests for the same execution share a single execution.
+ * <p>
+ * Cached results are shared and must not be modified. Results depend on the project data, so the cache
+ * of a project should be invalidated when the data change, e.g. by {@link #invalidateWhenDone(Project, FutureResult)}.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     ExecutionResultCache cache = new ExecutionResultCache(gd.getExecuteAfmService(), 1000, 10, TimeUnit.MINUTES);
+ *     ExecutionResult result = cache.getResult(project, execution);
+ *     cache.invalidateWhenDone(project, gd.getDatasetService().loadDataset(project, manifest, csv)).get();
+ * </code></pre>
+ */
+public class ExecutionResultCache {
+
+    private final ExecuteAfmService service;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final AfmNormalizer normalizer;
+    private final Map<String, Entry> entries;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates new cache
+     * @param service service used to execute AFM on cache miss
+     * @param maxEntries maximal number of cached results (at least 1)
+     * @param ttl time to live of cached result (greater than zero)
+     * @param unit time unit of the time to live
+     */
+    public ExecutionResultCache(final ExecuteAfmService service, final int maxEntries, final long ttl,
+                                final TimeUnit unit) {
+        this(service, null, maxEntries, ttl, unit);
+    }
+
+    /**
+     * Creates new cache normalizing the executions
+     * @param service service used to execute AFM on cache miss
+     * @param normalizer normalizer of the executions, null to use the executions as given
+     * @param maxEntries maximal number of cached results (at least 1)
+     * @param ttl time to live of cached result (greater than zero)
+     * @param unit time unit of the time to live
+     */
+    public ExecutionResultCache(final ExecuteAfmService service, final AfmNormalizer normalizer,
+                                final int maxEntries, final long ttl, final TimeUnit unit) {
+        this.service = notNull(service, "service");
+        this.normalizer = normalizer;
+        isTrue(maxEntries > 0, "maxEntries must be greater than zero");
+        isTrue(ttl > 0, "ttl must be greater than zero");
+        this.maxEntries = maxEntries;
+        this.ttlMillis = notNull(unit, "unit").toMillis(ttl);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > ExecutionResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the result of the given execution (as paged by the server by default), executing the AFM
+     * only when the result isn't cached yet.
+     *
+     * @param project project of the execution
+     * @param execution execution
+     * @return execution result, null when the execution has no data
+     * @throws ExecuteAfmException when the execution fails, failures are not cached
+     */
+    public ExecutionResult getResult(final Project project, final Execution execution) {
+        notNull(project, "project");
+        notNull(project.getId(), "project.id");
+        notNull(execution, "execution");
+
+        final Execution normalized = normalizer != null ? normalizer.normalize(project, execution) : execution;
+        final String key = project.getId() + ':' + AfmNormalizer.fingerprint(normalized);
+        final Entry entry;
+        final boolean execute;
+        synchronized (this) {
+            final Entry cached = entries.get(key);
+            if (cached != null && cached.isValid()) {
+                hits++;
+                entry = cached;
+                execute = false;
+            } else {
+                misses++;
+                entry = new Entry(new FutureTask<>(() -> service.getResult(service.executeAfm(project, normalized)).get()),
+                        System.currentTimeMillis() + ttlMillis);
+                entries.put(key, entry);
+                execute = true;
+            }
+        }
+        if (execute) {
+            entry.result.run();
+        }
+        try {
+            return entry.result.get();
+        } catch (ExecutionException e) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            if (e.getCause() instanceof GoodDataException) {
+                throw (GoodDataException) e.getCause();
+            }
+            throw new ExecuteAfmException("Unable to execute AFM", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecuteAfmException("Interrupted while waiting for execution result", e);
+        }
+    }
+
+    /**
+     * Drops all the cached results of the given project.
+     *
+     * @param project project
+     */
+    public synchronized void invalidate(final Project project) {
+        notNull(project, "project");
+        notNull(project.getId(), "project.id");
+        final String prefix = project.getId() + ':';
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * Drops all the cached results.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Wraps the given data load (e.g. {@link com.gooddata.dataset.DatasetService#loadDataset}) so the cached results
+     * of the project are dropped when the load successfully finishes.
+     *
+     * @param project project the data are loaded to
+     * @param load data load
+     * @param <T> type of the load result
+     * @return the load result invalidating the cache when done
+     */
+    public <T> FutureResult<T> invalidateWhenDone(final Project project, final FutureResult<T> load) {
+        notNull(project, "project");
+        notNull(load, "load");
+        return new FutureResult<T>() {
+            private boolean invalidated;
+
+            @Override
+            public boolean isDone() {
+                return load.isDone();
+            }
+
+            @Override
+            public T get() {
+                return invalidate(load.get());
+            }
+
+            @Override
+            public T get(final long timeout, final TimeUnit unit) {
+                return invalidate(load.get(timeout, unit));
+            }
+
+            @Override
+            public String getPollingUri() {
+                return load.getPollingUri();
+            }
+
+            private T invalidate(final T result) {
+                if (!invalidated) {
+                    invalidated = true;
+                    ExecutionResultCache.this.invalidate(project);
+                }
+                return result;
+            }
+        };
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    private static class Entry {
+        private final FutureTask<ExecutionResult> result;
+        private final long expiresAt;
+
+        private Entry(final FutureTask<ExecutionResult> result, final long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isValid() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+    }
+}
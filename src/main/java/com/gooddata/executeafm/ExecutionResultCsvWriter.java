@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gooddata.executeafm.response.ExecutionResponse;
+import com.gooddata.executeafm.result.Paging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+/**
+ * Writes the execution result as CSV, streaming the result JSON page by page straight to the output, without
+ * deserializing it to {@link com.gooddata.executeafm.result.ExecutionResult}. The memory used is given by the page size,
+ * independent of the number of result rows.
+ * <p>
+ * Rows of the CSV are given by the first dimension of the result, each row starts with the names of its header items.
+ * Columns are given by the second dimension, the names of its header items form the leading CSV header rows.
+ * One dimensional result is written as a single column. Totals are not written.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     ExecutionResponse response = gd.getExecuteAfmService().executeAfm(project, execution);
+ *     new ExecutionResultCsvWriter(gd.getExecuteAfmService(), 1000, 1000).write(response, output);
+ * </code></pre>
+ */
+public class ExecutionResultCsvWriter {
+
+    private static final JsonFactory JSON_FACTORY = new ObjectMapper().getFactory();
+    private static final String ROOT = "executionResult";
+
+    public static final long DEFAULT_PAGE_TIMEOUT_MINUTES = 10;
+
+    private final ExecuteAfmService service;
+    private final int rowsPerPage;
+    private final int columnsPerPage;
+    private final long pageTimeout;
+    private final TimeUnit pageTimeoutUnit;
+
+    /**
+     * Creates new writer waiting up to {@link #DEFAULT_PAGE_TIMEOUT_MINUTES} for each result page
+     * @param service service used to get the result pages
+     * @param rowsPerPage number of rows of the result page
+     * @param columnsPerPage number of columns of the result page, the rows of the page are kept in memory until
+     *                       all the columns are read
+     */
+    public ExecutionResultCsvWriter(final ExecuteAfmService service, final int rowsPerPage, final int columnsPerPage) {
+        this(service, rowsPerPage, columnsPerPage, DEFAULT_PAGE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Creates new writer
+     * @param service service used to get the result pages
+     * @param rowsPerPage number of rows of the result page
+     * @param columnsPerPage number of columns of the result page, the rows of the page are kept in memory until
+     *                       all the columns are read
+     * @param pageTimeout maximal time to wait for each result page to be computed
+     * @param pageTimeoutUnit unit of the page timeout
+     */
+    public ExecutionResultCsvWriter(final ExecuteAfmService service, final int rowsPerPage, final int columnsPerPage,
+                                    final long pageTimeout, final TimeUnit pageTimeoutUnit) {
+        this.service = notNull(service, "service");
+        isTrue(rowsPerPage > 0, "rowsPerPage must be greater than zero");
+        isTrue(columnsPerPage > 0, "columnsPerPage must be greater than zero");
+        isTrue(pageTimeout > 0, "pageTimeout must be greater than zero");
+        this.rowsPerPage = rowsPerPage;
+        this.columnsPerPage = columnsPerPage;
+        this.pageTimeout = pageTimeout;
+        this.pageTimeoutUnit = notNull(pageTimeoutUnit, "pageTimeoutUnit");
+    }
+
+    /**
+     * Writes the result of the given execution as CSV to the given output. The output is flushed, but not closed.
+     *
+     * @param response execution response
+     * @param output target
+     * @return number of written data rows, zero when the execution has no data
+     * @throws ExecuteAfmException when the result can't be obtained in time or written
+     */
+    public long write(final ExecutionResponse response, final OutputStream output) {
+        notNull(response, "response");
+        notNull(output, "output");
+        final String resultUri = notEmpty(response.getExecutionResultUri(), "executionResultUri");
+        notNull(response.getDimensions(), "response.dimensions");
+        isTrue(response.getDimensions().size() <= 2, "only results of up to 2 dimensions can be written as CSV");
+        final int dimensions = Math.max(response.getDimensions().size(), 1);
+
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(output, UTF_8));
+        try {
+            long written = 0;
+            int rowOffset = 0;
+            int totalRows;
+            List<List<String>> columnHeaders = null;
+            do {
+                final Block block = new Block(rowOffset == 0);
+                int columnOffset = 0;
+                do {
+                    block.firstColumnPage = columnOffset == 0;
+                    final String pageUri = dimensions == 1
+                            ? ExecuteAfmService.pageUri(resultUri, singletonList(rowOffset), singletonList(rowsPerPage))
+                            : ExecuteAfmService.pageUri(resultUri, asList(rowOffset, columnOffset),
+                                    asList(rowsPerPage, columnsPerPage));
+                    if (!service.readResult(pageUri, r -> {
+                        readPage(r.getBody(), block);
+                        return null;
+                    }, pageTimeout, pageTimeoutUnit)) {
+                        writer.flush();
+                        return written;
+                    }
+                    columnOffset += columnsPerPage;
+                } while (dimensions == 2 && columnOffset < block.total(1));
+
+                if (columnHeaders == null) {
+                    columnHeaders = block.columnHeaders;
+                    writeColumnHeaders(writer, block.rowHeaders.size(), columnHeaders);
+                }
+                block.writeRows(writer);
+                written += block.rows.size();
+                totalRows = block.total(0);
+                rowOffset += rowsPerPage;
+            } while (rowOffset < totalRows);
+            writer.flush();
+            return written;
+        } catch (IOException e) {
+            throw new ExecuteAfmException("Unable to write execution result: " + resultUri, e);
+        }
+    }
+
+    private static void readPage(final InputStream body, final Block block) throws IOException {
+        try (JsonParser jp = JSON_FACTORY.createParser(body)) {
+            expect(jp, jp.nextToken(), JsonToken.START_OBJECT);
+            expect(jp, jp.nextToken(), JsonToken.FIELD_NAME);
+            if (!ROOT.equals(jp.getCurrentName())) {
+                throw JsonMappingException.from(jp, format("Expected %s but got %s", ROOT, jp.getCurrentName()));
+            }
+            expect(jp, jp.nextToken(), JsonToken.START_OBJECT);
+            block.startPage();
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = jp.getCurrentName();
+                if (jp.nextToken() == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "data":
+                        readData(jp, block);
+                        break;
+                    case "paging":
+                        block.paging = jp.readValueAs(Paging.class);
+                        break;
+                    case "headerItems":
+                        readHeaderItems(jp, block);
+                        break;
+                    default:
+                        jp.skipChildren();
+                }
+            }
+            expect(jp, jp.currentToken(), JsonToken.END_OBJECT);
+        }
+    }
+
+    private static void readData(final JsonParser jp, final Block block) throws IOException {
+        expect(jp, jp.currentToken(), JsonToken.START_ARRAY);
+        int row = 0;
+        JsonToken token;
+        while ((token = jp.nextToken()) != JsonToken.END_ARRAY) {
+            final StringBuilder cells = block.row(row++);
+            if (token == JsonToken.START_ARRAY) {
+                while ((token = jp.nextToken()) != JsonToken.END_ARRAY) {
+                    appendValue(jp, token, cells);
+                }
+            } else {
+                appendValue(jp, token, cells);
+            }
+        }
+    }
+
+    private static void appendValue(final JsonParser jp, final JsonToken token, final StringBuilder cells)
+            throws IOException {
+        cells.append(',');
+        if (token.isScalarValue()) {
+            if (token != JsonToken.VALUE_NULL) {
+                appendCsv(cells, jp.getText());
+            }
+        } else {
+            throw JsonMappingException.from(jp, format("Unexpected execution result value %s", token));
+        }
+    }
+
+    private static void readHeaderItems(final JsonParser jp, final Block block) throws IOException {
+        expect(jp, jp.currentToken(), JsonToken.START_ARRAY);
+        int dimension = 0;
+        while (jp.nextToken() != JsonToken.END_ARRAY) {
+            expect(jp, jp.currentToken(), JsonToken.START_ARRAY);
+            final List<List<String>> target = dimension == 0
+                    ? (block.firstColumnPage ? block.rowHeaders : null)
+                    : (dimension == 1 && block.columnHeaders != null ? block.columnHeaders : null);
+            int header = 0;
+            while (jp.nextToken() != JsonToken.END_ARRAY) {
+                if (target == null) {
+                    jp.skipChildren();
+                } else {
+                    if (target.size() == header) {
+                        target.add(new ArrayList<>());
+                    }
+                    readHeaderNames(jp, target.get(header));
+                }
+                header++;
+            }
+            dimension++;
+        }
+    }
+
+    private static void readHeaderNames(final JsonParser jp, final List<String> names) throws IOException {
+        expect(jp, jp.currentToken(), JsonToken.START_ARRAY);
+        while (jp.nextToken() != JsonToken.END_ARRAY) {
+            // {"attributeHeaderItem": {"name": "...", "uri": "..."}}
+            expect(jp, jp.currentToken(), JsonToken.START_OBJECT);
+            expect(jp, jp.nextToken(), JsonToken.FIELD_NAME);
+            expect(jp, jp.nextToken(), JsonToken.START_OBJECT);
+            String name = null;
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = jp.getCurrentName();
+                jp.nextToken();
+                if ("name".equals(field)) {
+                    name = jp.getValueAsString();
+                } else {
+                    jp.skipChildren();
+                }
+            }
+            expect(jp, jp.nextToken(), JsonToken.END_OBJECT);
+            names.add(name);
+        }
+    }
+
+    private static void writeColumnHeaders(final Writer writer, final int rowHeaderCount,
+                                           final List<List<String>> columnHeaders) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        for (List<String> names : columnHeaders) {
+            line.setLength(0);
+            for (int i = 0; i < rowHeaderCount; i++) {
+                line.append(',');
+            }
+            for (String name : names) {
+                line.append(',');
+                appendCsv(line, name);
+            }
+            if (line.length() > 0) {
+                writer.append(line, 1, line.length());
+            }
+            writer.append("\r\n");
+        }
+    }
+
+    private static void appendCsv(final StringBuilder out, final String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            final char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void expect(final JsonParser jp, final JsonToken actual,
+                               final JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw JsonMappingException.from(jp, format("Unexpected execution result structure, expected %s but got %s",
+                    expected, actual));
+        }
+    }
+
+    /**
+     * Rows of the result pages having the same row offset, i.e. all the columns of the rows.
+     */
+    private static class Block {
+        private final List<StringBuilder> rows = new ArrayList<>();
+        private final List<List<String>> rowHeaders = new ArrayList<>();
+        private final List<List<String>> columnHeaders;
+        private boolean firstColumnPage;
+        private Paging paging;
+
+        private Block(final boolean readColumnHeaders) {
+            this.columnHeaders = readColumnHeaders ? new ArrayList<>() : null;
+        }
+
+        private void startPage() {
+            paging = null;
+        }
+
+        private StringBuilder row(final int index) {
+            if (index == rows.size()) {
+                rows.add(new StringBuilder());
+            }
+            return rows.get(index);
+        }
+
+        private int total(final int dimension) {
+            if (paging == null || paging.getTotal() == null || paging.getTotal().size() <= dimension) {
+                throw new ExecuteAfmException("Execution result page has no paging of dimension " + dimension);
+            }
+            return paging.getTotal().get(dimension);
+        }
+
+        private void writeRows(final Writer writer) throws IOException {
+            final StringBuilder line = new StringBuilder();
+            for (int row = 0; row < rows.size(); row++) {
+                line.setLength(0);
+                for (List<String> names : rowHeaders) {
+                    line.append(',');
+                    appendCsv(line, row < names.size() ? names.get(row) : null);
+                }
+                line.append(rows.get(row));
+                if (line.length() > 0) {
+                    writer.append(line, 1, line.length());
+                }
+                writer.append("\r\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.executeafm.response.ExecutionResponse;
+import com.gooddata.executeafm.result.ExecutionResult;
+import com.gooddata.executeafm.result.Paging;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Iterator over the pages of an execution result, fetching the next page in the background while the current one
+ * is being processed. Created by {@link ExecuteAfmService#getResultPages(ExecutionResponse, int...)}.
+ * <p>
+ * The iterator is not thread safe. It releases its background thread when iterated to the end or closed.
+ */
+public class ExecutionResultIterator implements Iterator<ExecutionResult>, Closeable {
+
+    private final ExecuteAfmService service;
+    private final ExecutionResponse response;
+    private final int[] pageSize;
+    private final int[] offset;
+    private final ExecutorService prefetcher;
+
+    private int[] total;
+    private Future<ExecutionResult> pending;
+    private ExecutionResult ready;
+
+    ExecutionResultIterator(final ExecuteAfmService service, final ExecutionResponse response, final int[] pageSize) {
+        this.service = service;
+        this.response = response;
+        this.pageSize = pageSize.clone();
+        this.offset = new int[pageSize.length];
+        this.prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "execution-result-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = fetch(offset.clone());
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (ready != null) {
+            return true;
+        }
+        if (pending == null) {
+            return false;
+        }
+        final ExecutionResult page = await(pending);
+        pending = null;
+        if (page == null) {
+            close();
+            return false;
+        }
+        if (total == null) {
+            total = totals(page.getPaging());
+        }
+        if (advance()) {
+            pending = fetch(offset.clone());
+        } else {
+            close();
+        }
+        ready = page;
+        return true;
+    }
+
+    @Override
+    public ExecutionResult next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final ExecutionResult page = ready;
+        ready = null;
+        return page;
+    }
+
+    /**
+     * Stops fetching of the next pages.
+     */
+    @Override
+    public void close() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+        prefetcher.shutdownNow();
+    }
+
+    private Future<ExecutionResult> fetch(final int[] pageOffset) {
+        final Paging page = new Paging().offset(pageOffset).count(pageSize);
+        return prefetcher.submit(() -> service.getResult(response, page).get());
+    }
+
+    private ExecutionResult await(final Future<ExecutionResult> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            close();
+            if (e.getCause() instanceof GoodDataException) {
+                throw (GoodDataException) e.getCause();
+            }
+            throw new ExecuteAfmException("Unable to get execution result", e.getCause());
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new ExecuteAfmException("Interrupted while getting execution result", e);
+        }
+    }
+
+    private int[] totals(final Paging paging) {
+        final List<Integer> totals = paging != null ? paging.getTotal() : null;
+        if (totals == null || totals.size() != pageSize.length) {
+            close();
+            throw new ExecuteAfmException("Execution result paging doesn't match " + pageSize.length + " dimensions: "
+                    + paging);
+        }
+        return totals.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Moves the offset to the next page, the last dimension changes the fastest.
+     * @return false when there is no next page
+     */
+    private boolean advance() {
+        for (int dimension = offset.length - 1; dimension >= 0; dimension--) {
+            offset[dimension] += pageSize[dimension];
+            if (offset[dimension] < total[dimension]) {
+                return true;
+            }
+            offset[dimension] = 0;
+        }
+        return false;
+    }
+}
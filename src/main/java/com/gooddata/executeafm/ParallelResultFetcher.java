@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.executeafm.response.ExecutionResponse;
+import com.gooddata.executeafm.result.ExecutionResult;
+import com.gooddata.executeafm.result.Paging;
+import com.gooddata.executeafm.result.ResultHeaderItem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Fetches all the pages of an execution result concurrently.
+ * <p>
+ * The first page determines the total size of the result, the remaining pages of the page grid are then fetched
+ * concurrently, at most {@code maxPagesInFlight} at a time. The pages can be either streamed in the row-major order
+ * (the last dimension changes the fastest) or stitched into a single result.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     ParallelResultFetcher fetcher = new ParallelResultFetcher(gd.getExecuteAfmService(), 8);
+ *     ExecutionResult result = fetcher.fetch(executionResponse, 1000, 100);
+ * </code></pre>
+ */
+public class ParallelResultFetcher {
+
+    private final ExecuteAfmService service;
+    private final int maxPagesInFlight;
+
+    /**
+     * Creates new fetcher
+     * @param service service used to fetch the pages
+     * @param maxPagesInFlight maximal number of pages fetched concurrently (at least 1)
+     */
+    public ParallelResultFetcher(final ExecuteAfmService service, final int maxPagesInFlight) {
+        this.service = notNull(service, "service");
+        isTrue(maxPagesInFlight > 0, "maxPagesInFlight must be greater than zero");
+        this.maxPagesInFlight = maxPagesInFlight;
+    }
+
+    /**
+     * Fetches all the pages of the result and passes them to the given consumer in the row-major order.
+     * No more than {@code maxPagesInFlight} pages are held in memory besides the one being consumed.
+     *
+     * @param response execution response
+     * @param consumer consumer of the pages, called from the calling thread
+     * @param pageSize page size for each dimension of the result, single value is used for all the dimensions
+     * @return number of the consumed pages, 0 when the execution has no data
+     * @throws ExecuteAfmException when some page can't be fetched
+     */
+    public int fetch(final ExecutionResponse response, final Consumer<ExecutionResult> consumer,
+                     final int... pageSize) {
+        notNull(response, "response");
+        notNull(consumer, "consumer");
+        final int[] size = pageSizes(response, pageSize);
+
+        final ExecutionResult first = service.getResult(response, page(new int[size.length], size)).get();
+        if (first == null) {
+            return 0;
+        }
+        final PageGrid grid = new PageGrid(size, totals(first.getPaging(), size.length));
+        consumer.accept(first);
+        int consumed = 1;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxPagesInFlight, grid.pageCount));
+        final Deque<Future<ExecutionResult>> inFlight = new ArrayDeque<>();
+        int next = 1;
+        try {
+            while (next < grid.pageCount || !inFlight.isEmpty()) {
+                while (next < grid.pageCount && inFlight.size() < maxPagesInFlight) {
+                    final Paging page = page(grid.offset(next++), size);
+                    inFlight.add(executor.submit(() -> service.getResult(response, page).get()));
+                }
+                final ExecutionResult result = await(inFlight.poll());
+                if (result == null) {
+                    throw new ExecuteAfmException("Execution result page has no data: "
+                            + response.getExecutionResultUri());
+                }
+                consumer.accept(result);
+                consumed++;
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+            executor.shutdownNow();
+        }
+        return consumed;
+    }
+
+    /**
+     * Fetches all the pages of the result and stitches them into single result with all the data, header items
+     * and totals.
+     *
+     * @param response execution response
+     * @param pageSize page size for each dimension of the result, single value is used for all the dimensions
+     * @return whole result, null when the execution has no data
+     * @throws ExecuteAfmException when some page can't be fetched or the result has more than two dimensions
+     */
+    public ExecutionResult fetch(final ExecutionResponse response, final int... pageSize) {
+        final Stitcher stitcher = new Stitcher();
+        fetch(response, stitcher, pageSize);
+        return stitcher.result();
+    }
+
+    private static int[] pageSizes(final ExecutionResponse response, final int[] pageSize) {
+        notNull(response.getDimensions(), "response.dimensions");
+        notNull(pageSize, "pageSize");
+        final int dimensions = Math.max(response.getDimensions().size(), 1);
+        isTrue(pageSize.length == 1 || pageSize.length == dimensions,
+                "pageSize must be given for all " + dimensions + " dimensions or by single value");
+        final int[] size = new int[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            size[i] = pageSize.length == 1 ? pageSize[0] : pageSize[i];
+            isTrue(size[i] > 0, "pageSize must be greater than zero");
+        }
+        return size;
+    }
+
+    private static Paging page(final int[] offset, final int[] size) {
+        return new Paging().offset(offset).count(size);
+    }
+
+    private static int[] totals(final Paging paging, final int dimensions) {
+        final List<Integer> totals = paging != null ? paging.getTotal() : null;
+        if (totals == null || totals.size() != dimensions) {
+            throw new ExecuteAfmException("Execution result paging doesn't match " + dimensions + " dimensions: "
+                    + paging);
+        }
+        return totals.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static ExecutionResult await(final Future<ExecutionResult> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GoodDataException) {
+                throw (GoodDataException) e.getCause();
+            }
+            throw new ExecuteAfmException("Unable to get execution result", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecuteAfmException("Interrupted while getting execution result", e);
+        }
+    }
+
+    /**
+     * Grid of the result pages, pages are numbered in the row-major order.
+     */
+    private static class PageGrid {
+        private final int[] size;
+        private final int[] pages;
+        private final int pageCount;
+
+        private PageGrid(final int[] size, final int[] total) {
+            this.size = size;
+            this.pages = new int[size.length];
+            int count = 1;
+            for (int i = 0; i < size.length; i++) {
+                pages[i] = Math.max((total[i] + size[i] - 1) / size[i], 1);
+                count = Math.multiplyExact(count, pages[i]);
+            }
+            this.pageCount = count;
+        }
+
+        private int[] offset(int page) {
+            final int[] offset = new int[size.length];
+            for (int i = size.length - 1; i >= 0; i--) {
+                offset[i] = page % pages[i] * size[i];
+                page /= pages[i];
+            }
+            return offset;
+        }
+    }
+
+    /**
+     * Collects the pages into a single result.
+     */
+    private static class Stitcher implements Consumer<ExecutionResult> {
+        private int[] total;
+        private String[] data1d;
+        private String[][] data2d;
+        private List<List<List<ResultHeaderItem>>> headerItems;
+        private List<List<List<String>>> totals;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void accept(final ExecutionResult page) {
+            final Paging paging = page.getPaging();
+            final int[] offset = paging.getOffset().stream().mapToInt(Integer::intValue).toArray();
+            if (total == null) {
+                total = paging.getTotal().stream().mapToInt(Integer::intValue).toArray();
+                if (total.length == 1) {
+                    data1d = new String[total[0]];
+                } else if (total.length == 2) {
+                    data2d = new String[total[0]][total[1]];
+                } else {
+                    throw new ExecuteAfmException("Unable to stitch result of " + total.length + " dimensions");
+                }
+            }
+
+            final List<?> data = page.getData();
+            if (data != null) {
+                for (int row = 0; row < data.size(); row++) {
+                    if (data1d != null) {
+                        data1d[offset[0] + row] = (String) data.get(row);
+                    } else {
+                        final List<String> values = (List<String>) data.get(row);
+                        for (int column = 0; column < values.size(); column++) {
+                            data2d[offset[0] + row][offset[1] + column] = values.get(column);
+                        }
+                    }
+                }
+            }
+            headerItems = appendHeaderItems(headerItems, page.getHeaderItems(), offset);
+            totals = appendTotals(totals, page.getTotals(), offset);
+        }
+
+        private static List<List<List<ResultHeaderItem>>> appendHeaderItems(
+                final List<List<List<ResultHeaderItem>>> stitched, final List<List<List<ResultHeaderItem>>> items,
+                final int[] offset) {
+            if (items == null) {
+                return stitched;
+            }
+            final List<List<List<ResultHeaderItem>>> target = stitched != null ? stitched : emptyCopy(items);
+            // header items of dimension d are given by the pages in the first row (column) of the other dimension
+            for (int dimension = 0; dimension < items.size(); dimension++) {
+                if (isFirstInOtherDimensions(offset, dimension)) {
+                    for (int header = 0; header < items.get(dimension).size(); header++) {
+                        target.get(dimension).get(header).addAll(items.get(dimension).get(header));
+                    }
+                }
+            }
+            return target;
+        }
+
+        private static List<List<List<String>>> appendTotals(final List<List<List<String>>> stitched,
+                                                             final List<List<List<String>>> totals,
+                                                             final int[] offset) {
+            if (totals == null) {
+                return stitched;
+            }
+            final List<List<List<String>>> target = stitched != null ? stitched : emptyCopy(totals);
+            // totals of dimension d span the other dimension, so they are given by the pages at offset 0 of dimension d
+            for (int dimension = 0; dimension < totals.size(); dimension++) {
+                if (offset.length == 1 ? isFirstPage(offset) : offset[dimension] == 0) {
+                    for (int total = 0; total < totals.get(dimension).size(); total++) {
+                        target.get(dimension).get(total).addAll(totals.get(dimension).get(total));
+                    }
+                }
+            }
+            return target;
+        }
+
+        private static <T> List<List<List<T>>> emptyCopy(final List<List<List<T>>> source) {
+            final List<List<List<T>>> copy = new ArrayList<>(source.size());
+            for (List<List<T>> dimension : source) {
+                final List<List<T>> dimensionCopy = new ArrayList<>(dimension.size());
+                for (int i = 0; i < dimension.size(); i++) {
+                    dimensionCopy.add(new ArrayList<>());
+                }
+                copy.add(dimensionCopy);
+            }
+            return copy;
+        }
+
+        private static boolean isFirstInOtherDimensions(final int[] offset, final int dimension) {
+            for (int i = 0; i < offset.length; i++) {
+                if (i != dimension && offset[i] != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isFirstPage(final int[] offset) {
+            for (int value : offset) {
+                if (value != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private ExecutionResult result() {
+            if (total == null) {
+                return null;
+            }
+            final int[] zero = new int[total.length];
+            final Paging paging = new Paging().count(total).offset(zero).total(total);
+            final ExecutionResult result = data1d != null ? new ExecutionResult(data1d, paging)
+                    : new ExecutionResult(data2d, paging);
+            result.setHeaderItems(headerItems);
+            result.setTotals(totals);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm.result;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.gooddata.util.GoodDataToStringBuilder;
+
+import java.util.List;
+
+import static com.gooddata.util.Validate.isTrue;
+
+/**
+ * Memory efficient, columnar representation of {@link ExecutionResult}. Deserialization only.
+ * <p>
+ * The data are kept as primitive {@code double} column arrays with a bitmap of null values, instead of
+ * the nested lists of strings. For two dimensional results the rows are given by the first dimension and the columns
+ * by the second one, one dimensional result has a single column.
+ * <p>
+ * Header items are dictionary encoded, for each header in each dimension there is a dictionary of the distinct items
+ * and the codes of the items referencing the dictionary.
+ */
+@JsonDeserialize(using = ColumnarExecutionResultDeserializer.class)
+public class ColumnarExecutionResult {
+
+    private final Paging paging;
+    private final int rowCount;
+    private final double[][] columns;
+    private final long[][] nulls;
+    private final List<List<List<ResultHeaderItem>>> headerItemDictionaries;
+    private final List<List<int[]>> headerItemCodes;
+    private final List<List<List<String>>> totals;
+
+    ColumnarExecutionResult(final Paging paging, final int rowCount, final double[][] columns, final long[][] nulls,
+                            final List<List<List<ResultHeaderItem>>> headerItemDictionaries,
+                            final List<List<int[]>> headerItemCodes,
+                            final List<List<List<String>>> totals) {
+        this.paging = paging;
+        this.rowCount = rowCount;
+        this.columns = columns;
+        this.nulls = nulls;
+        this.headerItemDictionaries = headerItemDictionaries;
+        this.headerItemCodes = headerItemCodes;
+        this.totals = totals;
+    }
+
+    /**
+     * @return result paging
+     */
+    public Paging getPaging() {
+        return paging;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Returns values of the given column, null values are represented by {@link Double#NaN}.
+     * The array is not copied, so it must not be modified.
+     *
+     * @param column column index
+     * @return column values, the array length is equal to the row count
+     */
+    public double[] getColumn(final int column) {
+        checkColumn(column);
+        return columns[column];
+    }
+
+    /**
+     * @param row    row index
+     * @param column column index
+     * @return value of the cell, {@link Double#NaN} for null value
+     */
+    public double getValue(final int row, final int column) {
+        checkRow(row);
+        checkColumn(column);
+        return columns[column][row];
+    }
+
+    /**
+     * @param row    row index
+     * @param column column index
+     * @return true when the cell value is null
+     */
+    public boolean isNull(final int row, final int column) {
+        checkRow(row);
+        checkColumn(column);
+        return (nulls[column][row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @return number of dimensions having header items
+     */
+    public int getHeaderDimensionCount() {
+        return headerItemCodes.size();
+    }
+
+    /**
+     * @param dimension dimension index
+     * @return number of headers in the given dimension
+     */
+    public int getHeaderCount(final int dimension) {
+        return headerItemCodes.get(dimension).size();
+    }
+
+    /**
+     * @param dimension dimension index
+     * @param header    header index within the dimension
+     * @return distinct header items of the given header, referenced by {@link #getHeaderItemCodes(int, int)}
+     */
+    public List<ResultHeaderItem> getHeaderItemDictionary(final int dimension, final int header) {
+        return headerItemDictionaries.get(dimension).get(header);
+    }
+
+    /**
+     * Returns codes of the header items, i.e. indexes to {@link #getHeaderItemDictionary(int, int)}.
+     * The array is not copied, so it must not be modified.
+     *
+     * @param dimension dimension index
+     * @param header    header index within the dimension
+     * @return header item codes, one for each item of the header
+     */
+    public int[] getHeaderItemCodes(final int dimension, final int header) {
+        return headerItemCodes.get(dimension).get(header);
+    }
+
+    /**
+     * @param dimension dimension index
+     * @param header    header index within the dimension
+     * @param index     item index within the header
+     * @return header item
+     */
+    public ResultHeaderItem getHeaderItem(final int dimension, final int header, final int index) {
+        return getHeaderItemDictionary(dimension, header).get(getHeaderItemCodes(dimension, header)[index]);
+    }
+
+    /**
+     * @return data of totals, for each total in each dimension, there is a list of total's values
+     */
+    public List<List<List<String>>> getTotals() {
+        return totals;
+    }
+
+    private void checkRow(final int row) {
+        isTrue(row >= 0 && row < rowCount, "row index out of range");
+    }
+
+    private void checkColumn(final int column) {
+        isTrue(column >= 0 && column < columns.length, "column index out of range");
+    }
+
+    @Override
+    public String toString() {
+        return GoodDataToStringBuilder.defaultToString(this, "columns", "nulls");
+    }
+}
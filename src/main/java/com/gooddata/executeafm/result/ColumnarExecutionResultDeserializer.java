@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm.result;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Streaming deserializer of {@link ColumnarExecutionResult}, reads the execution result data directly
+ * into the primitive column arrays without creating the intermediate lists of strings.
+ */
+class ColumnarExecutionResultDeserializer extends JsonDeserializer<ColumnarExecutionResult> {
+
+    private static final String ROOT = "executionResult";
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final TypeReference<List<List<List<String>>>> TOTALS_TYPE =
+            new TypeReference<List<List<List<String>>>>() {};
+
+    @Override
+    public ColumnarExecutionResult deserialize(final JsonParser jp, final DeserializationContext ctxt)
+            throws IOException {
+        expect(jp, jp.currentToken(), JsonToken.START_OBJECT);
+        expect(jp, jp.nextToken(), JsonToken.FIELD_NAME);
+        if (!ROOT.equals(jp.getCurrentName())) {
+            throw JsonMappingException.from(jp, format("Expected %s but got %s", ROOT, jp.getCurrentName()));
+        }
+        expect(jp, jp.nextToken(), JsonToken.START_OBJECT);
+
+        Paging paging = null;
+        Columns columns = null;
+        final List<List<List<ResultHeaderItem>>> dictionaries = new ArrayList<>();
+        final List<List<int[]>> codes = new ArrayList<>();
+        List<List<List<String>>> totals = null;
+
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = jp.getCurrentName();
+            final JsonToken token = jp.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "data":
+                    columns = readData(jp, initialCapacity(paging));
+                    break;
+                case "paging":
+                    paging = ctxt.readValue(jp, Paging.class);
+                    break;
+                case "headerItems":
+                    readHeaderItems(jp, dictionaries, codes);
+                    break;
+                case "totals":
+                    final JavaType totalsType = ctxt.getTypeFactory().constructType(TOTALS_TYPE);
+                    totals = ctxt.readValue(jp, totalsType);
+                    break;
+                default:
+                    jp.skipChildren();
+            }
+        }
+        expect(jp, jp.currentToken(), JsonToken.END_OBJECT);
+        expect(jp, jp.nextToken(), JsonToken.END_OBJECT);
+
+        if (columns == null) {
+            columns = new Columns(0);
+        }
+        return new ColumnarExecutionResult(paging, columns.rows, columns.trimValues(), columns.trimNulls(),
+                dictionaries, codes, totals);
+    }
+
+    private static int initialCapacity(final Paging paging) {
+        if (paging != null && paging.getCount() != null && !paging.getCount().isEmpty()) {
+            return Math.max(paging.getCount().get(0), 1);
+        }
+        return DEFAULT_CAPACITY;
+    }
+
+    private static Columns readData(final JsonParser jp, final int capacity)
+            throws IOException {
+        expect(jp, jp.currentToken(), JsonToken.START_ARRAY);
+        final Columns columns = new Columns(capacity);
+        final Row row = new Row();
+        JsonToken token = jp.nextToken();
+        while (token != JsonToken.END_ARRAY) {
+            row.clear();
+            if (token == JsonToken.START_ARRAY) {
+                // two dimensional data, the array is a row
+                while ((token = jp.nextToken()) != JsonToken.END_ARRAY) {
+                    readValue(jp, token, row);
+                }
+            } else {
+                // one dimensional data, each value forms a row of the single column
+                readValue(jp, token, row);
+            }
+            if (!columns.add(row)) {
+                throw JsonMappingException.from(jp, format("Execution result row %d has %d values, expected %d",
+                        columns.rows, row.size, columns.count));
+            }
+            token = jp.nextToken();
+        }
+        return columns;
+    }
+
+    private static void readValue(final JsonParser jp, final JsonToken token,
+                                  final Row row) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                row.addNull();
+                break;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                row.add(jp.getDoubleValue());
+                break;
+            case VALUE_STRING:
+                try {
+                    row.add(Double.parseDouble(jp.getText()));
+                } catch (NumberFormatException e) {
+                    throw JsonMappingException.from(jp, format("Execution result value is not a number: %s",
+                            jp.getText()));
+                }
+                break;
+            default:
+                throw JsonMappingException.from(jp, format("Unexpected execution result value %s", token));
+        }
+    }
+
+    private static void readHeaderItems(final JsonParser jp, final List<List<List<ResultHeaderItem>>> dictionaries,
+                                        final List<List<int[]>> codes) throws IOException {
+        expect(jp, jp.currentToken(), JsonToken.START_ARRAY);
+        while (jp.nextToken() != JsonToken.END_ARRAY) {
+            expect(jp, jp.currentToken(), JsonToken.START_ARRAY);
+            final List<List<ResultHeaderItem>> dimensionDictionaries = new ArrayList<>();
+            final List<int[]> dimensionCodes = new ArrayList<>();
+            while (jp.nextToken() != JsonToken.END_ARRAY) {
+                expect(jp, jp.currentToken(), JsonToken.START_ARRAY);
+                final List<ResultHeaderItem> dictionary = new ArrayList<>();
+                final Map<String, Integer> index = new HashMap<>();
+                int[] headerCodes = new int[DEFAULT_CAPACITY];
+                int size = 0;
+                while (jp.nextToken() != JsonToken.END_ARRAY) {
+                    if (size == headerCodes.length) {
+                        headerCodes = Arrays.copyOf(headerCodes, size * 2);
+                    }
+                    headerCodes[size++] = readHeaderItem(jp, dictionary, index);
+                }
+                dimensionDictionaries.add(dictionary);
+                dimensionCodes.add(Arrays.copyOf(headerCodes, size));
+            }
+            dictionaries.add(dimensionDictionaries);
+            codes.add(dimensionCodes);
+        }
+    }
+
+    private static int readHeaderItem(final JsonParser jp, final List<ResultHeaderItem> dictionary,
+                                      final Map<String, Integer> index) throws IOException {
+        expect(jp, jp.currentToken(), JsonToken.START_OBJECT);
+        expect(jp, jp.nextToken(), JsonToken.FIELD_NAME);
+        final String itemType = jp.getCurrentName();
+        expect(jp, jp.nextToken(), JsonToken.START_OBJECT);
+
+        String name = null;
+        String detail = null;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = jp.getCurrentName();
+            jp.nextToken();
+            switch (field) {
+                case "name":
+                    name = jp.getValueAsString();
+                    break;
+                case "uri":
+                case "order":
+                case "type":
+                    detail = jp.getValueAsString();
+                    break;
+                default:
+                    jp.skipChildren();
+            }
+        }
+        expect(jp, jp.nextToken(), JsonToken.END_OBJECT);
+
+        final String key = itemType + '\u0000' + name + '\u0000' + detail;
+        final Integer code = index.get(key);
+        if (code != null) {
+            return code;
+        }
+        dictionary.add(createHeaderItem(jp, itemType, name, detail));
+        index.put(key, dictionary.size() - 1);
+        return dictionary.size() - 1;
+    }
+
+    private static ResultHeaderItem createHeaderItem(final JsonParser jp, final String itemType,
+                                                     final String name, final String detail) throws IOException {
+        try {
+            switch (itemType) {
+                case AttributeHeaderItem.NAME:
+                    return new AttributeHeaderItem(name, detail);
+                case ResultMeasureHeaderItem.NAME:
+                    return new ResultMeasureHeaderItem(name, Integer.parseInt(detail));
+                case ResultTotalHeaderItem.NAME:
+                    return new ResultTotalHeaderItem(name, detail);
+                default:
+                    throw JsonMappingException.from(jp, format("Unknown header item type %s", itemType));
+            }
+        } catch (IllegalArgumentException e) {
+            throw JsonMappingException.from(jp, format("Invalid header item %s: %s", itemType, e.getMessage()));
+        }
+    }
+
+    private static void expect(final JsonParser jp, final JsonToken actual,
+                               final JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw JsonMappingException.from(jp, format("Unexpected execution result structure, expected %s but got %s",
+                    expected, actual));
+        }
+    }
+
+    /**
+     * Values of a single data row, reused for all the rows.
+     */
+    private static class Row {
+        private double[] values = new double[DEFAULT_CAPACITY];
+        private boolean[] nulls = new boolean[DEFAULT_CAPACITY];
+        private int size;
+
+        private void clear() {
+            size = 0;
+        }
+
+        private void add(final double value) {
+            ensureCapacity();
+            values[size] = value;
+            nulls[size++] = false;
+        }
+
+        private void addNull() {
+            ensureCapacity();
+            values[size] = Double.NaN;
+            nulls[size++] = true;
+        }
+
+        private void ensureCapacity() {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                nulls = Arrays.copyOf(nulls, size * 2);
+            }
+        }
+    }
+
+    /**
+     * Growable column arrays, the number of columns is given by the first row.
+     */
+    private static class Columns {
+        private int capacity;
+        private int count = -1;
+        private int rows;
+        private double[][] values = new double[0][];
+        private long[][] nulls = new long[0][];
+
+        private Columns(final int capacity) {
+            this.capacity = Math.max(capacity, 1);
+        }
+
+        /**
+         * @return false when the row doesn't have the expected number of values
+         */
+        private boolean add(final Row row) {
+            if (count < 0) {
+                count = row.size;
+                values = new double[count][capacity];
+                nulls = new long[count][bitmapLength(capacity)];
+            } else if (row.size != count) {
+                return false;
+            }
+            if (rows == capacity) {
+                capacity *= 2;
+                for (int column = 0; column < count; column++) {
+                    values[column] = Arrays.copyOf(values[column], capacity);
+                    nulls[column] = Arrays.copyOf(nulls[column], bitmapLength(capacity));
+                }
+            }
+            for (int column = 0; column < count; column++) {
+                values[column][rows] = row.values[column];
+                if (row.nulls[column]) {
+                    nulls[column][rows >>> 6] |= 1L << rows;
+                }
+            }
+            rows++;
+            return true;
+        }
+
+        private double[][] trimValues() {
+            for (int column = 0; column < values.length; column++) {
+                if (values[column].length != rows) {
+                    values[column] = Arrays.copyOf(values[column], rows);
+                }
+            }
+            return values;
+        }
+
+        private long[][] trimNulls() {
+            for (int column = 0; column < nulls.length; column++) {
+                nulls[column] = Arrays.copyOf(nulls[column], bitmapLength(rows));
+            }
+            return nulls;
+        }
+
+        private static int bitmapLength(final int bits) {
+            return (bits + 63) >>> 6;
+        }
+    }
+}
@@ -75,6 +75,14 @@ public class ExecutionResult {
         this.totals = totals;
     }
 
+    /**
+     * @return result data, list of values for one dimensional result or list of rows (lists of values)
+     * for two dimensional result
+     */
+    public List<?> getData() {
+        return data;
+    }
+
     /**
      * @return result paging
      */
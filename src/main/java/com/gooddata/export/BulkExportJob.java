@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.export;
+
+import com.gooddata.md.AbstractObj;
+import com.gooddata.md.report.Report;
+import com.gooddata.md.report.ReportDefinition;
+import com.gooddata.util.GoodDataToStringBuilder;
+
+import java.nio.file.Path;
+
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Export of single report (definition) to a file, processed by {@link BulkExporter}.
+ */
+public class BulkExportJob {
+
+    private final AbstractObj report;
+    private final ReportRequest request;
+    private final ExportFormat format;
+    private final Path target;
+
+    /**
+     * Creates new job exporting the given report
+     * @param report report
+     * @param format export format
+     * @param target target file, overwritten when exists
+     */
+    public BulkExportJob(final Report report, final ExportFormat format, final Path target) {
+        this(report, new ExecuteReport(notNull(report, "report")), format, target);
+    }
+
+    /**
+     * Creates new job exporting the given report definition
+     * @param reportDefinition report definition
+     * @param format export format
+     * @param target target file, overwritten when exists
+     */
+    public BulkExportJob(final ReportDefinition reportDefinition, final ExportFormat format, final Path target) {
+        this(reportDefinition, new ExecuteReportDefinition(notNull(reportDefinition, "reportDefinition")), format,
+                target);
+    }
+
+    private BulkExportJob(final AbstractObj report, final ReportRequest request, final ExportFormat format,
+                          final Path target) {
+        this.report = report;
+        this.request = request;
+        this.format = notNull(format, "format");
+        this.target = notNull(target, "target");
+    }
+
+    /**
+     * @return exported {@link Report} or {@link ReportDefinition}
+     */
+    public AbstractObj getReport() {
+        return report;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public Path getTarget() {
+        return target;
+    }
+
+    ReportRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public String toString() {
+        return GoodDataToStringBuilder.defaultToString(this, "request");
+    }
+}
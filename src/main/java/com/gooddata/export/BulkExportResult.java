@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.export;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.util.GoodDataToStringBuilder;
+
+/**
+ * Result of {@link BulkExportJob} with the latency breakdown of its stages. Stage durations include the retries,
+ * but not the time the job waited for a free slot of the stage.
+ */
+public class BulkExportResult {
+
+    private final BulkExportJob job;
+    private final GoodDataException failure;
+    private final int attempts;
+    private final long executeMillis;
+    private final long exportMillis;
+    private final long pollMillis;
+    private final long totalMillis;
+
+    BulkExportResult(final BulkExportJob job, final GoodDataException failure, final int attempts,
+                     final long executeMillis, final long exportMillis, final long pollMillis, final long totalMillis) {
+        this.job = job;
+        this.failure = failure;
+        this.attempts = attempts;
+        this.executeMillis = executeMillis;
+        this.exportMillis = exportMillis;
+        this.pollMillis = pollMillis;
+        this.totalMillis = totalMillis;
+    }
+
+    public BulkExportJob getJob() {
+        return job;
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * @return failure of the job, null when the job succeeded
+     */
+    public GoodDataException getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return number of requests made by the stages, including the retries
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return time spent by the report execution
+     */
+    public long getExecuteMillis() {
+        return executeMillis;
+    }
+
+    /**
+     * @return time spent by starting the export of the execution result
+     */
+    public long getExportMillis() {
+        return exportMillis;
+    }
+
+    /**
+     * @return time spent by polling the export and downloading it to the target file
+     */
+    public long getPollMillis() {
+        return pollMillis;
+    }
+
+    /**
+     * @return time from the job submission to its completion
+     */
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * @return time the job waited for free slots of the stages
+     */
+    public long getWaitMillis() {
+        return Math.max(0, totalMillis - executeMillis - exportMillis - pollMillis);
+    }
+
+    @Override
+    public String toString() {
+        return GoodDataToStringBuilder.defaultToString(this);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.export;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.GoodDataRestException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.noNullElements;
+import static com.gooddata.util.Validate.notNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Exports many reports to files, pipelining the report execution, the export start and the export polling
+ * (including the download) of the jobs. Each of the stages has its own limit of concurrently processed jobs.
+ * <p>
+ * Transient failures (I/O errors, HTTP 5xx and 429 responses) are retried with exponential backoff, the other
+ * failures fail the job without affecting the other jobs.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     BulkExporter exporter = new BulkExporter(gd.getExportService(), 4, 4, 16);
+ *     for (BulkExportResult result : exporter.export(jobs)) {
+ *         if (!result.isSuccess()) { ... }
+ *     }
+ * </code></pre>
+ */
+public class BulkExporter {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_RETRY_BACKOFF_MILLIS = 1000;
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final ExportService service;
+    private final int executeConcurrency;
+    private final int exportConcurrency;
+    private final int pollConcurrency;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+
+    /**
+     * Creates new exporter retrying the transient failures {@link #DEFAULT_MAX_ATTEMPTS} times
+     * @param service export service
+     * @param executeConcurrency maximal number of concurrent report executions
+     * @param exportConcurrency maximal number of concurrently started exports
+     * @param pollConcurrency maximal number of concurrently polled and downloaded exports
+     */
+    public BulkExporter(final ExportService service, final int executeConcurrency, final int exportConcurrency,
+                        final int pollConcurrency) {
+        this(service, executeConcurrency, exportConcurrency, pollConcurrency, DEFAULT_MAX_ATTEMPTS,
+                DEFAULT_RETRY_BACKOFF_MILLIS);
+    }
+
+    /**
+     * Creates new exporter
+     * @param service export service
+     * @param executeConcurrency maximal number of concurrent report executions
+     * @param exportConcurrency maximal number of concurrently started exports
+     * @param pollConcurrency maximal number of concurrently polled and downloaded exports
+     * @param maxAttempts maximal number of attempts of each stage of the job
+     * @param retryBackoffMillis delay before the first retry, doubled for each next retry
+     */
+    public BulkExporter(final ExportService service, final int executeConcurrency, final int exportConcurrency,
+                        final int pollConcurrency, final int maxAttempts, final long retryBackoffMillis) {
+        this.service = notNull(service, "service");
+        isTrue(executeConcurrency > 0, "executeConcurrency must be greater than zero");
+        isTrue(exportConcurrency > 0, "exportConcurrency must be greater than zero");
+        isTrue(pollConcurrency > 0, "pollConcurrency must be greater than zero");
+        isTrue(maxAttempts > 0, "maxAttempts must be greater than zero");
+        isTrue(retryBackoffMillis >= 0, "retryBackoffMillis must not be negative");
+        this.executeConcurrency = executeConcurrency;
+        this.exportConcurrency = exportConcurrency;
+        this.pollConcurrency = pollConcurrency;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    /**
+     * Exports the given jobs, blocks until all of them are finished. The number of jobs in progress is limited
+     * by the sum of the stage limits, so the jobs are submitted as the previous ones finish.
+     *
+     * @param jobs jobs to export
+     * @return results of the jobs, in the order of the given jobs
+     * @throws ExportException when interrupted
+     */
+    public List<BulkExportResult> export(final Collection<BulkExportJob> jobs) {
+        noNullElements(jobs, "jobs");
+
+        final ExecutorService executePool = Executors.newFixedThreadPool(executeConcurrency);
+        final ExecutorService exportPool = Executors.newFixedThreadPool(exportConcurrency);
+        final ExecutorService pollPool = Executors.newFixedThreadPool(pollConcurrency);
+        final Semaphore inProgress = new Semaphore(executeConcurrency + exportConcurrency + pollConcurrency);
+        final List<CompletableFuture<BulkExportResult>> results = new ArrayList<>(jobs.size());
+        try {
+            for (BulkExportJob job : jobs) {
+                inProgress.acquire();
+                final JobExecution execution = new JobExecution(job);
+                results.add(CompletableFuture
+                        .supplyAsync(execution::execute, executePool)
+                        .thenApplyAsync(execution::startExport, exportPool)
+                        .thenAcceptAsync(execution::await, pollPool)
+                        .handle((ignored, failure) -> {
+                            inProgress.release();
+                            return execution.result(failure);
+                        }));
+            }
+            return results.stream().map(CompletableFuture::join).collect(toList());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExportException("Interrupted while exporting reports", e);
+        } finally {
+            executePool.shutdownNow();
+            exportPool.shutdownNow();
+            pollPool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return true when the failure (or its cause) is worth retrying
+     */
+    static boolean isTransient(final Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ResourceAccessException) {
+                return true;
+            }
+            if (cause instanceof GoodDataRestException) {
+                final int status = ((GoodDataRestException) cause).getStatusCode();
+                return status >= 500 || status == TOO_MANY_REQUESTS;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * State of single job, its stages are run one after another (possibly by different threads).
+     */
+    private class JobExecution {
+        private final BulkExportJob job;
+        private final long submitted = System.currentTimeMillis();
+        private int attempts;
+        private long executeMillis;
+        private long exportMillis;
+        private long pollMillis;
+
+        private JobExecution(final BulkExportJob job) {
+            this.job = job;
+        }
+
+        private byte[] execute() {
+            final long start = System.currentTimeMillis();
+            try {
+                return retry(() -> service.executeReportResult(ReportRequest.URI, job.getRequest()));
+            } finally {
+                executeMillis = System.currentTimeMillis() - start;
+            }
+        }
+
+        private String startExport(final byte[] execResult) {
+            final long start = System.currentTimeMillis();
+            try {
+                return retry(() -> service.exportReport(execResult, job.getFormat()));
+            } finally {
+                exportMillis = System.currentTimeMillis() - start;
+            }
+        }
+
+        private void await(final String uri) {
+            final long start = System.currentTimeMillis();
+            try {
+                retry(() -> service.awaitExport(uri, service.fileTarget(job.getTarget())).get());
+            } finally {
+                pollMillis = System.currentTimeMillis() - start;
+            }
+        }
+
+        private <T> T retry(final Supplier<T> stage) {
+            for (int attempt = 1; ; attempt++) {
+                attempts++;
+                try {
+                    return stage.get();
+                } catch (GoodDataException | RestClientException e) {
+                    if (attempt >= maxAttempts || !isTransient(e)) {
+                        throw e;
+                    }
+                }
+                try {
+                    Thread.sleep(retryBackoffMillis << (attempt - 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ExportException("Interrupted while exporting report", e);
+                }
+            }
+        }
+
+        private BulkExportResult result(final Throwable failure) {
+            return new BulkExportResult(job, toGoodDataException(failure), attempts, executeMillis, exportMillis,
+                    pollMillis, System.currentTimeMillis() - submitted);
+        }
+
+        private GoodDataException toGoodDataException(final Throwable failure) {
+            final Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            if (cause == null || cause instanceof GoodDataException) {
+                return (GoodDataException) cause;
+            }
+            return new ExportException("Unable to export report " + job.getReport().getUri(), cause);
+        }
+    }
+}
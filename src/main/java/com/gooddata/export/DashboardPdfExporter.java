@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.export;
+
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import com.gooddata.md.ProjectDashboard;
+import com.gooddata.md.ProjectDashboard.Tab;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.noNullElements;
+import static com.gooddata.util.Validate.notNull;
+import static java.lang.String.format;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Exports all the tabs of dashboards in PDF format. The exports of the tabs are started concurrently and then polled
+ * together by single thread, each finished tab is downloaded to its file immediately (the download is resumed
+ * when interrupted, see {@link ExportService#exportPdfToFile(ProjectDashboard, Tab, Path)}).
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     DashboardPdfExporter exporter = new DashboardPdfExporter(gd.getExportService(), 8);
+ *     List&lt;Path&gt; files = exporter.export(dashboards, Paths.get("/tmp/dashboards"));
+ * </code></pre>
+ */
+public class DashboardPdfExporter {
+
+    public static final long DEFAULT_TIMEOUT_MINUTES = 30;
+
+    private final ExportService service;
+    private final int concurrency;
+    private final long timeoutMillis;
+
+    /**
+     * Creates new exporter waiting up to {@link #DEFAULT_TIMEOUT_MINUTES} for the exports of each call
+     * @param service export service
+     * @param concurrency maximal number of concurrently started tab exports
+     */
+    public DashboardPdfExporter(final ExportService service, final int concurrency) {
+        this(service, concurrency, DEFAULT_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Creates new exporter
+     * @param service export service
+     * @param concurrency maximal number of concurrently started tab exports
+     * @param timeout maximal time to wait for the exports of each call, the tabs not exported in time fail
+     * @param unit unit of the timeout
+     */
+    public DashboardPdfExporter(final ExportService service, final int concurrency, final long timeout,
+                                final TimeUnit unit) {
+        this.service = notNull(service, "service");
+        isTrue(concurrency > 0, "concurrency must be greater than zero");
+        isTrue(timeout > 0, "timeout must be greater than zero");
+        this.concurrency = concurrency;
+        this.timeoutMillis = notNull(unit, "unit").toMillis(timeout);
+    }
+
+    /**
+     * Exports all the tabs of the given dashboard, each to its own file {@code <dashboard id>-<tab identifier>.pdf}
+     * in the given directory.
+     *
+     * @param dashboard dashboard
+     * @param directory target directory
+     * @return the written files, in the order of the tabs
+     * @throws ExportException when export of some of the tabs fails (the other tabs are exported)
+     */
+    public List<Path> export(final ProjectDashboard dashboard, final Path directory) {
+        notNull(dashboard, "dashboard");
+        return export(singletonList(dashboard), directory);
+    }
+
+    /**
+     * Exports all the tabs of the given dashboards, each to its own file {@code <dashboard id>-<tab identifier>.pdf}
+     * in the given directory.
+     *
+     * @param dashboards dashboards
+     * @param directory target directory
+     * @return the written files, in the order of the dashboards and their tabs
+     * @throws ExportException when export of some of the tabs fails (the other tabs are exported)
+     */
+    public List<Path> export(final Collection<ProjectDashboard> dashboards, final Path directory) {
+        noNullElements(dashboards, "dashboards");
+        notNull(directory, "directory");
+
+        final List<TabExport> exports = new ArrayList<>();
+        for (ProjectDashboard dashboard : dashboards) {
+            for (Tab tab : dashboard.getTabs()) {
+                exports.add(new TabExport(dashboard, tab,
+                        directory.resolve(dashboard.getId() + '-' + tab.getIdentifier() + ".pdf")));
+            }
+        }
+        if (exports.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, exports.size()));
+        try {
+            for (TabExport export : exports) {
+                export.task = CompletableFuture.supplyAsync(
+                        () -> service.exportPdfToFile(export.dashboard, export.tab, export.file), executor);
+            }
+            poll(exports);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final List<TabExport> failed = exports.stream().filter(e -> e.failure != null).collect(toList());
+        if (!failed.isEmpty()) {
+            throw new ExportException(format("Unable to export %d of %d dashboard tabs: %s", failed.size(),
+                    exports.size(), failed), failed.get(0).failure);
+        }
+        return exports.stream().map(e -> e.file).collect(toList());
+    }
+
+    /**
+     * Exports all the tabs of the given dashboard to the ZIP archive written to the given output, the archive entries
+     * follow the order of the tabs. The output is finished, but not closed.
+     *
+     * @param dashboard dashboard
+     * @param output target
+     * @throws ExportException when export of some of the tabs fails
+     */
+    public void exportZip(final ProjectDashboard dashboard, final OutputStream output) {
+        notNull(dashboard, "dashboard");
+        notNull(output, "output");
+
+        Path directory = null;
+        try {
+            directory = Files.createTempDirectory("dashboard-export");
+            final List<Path> files = export(dashboard, directory);
+            final ZipOutputStream zip = new ZipOutputStream(output);
+            int index = 0;
+            for (Path file : files) {
+                zip.putNextEntry(new ZipEntry(format("%02d-%s", ++index, file.getFileName())));
+                Files.copy(file, zip);
+                zip.closeEntry();
+            }
+            zip.finish();
+        } catch (IOException e) {
+            throw new ExportException("Unable to export dashboard: " + dashboard.getUri(), e);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Polls all the exports round by round, one poll of each started export in a round, until all of them
+     * are finished or failed or the timeout expires.
+     */
+    private void poll(final List<TabExport> exports) {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        final List<TabExport> pending = new LinkedList<>(exports);
+        while (!pending.isEmpty()) {
+            for (Iterator<TabExport> iterator = pending.iterator(); iterator.hasNext(); ) {
+                final TabExport export = iterator.next();
+                if (!export.task.isDone()) {
+                    continue;
+                }
+                try {
+                    final FutureResult<Void> result = export.task.join();
+                    if (result.isDone()) {
+                        result.get();
+                        iterator.remove();
+                    }
+                } catch (CompletionException e) {
+                    export.failure = e.getCause();
+                    iterator.remove();
+                } catch (GoodDataException | RestClientException e) {
+                    export.failure = e;
+                    iterator.remove();
+                }
+            }
+            if (!pending.isEmpty() && System.currentTimeMillis() > deadline) {
+                for (TabExport export : pending) {
+                    export.failure = new ExportException("Timeout while exporting dashboard tab: " + export);
+                }
+                return;
+            }
+            if (!pending.isEmpty()) {
+                try {
+                    Thread.sleep(service.getPollSleep());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ExportException("Interrupted while exporting dashboards", e);
+                }
+            }
+        }
+    }
+
+    private static void delete(final Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException ignored) {
+            // temporary files, nothing to do
+        }
+    }
+
+    private static class TabExport {
+        private final ProjectDashboard dashboard;
+        private final Tab tab;
+        private final Path file;
+        private CompletableFuture<FutureResult<Void>> task;
+        private Throwable failure;
+
+        private TabExport(final ProjectDashboard dashboard, final Tab tab, final Path file) {
+            this.dashboard = dashboard;
+            this.tab = tab;
+            this.file = file;
+        }
+
+        @Override
+        public String toString() {
+            return dashboard.getUri() + '#' + tab.getIdentifier();
+        }
+    }
+}
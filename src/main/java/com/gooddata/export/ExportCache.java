@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.export;
+
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import com.gooddata.dataset.DatasetService;
+import com.gooddata.dataset.Upload;
+import com.gooddata.md.AbstractObj;
+import com.gooddata.md.report.Report;
+import com.gooddata.md.report.ReportDefinition;
+import com.gooddata.project.Project;
+import com.gooddata.util.Sha256;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Local disk cache of report exports, avoiding repeated exports of reports whose data didn't change.
+ * <p>
+ * Exports are keyed by the uri and the last update of the report (definition), the export format and the last data
+ * loads of the project (as returned by {@link DatasetService#getLastUploads(Project)}), so any data load started
+ * since the export was cached causes a miss. The exports are stored as files in the given directory, the total size
+ * of the files is limited, the least recently used export is evicted first. The files found in the directory on
+ * creation are reused, so the cache survives restarts of the application.
+ * <p>
+ * Note the last data loads are cached by {@link DatasetService} when it's configured so, a data load finished within
+ * the cache time to live of {@link DatasetService} isn't noticed.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     ExportCache cache = new ExportCache(gd.getExportService(), gd.getDatasetService(), cacheDir, 1L << 30);
+ *     cache.export(project, report, ExportFormat.XLSX, output);
+ *     double hitRatio = cache.getHitRatio();
+ * </code></pre>
+ */
+public class ExportCache {
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final ExportService exportService;
+    private final DatasetService datasetService;
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates new cache, the exports already stored in the given directory are reused
+     * @param exportService service used to export the report on cache miss
+     * @param datasetService service used to get the last data loads of the project
+     * @param directory directory the exports are stored to, created when doesn't exist
+     * @param maxBytes maximal total size of the stored exports
+     * @throws ExportException when the directory can't be read or created
+     */
+    public ExportCache(final ExportService exportService, final DatasetService datasetService, final Path directory,
+                       final long maxBytes) {
+        this.exportService = notNull(exportService, "exportService");
+        this.datasetService = notNull(datasetService, "datasetService");
+        this.directory = notNull(directory, "directory");
+        isTrue(maxBytes > 0, "maxBytes must be greater than zero");
+        this.maxBytes = maxBytes;
+        load();
+    }
+
+    /**
+     * Writes the export of the given report in the given format to the given output, exporting the report only
+     * when the export isn't cached yet. Blocks until the export is written. The output is not closed.
+     *
+     * @param project project of the report
+     * @param report report
+     * @param format export format
+     * @param output target
+     * @throws NoDataExportException in case report contains no data
+     * @throws ExportException on error
+     */
+    public void export(final Project project, final Report report, final ExportFormat format,
+                       final OutputStream output) {
+        notNull(report, "report");
+        export(project, report, format, output, file -> exportService.exportToFile(report, format, file));
+    }
+
+    /**
+     * Writes the export of the given report definition in the given format to the given output, exporting
+     * the report definition only when the export isn't cached yet. Blocks until the export is written.
+     * The output is not closed.
+     *
+     * @param project project of the report definition
+     * @param reportDefinition stored report definition
+     * @param format export format
+     * @param output target
+     * @throws NoDataExportException in case report contains no data
+     * @throws ExportException on error
+     */
+    public void export(final Project project, final ReportDefinition reportDefinition, final ExportFormat format,
+                       final OutputStream output) {
+        notNull(reportDefinition, "reportDefinition");
+        export(project, reportDefinition, format, output,
+                file -> exportService.exportToFile(reportDefinition, format, file));
+    }
+
+    private void export(final Project project, final AbstractObj report, final ExportFormat format,
+                        final OutputStream output, final Exporter exporter) {
+        notNull(project, "project");
+        notNull(report.getUri(), "report.uri");
+        notNull(format, "format");
+        notNull(output, "output");
+
+        final String key = key(project, report, format);
+        try {
+            InputStream cached = open(key);
+            record(cached != null);
+            if (cached == null) {
+                cached = store(key, exporter);
+            }
+            try (InputStream input = cached) {
+                copy(input, output);
+            }
+        } catch (IOException e) {
+            throw new ExportException("Unable to export report " + report.getUri(), e);
+        }
+    }
+
+    /**
+     * Opens the cached export, updating its last use.
+     * @return the export stream or null when the export isn't cached
+     */
+    private synchronized InputStream open(final String key) throws IOException {
+        if (entries.get(key) == null) {
+            return null;
+        }
+        final Path file = file(key);
+        try {
+            final InputStream input = Files.newInputStream(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return input;
+        } catch (NoSuchFileException e) {
+            // deleted by someone else
+            totalBytes -= entries.remove(key);
+            return null;
+        }
+    }
+
+    private synchronized void record(final boolean hit) {
+        if (hit) {
+            hits++;
+        } else {
+            misses++;
+        }
+    }
+
+    /**
+     * Exports the report to the cache.
+     * @return the stored export stream
+     */
+    private InputStream store(final String key, final Exporter exporter) throws IOException {
+        final Path tmp = Files.createTempFile(directory, "export", TMP_SUFFIX);
+        try {
+            exporter.export(tmp).get();
+            final long size = Files.size(tmp);
+            synchronized (this) {
+                Files.move(tmp, file(key), REPLACE_EXISTING, ATOMIC_MOVE);
+                final Long previous = entries.put(key, size);
+                totalBytes += size - (previous != null ? previous : 0);
+                evict(key);
+                return Files.newInputStream(file(key));
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Evicts the least recently used exports until the total size fits the limit, keeping the given one.
+     */
+    private void evict(final String keep) throws IOException {
+        for (Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+             it.hasNext() && totalBytes > maxBytes; ) {
+            final Map.Entry<String, Long> eldest = it.next();
+            if (!eldest.getKey().equals(keep)) {
+                Files.deleteIfExists(file(eldest.getKey()));
+                totalBytes -= eldest.getValue();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Indexes the exports stored in the directory, ordered by their last use.
+     */
+    private void load() {
+        try {
+            Files.createDirectories(directory);
+            final List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path file : stream) {
+                    if (file.getFileName().toString().endsWith(TMP_SUFFIX)) {
+                        // left by interrupted export
+                        Files.deleteIfExists(file);
+                    } else if (Files.isRegularFile(file)) {
+                        files.add(file);
+                    }
+                }
+            }
+            final Map<FileTime, List<Path>> byLastUse = new TreeMap<>();
+            for (Path file : files) {
+                byLastUse.computeIfAbsent(Files.getLastModifiedTime(file), t -> new ArrayList<>()).add(file);
+            }
+            for (List<Path> sameTime : byLastUse.values()) {
+                for (Path file : sameTime) {
+                    final long size = Files.size(file);
+                    entries.put(file.getFileName().toString(), size);
+                    totalBytes += size;
+                }
+            }
+            evict(null);
+        } catch (IOException e) {
+            throw new ExportException("Unable to read export cache directory " + directory, e);
+        }
+    }
+
+    private String key(final Project project, final AbstractObj report, final ExportFormat format) {
+        final StringBuilder key = new StringBuilder()
+                .append(report.getUri()).append('\n')
+                .append(report.getUpdated()).append('\n')
+                .append(format).append('\n');
+        // any new (or finished) data load changes the key
+        final Map<String, Upload> lastUploads;
+        try {
+            lastUploads = new TreeMap<>(datasetService.getLastUploads(project));
+        } catch (GoodDataException e) {
+            throw new ExportException("Unable to get last data loads of project " + project.getId(), e);
+        }
+        for (Map.Entry<String, Upload> upload : lastUploads.entrySet()) {
+            key.append(upload.getKey()).append(' ')
+                    .append(upload.getValue().getUri()).append(' ')
+                    .append(upload.getValue().getStatus()).append('\n');
+        }
+        return Sha256.hash(key.toString()) + '.' + format.getValue();
+    }
+
+    private Path file(final String key) {
+        return directory.resolve(key);
+    }
+
+    private static void copy(final InputStream input, final OutputStream output) throws IOException {
+        final byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return total size of the stored exports in bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return ratio of the exports served from the cache, zero when nothing was exported yet
+     */
+    public synchronized double getHitRatio() {
+        final long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @FunctionalInterface
+    private interface Exporter {
+        FutureResult<Void> export(Path file);
+    }
+}
@@ -5,8 +5,10 @@
  */
 package com.gooddata.export;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.gooddata.AbstractService;
 import com.gooddata.FutureResult;
 import com.gooddata.GoodDataEndpoint;
@@ -23,14 +25,16 @@ import com.gooddata.md.ProjectDashboard.Tab;
 import com.gooddata.md.report.Report;
 import com.gooddata.md.report.ReportDefinition;
 import com.gooddata.project.Project;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Path;
 
 import static com.gooddata.md.Obj.OBJ_TEMPLATE;
 import static com.gooddata.util.Validate.notNull;
@@ -89,7 +93,25 @@ public class ExportService extends AbstractService {
                                      final OutputStream output) {
         notNull(reportDefinition, "reportDefinition");
         final ReportRequest request = new ExecuteReportDefinition(reportDefinition);
-        return exportReport(request, format, output);
+        return exportReport(request, format, streamTarget(output));
+    }
+
+    /**
+     * Export the given report definition in the given format to the given file. The download of the finished export
+     * is resumed when interrupted.
+     *
+     * @param reportDefinition report definition
+     * @param format           export format
+     * @param file             target file, overwritten when exists
+     * @return polling result
+     * @throws NoDataExportException in case report contains no data
+     * @throws ExportException       on error
+     */
+    public FutureResult<Void> exportToFile(final ReportDefinition reportDefinition, final ExportFormat format,
+                                           final Path file) {
+        notNull(reportDefinition, "reportDefinition");
+        final ReportRequest request = new ExecuteReportDefinition(reportDefinition);
+        return exportReport(request, format, fileTarget(file));
     }
 
     /**
@@ -106,14 +128,40 @@ public class ExportService extends AbstractService {
                                      final OutputStream output) {
         notNull(report, "report");
         final ReportRequest request = new ExecuteReport(report);
-        return exportReport(request, format, output);
+        return exportReport(request, format, streamTarget(output));
     }
 
-    private FutureResult<Void> exportReport(final ReportRequest request, final ExportFormat format, final OutputStream output) {
-        notNull(output, "output");
+    /**
+     * Export the given report in the given format to the given file. The download of the finished export
+     * is resumed when interrupted.
+     *
+     * @param report report
+     * @param format export format
+     * @param file   target file, overwritten when exists
+     * @return polling result
+     * @throws NoDataExportException in case report contains no data
+     * @throws ExportException       on error
+     */
+    public FutureResult<Void> exportToFile(final Report report, final ExportFormat format, final Path file) {
+        notNull(report, "report");
+        final ReportRequest request = new ExecuteReport(report);
+        return exportReport(request, format, fileTarget(file));
+    }
+
+    private FutureResult<Void> exportReport(final ReportRequest request, final ExportFormat format,
+                                            final ExportTarget target) {
         notNull(format, "format");
-        final JsonNode execResult = executeReport(ReportRequest.URI, request);
+        final byte[] execResult = executeReportResult(ReportRequest.URI, request);
         final String uri = exportReport(execResult, format);
+        return awaitExport(uri, target);
+    }
+
+    /**
+     * Polls the started report export and downloads it to the given target when finished
+     */
+    FutureResult<Void> awaitExport(final String uri, final ExportTarget target) {
+        notNull(uri, "uri");
+        notNull(target, "target");
         return new PollResult<>(this, new SimplePollHandler<Void>(uri, Void.class) {
             @Override
             public boolean isFinished(ClientHttpResponse response) throws IOException {
@@ -137,7 +185,7 @@ public class ExportService extends AbstractService {
             @Override
             protected void onFinish() {
                 try {
-                    restTemplate.execute(uri, GET, null, new OutputStreamResponseExtractor(output));
+                    target.download(URI.create(uri));
                 } catch (GoodDataException | RestClientException e) {
                     throw new ExportException("Unable to export report", e);
                 }
@@ -145,35 +193,75 @@ public class ExportService extends AbstractService {
         });
     }
 
+    /**
+     * Executes the report
+     * @deprecated the execution result is passed to the export as is, use the export methods
+     */
+    @Deprecated
     protected JsonNode executeReport(final String executionUri, final ReportRequest request) {
         try {
-            final ResponseEntity<String> entity = restTemplate
-                    .exchange(executionUri, POST, new HttpEntity<>(request), String.class);
-            return mapper.readTree(entity.getBody());
-        } catch (GoodDataException | RestClientException e) {
-            throw new ExportException("Unable to execute report", e);
+            return mapper.readTree(executeReportResult(executionUri, request));
         } catch (IOException e) {
             throw new ExportException("Unable to read execution result", e);
         }
     }
 
-    private String exportReport(final JsonNode execResult, final ExportFormat format) {
+    /**
+     * Executes the report
+     * @return raw JSON of the execution result
+     */
+    byte[] executeReportResult(final String executionUri, final ReportRequest request) {
+        try {
+            return restTemplate.execute(executionUri, POST, req -> {
+                req.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                mapper.writeValue(StreamUtils.nonClosing(req.getBody()), request);
+            }, response -> StreamUtils.copyToByteArray(response.getBody()));
+        } catch (GoodDataException | RestClientException e) {
+            throw new ExportException("Unable to execute report", e);
+        }
+    }
+
+    /**
+     * Starts the export of the given report execution result. The result is copied token by token into the export
+     * request, so it's never deserialized.
+     * @param execResult raw JSON of the execution result
+     * @return uri to poll the export on
+     */
+    String exportReport(final byte[] execResult, final ExportFormat format) {
         notNull(execResult, "execResult");
         notNull(format, "format");
-        final ObjectNode root = mapper.createObjectNode();
-        final ObjectNode child = mapper.createObjectNode();
-
-        child.set("result", execResult);
-        child.put("format", format.getValue());
-        root.set("result_req", child);
 
         try {
-            return restTemplate.postForObject(EXPORTING_URI, root, UriResponse.class).getUri();
+            return restTemplate.execute(EXPORTING_URI, POST, req -> {
+                req.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                writeExportRequest(execResult, format, req.getBody());
+            }, response -> mapper.readValue(response.getBody(), UriResponse.class)).getUri();
         } catch (GoodDataException | RestClientException e) {
             throw new ExportException("Unable to export report", e);
         }
     }
 
+    /**
+     * Writes {@code {"result_req": {"result": <execResult>, "format": <format>}}}
+     */
+    private void writeExportRequest(final byte[] execResult, final ExportFormat format, final OutputStream output)
+            throws IOException {
+        final JsonFactory factory = mapper.getFactory();
+        try (JsonParser parser = factory.createParser(execResult);
+             JsonGenerator generator = factory.createGenerator(StreamUtils.nonClosing(output))) {
+            if (parser.nextToken() == null) {
+                throw new ExportException("Unable to export report, empty execution result");
+            }
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("result_req");
+            generator.writeFieldName("result");
+            generator.copyCurrentStructure(parser);
+            generator.writeStringField("format", format.getValue());
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+    }
+
     /**
      * Export the given dashboard tab in PDF format to the given output stream
      *
@@ -186,7 +274,26 @@ public class ExportService extends AbstractService {
     public FutureResult<Void> exportPdf(final ProjectDashboard dashboard, final Tab tab, final OutputStream output) {
         notNull(dashboard, "dashboard");
         notNull(tab, "tab");
-        notNull(output, "output");
+        return exportPdf(dashboard, tab, streamTarget(output));
+    }
+
+    /**
+     * Export the given dashboard tab in PDF format to the given file. The download of the finished export
+     * is resumed when interrupted.
+     *
+     * @param dashboard dashboard
+     * @param tab       tab
+     * @param file      target file, overwritten when exists
+     * @return polling result
+     * @throws ExportException if export fails
+     */
+    public FutureResult<Void> exportPdfToFile(final ProjectDashboard dashboard, final Tab tab, final Path file) {
+        notNull(dashboard, "dashboard");
+        notNull(tab, "tab");
+        return exportPdf(dashboard, tab, fileTarget(file));
+    }
+
+    private FutureResult<Void> exportPdf(final ProjectDashboard dashboard, final Tab tab, final ExportTarget target) {
 
         final String projectId = extractProjectId(dashboard);
         final String projectUri = Project.TEMPLATE.expand(projectId).toString();
@@ -217,7 +324,7 @@ public class ExportService extends AbstractService {
             @Override
             protected void onFinish() {
                 try {
-                    restTemplate.execute(task.getUri(), GET, null, new OutputStreamResponseExtractor(output));
+                    target.download(URI.create(task.getUri()));
                 } catch (GoodDataException | RestClientException e) {
                     throw new ExportException("Unable to export dashboard: " + dashboardUri, e);
                 }
@@ -230,6 +337,10 @@ public class ExportService extends AbstractService {
         });
     }
 
+    int getPollSleep() {
+        return getSettings().getPollSleep();
+    }
+
     /**
      * Export the given Report using the raw export (without columns/rows limitations)
      * @param report report
@@ -239,7 +350,20 @@ public class ExportService extends AbstractService {
      */
     public FutureResult<Void> exportCsv(final Report report, final OutputStream output) {
         notNull(report, "report");
-        return exportCsv(report, new ExecuteReport(report), output);
+        return exportCsv(report, new ExecuteReport(report), streamTarget(output));
+    }
+
+    /**
+     * Export the given Report using the raw export (without columns/rows limitations) to the given file.
+     * The download of the finished export is resumed when interrupted.
+     * @param report report
+     * @param file target file, overwritten when exists
+     * @return polling result
+     * @throws ExportException in case export fails
+     */
+    public FutureResult<Void> exportCsvToFile(final Report report, final Path file) {
+        notNull(report, "report");
+        return exportCsv(report, new ExecuteReport(report), fileTarget(file));
     }
 
     /**
@@ -251,13 +375,25 @@ public class ExportService extends AbstractService {
      */
     public FutureResult<Void> exportCsv(final ReportDefinition definition, final OutputStream output) {
         final ReportRequest request = new ExecuteReportDefinition(definition);
-        return exportCsv(definition, request, output);
+        return exportCsv(definition, request, streamTarget(output));
     }
 
-    private FutureResult<Void> exportCsv(final AbstractObj obj, final ReportRequest request, final OutputStream output) {
+    /**
+     * Export the given Report Definition using the raw export (without columns/rows limitations) to the given file.
+     * The download of the finished export is resumed when interrupted.
+     * @param definition report definition
+     * @param file target file, overwritten when exists
+     * @return polling result
+     * @throws ExportException in case export fails
+     */
+    public FutureResult<Void> exportCsvToFile(final ReportDefinition definition, final Path file) {
+        final ReportRequest request = new ExecuteReportDefinition(definition);
+        return exportCsv(definition, request, fileTarget(file));
+    }
+
+    private FutureResult<Void> exportCsv(final AbstractObj obj, final ReportRequest request, final ExportTarget target) {
         notNull(obj, "obj");
         notNull(request, "request");
-        notNull(output, "output");
 
         final String projectId = extractProjectId(obj);
         final String uri = obj.getUri();
@@ -291,7 +427,7 @@ public class ExportService extends AbstractService {
             @Override
             protected void onFinish() {
                 try {
-                    restTemplate.execute(getPolling(), GET, null, new OutputStreamResponseExtractor(output));
+                    target.download(getPolling());
                 } catch (GoodDataException | RestClientException e) {
                     throw new ExportException("Unable to export: " + uri, e);
                 }
@@ -304,6 +440,16 @@ public class ExportService extends AbstractService {
         });
     }
 
+    private ExportTarget streamTarget(final OutputStream output) {
+        notNull(output, "output");
+        return uri -> restTemplate.execute(uri, GET, null, new OutputStreamResponseExtractor(output));
+    }
+
+    ExportTarget fileTarget(final Path file) {
+        notNull(file, "file");
+        return uri -> new ResumableDownload(restTemplate, uri, file).download();
+    }
+
     static String extractProjectId(final AbstractObj obj) {
         notNull(obj, "obj");
         notNull(obj.getUri(), "obj.uri");
@@ -312,4 +458,12 @@ public class ExportService extends AbstractService {
         notNull(projectId, "obj uri - project id");
         return projectId;
     }
+
+    /**
+     * Target the finished export is downloaded to
+     */
+    @FunctionalInterface
+    interface ExportTarget {
+        void download(URI uri);
+    }
 }
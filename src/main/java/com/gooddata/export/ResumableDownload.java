@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.export;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.gooddata.util.Validate.notNull;
+import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.springframework.http.HttpMethod.GET;
+
+/**
+ * Downloads the finished export into a file. When the transfer breaks, the download is resumed from the last written
+ * byte using HTTP range request. The size of the downloaded file is verified against the size announced by the server.
+ */
+class ResumableDownload {
+
+    static final int BUFFER_SIZE = 1024 * 1024;
+    static final int MAX_ATTEMPTS = 5;
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-\\d+/(\\d+|\\*)");
+
+    private final RestTemplate restTemplate;
+    private final URI uri;
+    private final Path file;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private long written;
+    private long expectedSize = -1;
+
+    ResumableDownload(final RestTemplate restTemplate, final URI uri, final Path file) {
+        this.restTemplate = notNull(restTemplate, "restTemplate");
+        this.uri = notNull(uri, "uri");
+        this.file = notNull(file, "file");
+    }
+
+    /**
+     * @return number of bytes of the downloaded file
+     * @throws ExportException when the export can't be downloaded or written to the file
+     */
+    long download() {
+        try (FileChannel channel = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    restTemplate.execute(uri, GET, request -> {
+                        if (written > 0) {
+                            request.getHeaders().set(HttpHeaders.RANGE, "bytes=" + written + "-");
+                        }
+                    }, response -> transfer(response, channel));
+                    break;
+                } catch (ResourceAccessException e) {
+                    if (expectedSize >= 0 && written == expectedSize) {
+                        // the whole export was transferred before the connection broke
+                        break;
+                    }
+                    if (attempt >= MAX_ATTEMPTS) {
+                        throw new ExportException(format("Unable to download export %s, giving up after %d attempts",
+                                uri, attempt), e);
+                    }
+                }
+            }
+            if (expectedSize >= 0 && channel.size() != expectedSize) {
+                throw new ExportException(format("Downloaded export %s has %d bytes, expected %d",
+                        uri, channel.size(), expectedSize));
+            }
+            channel.force(false);
+            return channel.size();
+        } catch (IOException | UncheckedIOException e) {
+            throw new ExportException("Unable to write export to " + file, e);
+        }
+    }
+
+    private Void transfer(final ClientHttpResponse response, final FileChannel channel) throws IOException {
+        if (response.getStatusCode() == HttpStatus.PARTIAL_CONTENT) {
+            final String contentRange = response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE);
+            final Matcher matcher = contentRange != null ? CONTENT_RANGE.matcher(contentRange) : null;
+            if (matcher == null || !matcher.matches() || Long.parseLong(matcher.group(1)) != written) {
+                throw new ExportException(format("Unable to resume download of export %s from byte %d, "
+                        + "unexpected content range %s", uri, written, contentRange));
+            }
+            if (!"*".equals(matcher.group(2))) {
+                expectedSize = Long.parseLong(matcher.group(2));
+            }
+        } else {
+            // the whole export is sent (again)
+            write(() -> channel.truncate(0));
+            written = 0;
+            expectedSize = response.getHeaders().getContentLength();
+        }
+
+        final ReadableByteChannel body = Channels.newChannel(response.getBody());
+        buffer.clear();
+        while (body.read(buffer) != -1) {
+            flush(channel);
+        }
+        flush(channel);
+        return null;
+    }
+
+    private void flush(final FileChannel channel) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            write(() -> written += channel.write(buffer, written));
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Runs the file operation, so its failure is distinguished from the failure of the transfer (which is wrapped
+     * by {@link RestTemplate} to {@link ResourceAccessException} and resumed).
+     */
+    private static void write(final FileOperation operation) {
+        try {
+            operation.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FileOperation {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.gdc;
+
+import com.gooddata.util.GoodDataToStringBuilder;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static java.util.Collections.unmodifiableCollection;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Result of the bulk delete, see {@link DataStoreService#delete(Collection, int, boolean)}.
+ */
+public class DataStoreDeleteResult {
+
+    private final boolean dryRun;
+    private final Collection<String> deleted;
+    private final Map<String, DataStoreException> failed;
+
+    DataStoreDeleteResult(final boolean dryRun, final Collection<String> deleted,
+                          final Map<String, DataStoreException> failed) {
+        this.dryRun = dryRun;
+        this.deleted = unmodifiableCollection(deleted);
+        this.failed = unmodifiableMap(failed);
+    }
+
+    /**
+     * @return true if nothing was deleted actually
+     */
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * @return paths successfully deleted (or paths which would be deleted in case of dry run)
+     */
+    public Collection<String> getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return paths which failed to be deleted mapped to the failure
+     */
+    public Map<String, DataStoreException> getFailed() {
+        return failed;
+    }
+
+    public boolean isSuccess() {
+        return failed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return GoodDataToStringBuilder.defaultToString(this);
+    }
+}
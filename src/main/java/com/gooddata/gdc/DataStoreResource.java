@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.gdc;
+
+import com.gooddata.util.GoodDataToStringBuilder;
+
+import java.util.Date;
+
+import static com.gooddata.util.Validate.notEmpty;
+
+/**
+ * File or directory stored at datastore, as obtained by {@link DataStoreService#list(String)}.
+ */
+public class DataStoreResource {
+
+    private final String path;
+    private final boolean directory;
+    private final long size;
+    private final Date modified;
+
+    DataStoreResource(final String path, final boolean directory, final long size, final Date modified) {
+        this.path = notEmpty(path, "path");
+        this.directory = directory;
+        this.size = size;
+        this.modified = modified;
+    }
+
+    /**
+     * Path of the resource relative to the user staging, usable in other {@link DataStoreService} methods.
+     * Directory paths end with slash.
+     *
+     * @return path of the resource
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return size of the file in bytes or -1 if unknown (i.e. for directories)
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return last modification time or null if unknown
+     */
+    public Date getModified() {
+        return modified;
+    }
+
+    @Override
+    public String toString() {
+        return GoodDataToStringBuilder.defaultToString(this);
+    }
+}
@@ -5,6 +5,7 @@
  */
 package com.gooddata.gdc;
 
+import com.github.sardine.DavResource;
 import com.github.sardine.Sardine;
 import com.github.sardine.impl.SardineException;
 import com.gooddata.UriPrefixer;
@@ -22,12 +23,14 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.NonRepeatableRequestException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -37,17 +40,53 @@ import org.springframework.web.client.RestTemplate;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
-
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.noNullElements;
 import static com.gooddata.util.Validate.notEmpty;
 import static com.gooddata.util.Validate.notNull;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Collections.emptyMap;
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.StringUtils.removeEnd;
 
 /**
  * Uploads, downloads, deletes, ... at datastore
  */
 public class DataStoreService {
 
+    /**
+     * Minimal size of a byte range downloaded by a single request of the parallel download
+     */
+    static final int MIN_RANGE_SIZE = 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final Sardine sardine;
+    private final HttpClient httpClient;
     private final GdcService gdcService;
     private final URI gdcUri;
     private final RestTemplate restTemplate;
@@ -66,6 +105,7 @@ public class DataStoreService {
         this.gdcService = notNull(gdcService, "gdcService");
         this.gdcUri = URI.create(notEmpty(gdcUri, "gdcUri"));
         this.restTemplate = notNull(restTemplate, "restTemplate");
+        this.httpClient = notNull(httpClient, "httpClient");
         sardine = new GdcSardine(new CustomHttpClientBuilder(httpClient));
     }
 
@@ -150,6 +190,131 @@ public class DataStoreService {
         }
     }
 
+    /**
+     * Download given path to the target file. The file is split into disjoint byte ranges which are downloaded
+     * concurrently using HTTP Range requests and written directly to their positions in the target file.
+     * Falls back to a single stream download when the datastore doesn't support range requests.
+     * @param path path from where to download
+     * @param target file to download to (created or truncated when exists)
+     * @param parallelism maximal number of concurrent range requests
+     * @throws com.gooddata.gdc.DataStoreException in case download failed
+     */
+    public void download(String path, Path target, int parallelism) {
+        notEmpty(path, "path");
+        notNull(target, "target");
+        isTrue(parallelism > 0, "parallelism must be greater than zero");
+        final URI uri = getUri(path);
+        try (FileChannel channel = FileChannel.open(target, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            // the first range serves also as a probe whether the datastore supports range requests at all
+            final long length = httpClient.execute(createRangeRequest(uri, 0, MIN_RANGE_SIZE - 1), response -> {
+                final int status = response.getStatusLine().getStatusCode();
+                if (status == HttpStatus.PARTIAL_CONTENT.value()) {
+                    final long total = parseContentRangeLength(response.getFirstHeader("Content-Range"));
+                    copy(response.getEntity().getContent(), channel, 0, Math.min(total, MIN_RANGE_SIZE));
+                    return total;
+                } else if (status == HttpStatus.OK.value()) {
+                    // range not supported, whole file is in the response
+                    copy(response.getEntity().getContent(), channel, 0, -1);
+                    return -1L;
+                } else if (status == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+                    // empty file
+                    EntityUtils.consume(response.getEntity());
+                    return 0L;
+                }
+                EntityUtils.consume(response.getEntity());
+                throw new IOException("Unexpected status " + status);
+            });
+            if (length > MIN_RANGE_SIZE) {
+                downloadRanges(uri, channel, MIN_RANGE_SIZE, length, parallelism);
+            }
+        } catch (IOException e) {
+            throw new DataStoreException("Unable to download from " + uri, e);
+        }
+    }
+
+    private void downloadRanges(final URI uri, final FileChannel channel, final long from, final long length,
+                                final int parallelism) throws IOException {
+        final long rangeSize = Math.max(MIN_RANGE_SIZE, (length - from + parallelism - 1) / parallelism);
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            final List<Future<Long>> ranges = new ArrayList<>();
+            for (long start = from; start < length; start += rangeSize) {
+                final long rangeStart = start;
+                final long rangeEnd = Math.min(start + rangeSize, length) - 1;
+                ranges.add(executor.submit(() -> httpClient.execute(createRangeRequest(uri, rangeStart, rangeEnd),
+                        response -> {
+                            final int status = response.getStatusLine().getStatusCode();
+                            if (status != HttpStatus.PARTIAL_CONTENT.value()) {
+                                EntityUtils.consume(response.getEntity());
+                                throw new IOException("Range " + rangeStart + "-" + rangeEnd + " got status " + status);
+                            }
+                            return copy(response.getEntity().getContent(), channel, rangeStart, rangeEnd - rangeStart + 1);
+                        })));
+            }
+            for (Future<Long> range : ranges) {
+                range.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new DataStoreException("Unable to download from " + uri, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataStoreException("Interrupted while downloading from " + uri, e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static HttpGet createRangeRequest(final URI uri, final long start, final long end) {
+        final HttpGet request = new HttpGet(uri);
+        request.setHeader("Range", "bytes=" + start + "-" + end);
+        return request;
+    }
+
+    /**
+     * Parses complete length from the {@code Content-Range: bytes start-end/length} header
+     */
+    private static long parseContentRangeLength(final Header contentRange) throws IOException {
+        if (contentRange != null) {
+            final String value = contentRange.getValue();
+            final int slash = value.lastIndexOf('/');
+            if (slash >= 0 && !"*".equals(value.substring(slash + 1).trim())) {
+                try {
+                    return Long.parseLong(value.substring(slash + 1).trim());
+                } catch (NumberFormatException ignored) {
+                    // handled below
+                }
+            }
+        }
+        throw new IOException("Missing or invalid Content-Range header in partial response");
+    }
+
+    /**
+     * Copies the stream to the channel starting at given position
+     * @param expected expected number of bytes or -1 when unknown
+     * @return number of bytes copied
+     */
+    private static long copy(final InputStream input, final FileChannel channel, final long position,
+                             final long expected) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long written = 0;
+        try (ReadableByteChannel source = Channels.newChannel(input)) {
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer, position + written);
+                }
+                buffer.clear();
+            }
+        }
+        if (expected >= 0 && written != expected) {
+            throw new IOException("Expected " + expected + " bytes at position " + position + " but got " + written);
+        }
+        return written;
+    }
+
     /**
      * Delete given path from datastore.
      * @param path path to delete
@@ -170,6 +335,128 @@ public class DataStoreService {
         }
     }
 
+    /**
+     * Delete given paths from datastore concurrently. Failure to delete one path doesn't stop deletion of the others,
+     * all failures are collected in the returned result.
+     * @param paths paths to delete
+     * @param parallelism maximal number of concurrent delete requests
+     * @param dryRun when true, nothing is deleted and all paths are reported as deleted
+     * @return result of the deletion
+     */
+    public DataStoreDeleteResult delete(Collection<String> paths, int parallelism, boolean dryRun) {
+        noNullElements(paths, "paths");
+        paths.forEach(path -> notEmpty(path, "path"));
+        isTrue(parallelism > 0, "parallelism must be greater than zero");
+        if (dryRun) {
+            return new DataStoreDeleteResult(true, new ArrayList<>(paths), emptyMap());
+        }
+
+        // resolve the datastore root before the workers use it concurrently
+        getPrefixer();
+        final Collection<String> deleted = new ConcurrentLinkedQueue<>();
+        final Map<String, DataStoreException> failed = new ConcurrentHashMap<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (String path : paths) {
+                executor.execute(() -> {
+                    try {
+                        delete(path);
+                        deleted.add(path);
+                    } catch (DataStoreException e) {
+                        failed.put(path, e);
+                    } catch (RuntimeException e) {
+                        failed.put(path, new DataStoreException("Unable to delete " + path, e));
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataStoreException("Interrupted while deleting", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return new DataStoreDeleteResult(false, deleted, failed);
+    }
+
+    /**
+     * Lists content of the given directory (PROPFIND with depth 1).
+     * @param path path of the directory to list
+     * @return files and directories contained in the directory
+     * @throws com.gooddata.gdc.DataStoreException in case listing failed
+     */
+    public List<DataStoreResource> list(String path) {
+        notEmpty(path, "path");
+        final URI uri = getUri(path.endsWith("/") ? path : path + "/");
+        final String listedPath = removeEnd(uri.getPath(), "/");
+        try {
+            return sardine.list(uri.toString(), 1).stream()
+                    .filter(resource -> !listedPath.equals(removeEnd(resource.getPath(), "/")))
+                    .map(this::toDataStoreResource)
+                    .collect(toList());
+        } catch (IOException e) {
+            throw new DataStoreException("Unable to list " + uri, e);
+        }
+    }
+
+    /**
+     * Lists content of the given directory and all its subdirectories. The directories are listed lazily
+     * (breadth-first) as the returned iterator is consumed.
+     * @param path path of the directory to list
+     * @return iterator over files and directories contained in the directory tree
+     * @throws com.gooddata.gdc.DataStoreException in case listing failed (also thrown by the iterator)
+     */
+    public Iterator<DataStoreResource> listRecursive(String path) {
+        notEmpty(path, "path");
+        return new RecursiveListingIterator(path);
+    }
+
+    private DataStoreResource toDataStoreResource(final DavResource resource) {
+        final String prefix = removeEnd(getPrefixer().getUriPrefix().getPath(), "/");
+        String path = resource.getPath();
+        if (path.startsWith(prefix)) {
+            path = path.substring(prefix.length());
+        }
+        if (resource.isDirectory() && !path.endsWith("/")) {
+            path = path + "/";
+        }
+        final Long size = resource.getContentLength();
+        return new DataStoreResource(path, resource.isDirectory(), size == null || resource.isDirectory() ? -1 : size,
+                resource.getModified());
+    }
+
+    private class RecursiveListingIterator implements Iterator<DataStoreResource> {
+
+        private final Deque<String> directories = new ArrayDeque<>();
+        private final Deque<DataStoreResource> resources = new ArrayDeque<>();
+
+        private RecursiveListingIterator(final String path) {
+            directories.add(path);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (resources.isEmpty() && !directories.isEmpty()) {
+                for (DataStoreResource resource : list(directories.poll())) {
+                    resources.add(resource);
+                    if (resource.isDirectory()) {
+                        directories.add(resource.getPath());
+                    }
+                }
+            }
+            return !resources.isEmpty();
+        }
+
+        @Override
+        public DataStoreResource next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return resources.poll();
+        }
+    }
+
     /**
      * This class is needed to provide Sardine with instance of {@link CloseableHttpClient}, because
      * used {@link com.gooddata.http.client.GoodDataHttpClient} is not Closeable at all (on purpose).
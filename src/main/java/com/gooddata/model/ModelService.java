@@ -24,6 +24,9 @@ import java.io.IOException;
 import java.io.Reader;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import static com.gooddata.util.Validate.noNullElements;
 import static com.gooddata.util.Validate.notNull;
@@ -35,6 +38,8 @@ import static java.util.Arrays.asList;
  */
 public class ModelService extends AbstractService {
 
+    private final List<Consumer<Project>> modelUpdateListeners = new CopyOnWriteArrayList<>();
+
     public ModelService(final RestTemplate restTemplate, final GoodDataSettings settings) {
         super(restTemplate, settings);
     }
@@ -47,6 +52,18 @@ public class ModelService extends AbstractService {
         super(restTemplate);
     }
 
+    /**
+     * Registers the listener called with the project whenever the update of its model by this service finishes
+     * (successfully or not, as the failed update may change the model partially), e.g. to drop the data cached
+     * for the project. {@link com.gooddata.GoodData} registers
+     * {@link com.gooddata.dataset.DatasetService#invalidateCache(Project)} of its dataset service.
+     *
+     * @param listener listener to register
+     */
+    public void addModelUpdateListener(final Consumer<Project> listener) {
+        modelUpdateListeners.add(notNull(listener, "listener"));
+    }
+
     private FutureResult<ModelDiff> getProjectModelDiff(Project project, DiffRequest diffRequest) {
         notNull(project, "project");
         notNull(project.getId(), "project.id");
@@ -83,7 +100,8 @@ public class ModelService extends AbstractService {
 
     /**
      * Update project model with the MAQL script from given ModelDiff with the least side-effects
-     * (see {@link ModelDiff#getUpdateMaql()}).
+     * (see {@link ModelDiff#getUpdateMaql()}). See {@link #updateProjectModel(Project, Collection)} for
+     * the notification of the model update.
      *
      * @param project   project to be updated
      * @param modelDiff difference of model to be applied into the project
@@ -95,7 +113,8 @@ public class ModelService extends AbstractService {
     }
 
     /**
-     * Update project model with the given update script (MAQL).
+     * Update project model with the given update script (MAQL). See {@link #updateProjectModel(Project, Collection)}
+     * for the notification of the model update.
      *
      * @param project      project to be updated
      * @param updateScript update script to be executed in the project
@@ -108,7 +127,8 @@ public class ModelService extends AbstractService {
 
     /**
      * Update project model with the given update script(s) (MAQL). For data manipulation use
-     * {@link com.gooddata.model.ModelService#updateProjectModel}.
+     * {@link com.gooddata.model.ModelService#updateProjectModel}. See {@link #updateProjectModel(Project, Collection)}
+     * for the notification of the model update.
      *
      * @param project project to be updated
      * @param maqlDdl update script to be executed in the project
@@ -122,6 +142,10 @@ public class ModelService extends AbstractService {
 
     /**
      * Update project model with the given update script(s) (MAQL).
+     * The {@link #addModelUpdateListener(Consumer) registered listeners} are called when the update finishes,
+     * so the dataset manifests cached by {@link com.gooddata.dataset.DatasetService} of the same
+     * {@link com.gooddata.GoodData} instance are dropped. The other caches of the project data must be dropped
+     * by the caller (i.e. {@link com.gooddata.dataset.DatasetService#invalidateCache(Project)} of other instances).
      *
      * @param project project to be updated
      * @param maqlDdl update script to be executed in the project
@@ -158,6 +182,7 @@ public class ModelService extends AbstractService {
                         MaqlDdlLinks.class, projectId);
                     this.pollUri = links.getStatusUri();
                 } catch (GoodDataRestException | RestClientException e) {
+                    notifyModelUpdated(project);
                     throw new ModelException("Unable to update project model", e);
                 }
                 return false;
@@ -175,6 +200,7 @@ public class ModelService extends AbstractService {
                 }
                 final TaskStatus maqlDdlTaskStatus = extractData(response, TaskStatus.class);
                 if (!maqlDdlTaskStatus.isSuccess()) {
+                    notifyModelUpdated(project);
                     throw new ModelException("Unable to update project model: " + maqlDdlTaskStatus.getMessages());
                 }
                 return executeNextMaqlChunk();
@@ -185,11 +211,21 @@ public class ModelService extends AbstractService {
                 setResult(null);
             }
 
+            @Override
+            protected void onFinish() {
+                notifyModelUpdated(project);
+            }
+
             @Override
             public void handlePollException(final GoodDataRestException e) {
+                notifyModelUpdated(project);
                 throw new ModelException("Unable to update project model", e);
             }
         });
     }
 
+    private void notifyModelUpdated(final Project project) {
+        modelUpdateListeners.forEach(listener -> listener.accept(project));
+    }
+
 }
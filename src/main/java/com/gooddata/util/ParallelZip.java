@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes zip archive of the given files, deflating the files concurrently. Each file is deflated independently
+ * into its own buffer, the buffers are written to the archive in the order of the files, so the archive doesn't
+ * depend on the order the files were deflated in. At most {@code 2 * parallelism} deflated files are kept in memory.
+ * <p>
+ * The archive is written without ZIP64 extensions, so the caller must ensure the number of files and their size
+ * fit the zip format limits, and the size of single file should not exceed {@link #MAX_FILE_SIZE} to keep
+ * the buffers in memory bounded.
+ */
+class ParallelZip {
+
+    static final int MAX_ENTRIES = 0xFFFF;
+    static final long MAX_SIZE = 0xFFFFFFFFL;
+    static final long MAX_FILE_SIZE = 64L * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int VERSION = 20;
+    private static final int FLAG_UTF8 = 0x800;
+    private static final int METHOD_DEFLATED = 8;
+
+    private final ForkJoinPool pool;
+    private final OutputStream output;
+    private final List<Entry> written = new ArrayList<>();
+    private long offset;
+
+    ParallelZip(final ForkJoinPool pool, final OutputStream output) {
+        this.pool = pool;
+        this.output = output;
+    }
+
+    /**
+     * Writes the archive of the given files
+     * @param root path the entry names are relative to
+     * @param files files in the order of the archive entries
+     */
+    void write(final Path root, final List<Path> files) throws IOException {
+        final Deque<ForkJoinTask<Entry>> inFlight = new ArrayDeque<>();
+        final int window = 2 * pool.getParallelism();
+        int next = 0;
+        try {
+            while (next < files.size() || !inFlight.isEmpty()) {
+                while (next < files.size() && inFlight.size() < window) {
+                    final Path file = files.get(next++);
+                    inFlight.add(pool.submit(() -> deflate(root.relativize(file).toString(), file)));
+                }
+                writeEntry(await(inFlight.poll()));
+            }
+            writeCentralDirectory();
+        } finally {
+            for (ForkJoinTask<Entry> task : inFlight) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    private static Entry await(final ForkJoinTask<Entry> task) throws IOException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to deflate file", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while deflating files", e);
+        }
+    }
+
+    private static Entry deflate(final String name, final Path file) throws IOException {
+        final CRC32 crc = new CRC32();
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        long size = 0;
+        try (InputStream input = Files.newInputStream(file);
+             DeflaterOutputStream deflated = new DeflaterOutputStream(compressed, deflater, BUFFER_SIZE)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                deflated.write(buffer, 0, read);
+                size += read;
+            }
+        } finally {
+            deflater.end();
+        }
+        return new Entry(name, dosTime(Files.getLastModifiedTime(file).toMillis()), crc.getValue(), size,
+                compressed);
+    }
+
+    private void writeEntry(final Entry entry) throws IOException {
+        if (entry.size > MAX_SIZE || entry.compressedSize > MAX_SIZE || offset > MAX_SIZE) {
+            throw new IOException("File " + new String(entry.name, UTF_8) + " exceeds the zip size limits");
+        }
+        entry.offset = offset;
+        writeInt(LOCAL_HEADER);
+        writeShort(VERSION);
+        writeEntryHeader(entry);
+        writeShort(0); // extra field length
+        writeBytes(entry.name);
+        entry.data.writeTo(output);
+        offset += entry.compressedSize;
+        entry.data = null;
+        written.add(entry);
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        final long start = offset;
+        for (Entry entry : written) {
+            writeInt(CENTRAL_HEADER);
+            writeShort(VERSION); // made by
+            writeShort(VERSION); // needed to extract
+            writeEntryHeader(entry);
+            writeShort(0); // extra field length
+            writeShort(0); // comment length
+            writeShort(0); // disk number
+            writeShort(0); // internal attributes
+            writeInt(0); // external attributes
+            writeInt(entry.offset);
+            writeBytes(entry.name);
+        }
+        if (offset > MAX_SIZE) {
+            throw new IOException("Zip archive exceeds the zip size limits");
+        }
+        final long centralDirectorySize = offset - start;
+        writeInt(END_OF_CENTRAL_DIRECTORY);
+        writeShort(0); // disk number
+        writeShort(0); // disk with central directory
+        writeShort(written.size());
+        writeShort(written.size());
+        writeInt(centralDirectorySize);
+        writeInt(start);
+        writeShort(0); // comment length
+    }
+
+    /**
+     * Writes the header fields shared by local and central header, from the flags to the name length.
+     */
+    private void writeEntryHeader(final Entry entry) throws IOException {
+        writeShort(FLAG_UTF8);
+        writeShort(METHOD_DEFLATED);
+        writeInt(entry.dosTime);
+        writeInt(entry.crc);
+        writeInt(entry.compressedSize);
+        writeInt(entry.size);
+        writeShort(entry.name.length);
+    }
+
+    private void writeBytes(final byte[] bytes) throws IOException {
+        output.write(bytes);
+        offset += bytes.length;
+    }
+
+    private void writeShort(final int value) throws IOException {
+        output.write(value & 0xFF);
+        output.write((value >>> 8) & 0xFF);
+        offset += 2;
+    }
+
+    private void writeInt(final long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    /**
+     * @return time in the MS-DOS format (date in the upper 16 bits, time in the lower 16 bits)
+     */
+    static long dosTime(final long millis) {
+        final LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (long) (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+                | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    private static class Entry {
+        private final byte[] name;
+        private final long dosTime;
+        private final long crc;
+        private final long size;
+        private final long compressedSize;
+        private ByteArrayOutputStream data;
+        private long offset;
+
+        private Entry(final String name, final long dosTime, final long crc, final long size,
+                      final ByteArrayOutputStream data) {
+            this.name = name.getBytes(UTF_8);
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = data.size();
+            this.data = data;
+        }
+    }
+}
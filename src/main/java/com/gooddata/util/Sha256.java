@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static com.gooddata.util.Validate.isTrue;
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Utility class for computing hex encoded SHA-256 hashes.
+ */
+public abstract class Sha256 {
+
+    /**
+     * @return new SHA-256 message digest
+     * @throws IllegalStateException when the platform doesn't support SHA-256
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    }
+
+    /**
+     * @param value value to hash
+     * @return hex encoded SHA-256 hash of the UTF-8 encoded value
+     */
+    public static String hash(final String value) {
+        return toHex(newDigest().digest(notNull(value, "value").getBytes(UTF_8)));
+    }
+
+    /**
+     * @param bytes bytes to encode
+     * @return lowercase hex encoded bytes
+     */
+    public static String toHex(final byte[] bytes) {
+        return toHex(bytes, notNull(bytes, "bytes").length);
+    }
+
+    /**
+     * @param bytes bytes to encode
+     * @param length number of the leading bytes to encode
+     * @return lowercase hex encoded leading bytes
+     */
+    public static String toHex(final byte[] bytes, final int length) {
+        notNull(bytes, "bytes");
+        isTrue(length >= 0 && length <= bytes.length, "length must be between 0 and " + bytes.length);
+        final StringBuilder hex = new StringBuilder(length * 2);
+        for (int i = 0; i < length; i++) {
+            hex.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -9,12 +9,18 @@ import static com.gooddata.util.Validate.notNull;
 
 import org.springframework.util.StreamUtils;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -65,6 +71,57 @@ public abstract class ZipHelper {
         }
     }
 
+    /**
+     * This method compresses the input file to zip format, deflating the files concurrently using the given pool.
+     * If the given file is a directory, it recursively packs the directory into the output. If the given file is
+     * already zipped, simply copies it into the output.
+     * <p>
+     * Unlike the serial {@link #zip(File, OutputStream, boolean)}, the entries are sorted by their names, so the output
+     * doesn't depend on the order the files are listed in. Each file is deflated into memory buffer, so directories
+     * containing a file bigger than 64 MiB are zipped serially, as are directories with too many or too big files
+     * for the zip format without ZIP64 extensions.
+     *
+     * @param file file to be zipped
+     * @param output stream where the output will be written
+     * @param includeRoot if root dir should be included
+     * @param pool pool the files are deflated in
+     * @throws IOException if zip creation fails
+     */
+    public static void zip(File file, OutputStream output, boolean includeRoot, ForkJoinPool pool) throws IOException {
+        notNull(file, "file");
+        notNull(output, "output");
+        notNull(pool, "pool");
+
+        if (!file.isDirectory()) {
+            zip(file, output, includeRoot);
+            return;
+        }
+        final Path rootPath = includeRoot ? file.getParentFile().toPath() : file.toPath();
+        final List<Path> files = new ArrayList<>();
+        long totalSize = 0;
+        long maxFileSize = 0;
+        try (Stream<Path> walk = Files.walk(file.toPath())) {
+            for (Path path : (Iterable<Path>) walk::iterator) {
+                if (Files.isRegularFile(path)) {
+                    files.add(path);
+                    final long size = Files.size(path);
+                    totalSize += size;
+                    maxFileSize = Math.max(maxFileSize, size);
+                }
+            }
+        }
+        // leave room for the incompressible data overhead and headers
+        if (files.size() > ParallelZip.MAX_ENTRIES || totalSize > ParallelZip.MAX_SIZE / 2
+                || maxFileSize > ParallelZip.MAX_FILE_SIZE) {
+            zip(file, output, includeRoot);
+            return;
+        }
+        files.sort(Comparator.comparing(path -> rootPath.relativize(path).toString()));
+        try (OutputStream buffered = new BufferedOutputStream(output)) {
+            new ParallelZip(pool, buffered).write(rootPath, files);
+        }
+    }
+
     private static void zipDir(Path rootPath, File dir, ZipOutputStream zos) throws IOException {
         for (File file : notNull(dir.listFiles(), "listed files")) {
             if (file.isDirectory()) {
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2007-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm.result
+
+import com.fasterxml.jackson.databind.JsonMappingException
+import spock.lang.Specification
+
+import static com.gooddata.util.ResourceUtils.OBJECT_MAPPER
+import static com.gooddata.util.ResourceUtils.readObjectFromResource
+
+class ColumnarExecutionResultTest extends Specification {
+
+    private static final String EXECUTION_RESULT_FULL_JSON = '/executeafm/result/executionResultFull.json'
+
+    private static final String TWO_DIMENSIONAL_JSON = '''{
+      "executionResult": {
+        "paging": { "count": [3, 2], "offset": [0, 0], "total": [3, 2] },
+        "data": [ ["1", "2.5"], [null, "-4"], ["1e3", null] ],
+        "headerItems": [
+          [
+            [
+              { "attributeHeaderItem": { "name": "Food", "uri": "/gdc/md/PROJECT_ID/obj/1/elements?id=1" } },
+              { "attributeHeaderItem": { "name": "Drink", "uri": "/gdc/md/PROJECT_ID/obj/1/elements?id=2" } },
+              { "attributeHeaderItem": { "name": "Food", "uri": "/gdc/md/PROJECT_ID/obj/1/elements?id=1" } }
+            ]
+          ],
+          [
+            [
+              { "measureHeaderItem": { "name": "Amount", "order": 0 } },
+              { "totalHeaderItem": { "name": "Sum", "type": "sum" } }
+            ]
+          ]
+        ]
+      }
+    }'''
+
+    def "should deserialize one dimensional result"() {
+        when:
+        ColumnarExecutionResult result = readObjectFromResource(EXECUTION_RESULT_FULL_JSON, ColumnarExecutionResult)
+
+        then:
+        result.paging.total == [4]
+        result.rowCount == 4
+        result.columnCount == 1
+        result.getColumn(0) == [-12958511.8099999d, 25315434.8199999d, -2748323.76d, -7252542.67d] as double[]
+        !result.isNull(3, 0)
+        result.headerDimensionCount == 1
+        result.getHeaderItemCodes(0, 0) == [0, 1] as int[]
+        result.getHeaderItem(0, 0, 1).name == 'Salaries'
+        (result.getHeaderItem(0, 0, 1) as AttributeHeaderItem).uri == '/gdc/md/FoodMartDemo/obj/124/elements?id=6000'
+        result.totals == [[['25']]]
+    }
+
+    def "should deserialize two dimensional result"() {
+        when:
+        ColumnarExecutionResult result = OBJECT_MAPPER.readValue(TWO_DIMENSIONAL_JSON, ColumnarExecutionResult)
+
+        then:
+        result.rowCount == 3
+        result.columnCount == 2
+        result.getColumn(0)[0] == 1d
+        result.getColumn(0)[2] == 1000d
+        result.getValue(1, 1) == -4d
+        result.isNull(1, 0)
+        result.isNull(2, 1)
+        !result.isNull(0, 0)
+        Double.isNaN(result.getValue(1, 0))
+
+        result.getHeaderItemDictionary(0, 0).size() == 2
+        result.getHeaderItemCodes(0, 0) == [0, 1, 0] as int[]
+        result.getHeaderItem(0, 0, 2).name == 'Food'
+        (result.getHeaderItem(1, 0, 0) as ResultMeasureHeaderItem).order == 0
+        (result.getHeaderItem(1, 0, 1) as ResultTotalHeaderItem).type == 'sum'
+    }
+
+    def "should fail on jagged data"() {
+        when:
+        OBJECT_MAPPER.readValue('{"executionResult": {"data": [["1", "2"], ["3"]]}}', ColumnarExecutionResult)
+
+        then:
+        thrown(JsonMappingException)
+    }
+
+    def "should fail on non-numeric data"() {
+        when:
+        OBJECT_MAPPER.readValue('{"executionResult": {"data": ["abc"]}}', ColumnarExecutionResult)
+
+        then:
+        thrown(JsonMappingException)
+    }
+}
@@ -41,11 +41,13 @@ public class GoodDataSettingsTest {
         settings.setConnectionRequestTimeoutSeconds(69);
         settings.setSocketTimeoutSeconds(71);
         settings.setPollSleepSeconds(81);
+        settings.setDatasetCacheTtlSeconds(91);
 
         assertEquals(53000, settings.getConnectionTimeout());
         assertEquals(69000, settings.getConnectionRequestTimeout());
         assertEquals(71000, settings.getSocketTimeout());
         assertEquals(81000, settings.getPollSleep());
+        assertEquals(91000, settings.getDatasetCacheTtl());
     }
 
     @Test(expectedExceptions = IllegalArgumentException.class)
@@ -68,6 +70,11 @@ public class GoodDataSettingsTest {
         settings.setPollSleep(-5);
     }
 
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void setNegativeDatasetCacheTtlFails() throws Exception {
+        settings.setDatasetCacheTtl(-1);
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void setZeroMaxConnectionsFails() throws Exception {
         settings.setMaxConnections(0);
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.FutureResult;
+import org.apache.commons.io.FileUtils;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.springframework.web.client.ResourceAccessException;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ExecutionOrchestratorTest {
+
+    @Mock
+    private ProcessService service;
+
+    private Path temporaryFolder;
+    private Path checkpoint;
+    private ExecutionOrchestrator orchestrator;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        temporaryFolder = Files.createTempDirectory("execution-orchestrator");
+        checkpoint = temporaryFolder.resolve("graph.checkpoint");
+        orchestrator = new ExecutionOrchestrator(service, 10, 1, 0);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteQuietly(temporaryFolder.toFile());
+    }
+
+    @Test
+    public void shouldExecuteDependenciesFirst() throws Exception {
+        final Schedule extract = schedule("P1", "extract");
+        final Schedule load = schedule("P2", "load");
+        final FutureResult<ScheduleExecution> extractResult = scheduleResult("P1", "extract", "OK", false, true);
+        final FutureResult<ScheduleExecution> loadResult = scheduleResult("P2", "load", "OK", true);
+        when(service.executeSchedule(extract)).thenReturn(extractResult);
+        when(service.executeSchedule(load)).thenReturn(loadResult);
+
+        orchestrator.execute(new ExecutionGraph()
+                .addSchedule("extract", extract)
+                .addSchedule("load", load, "extract"), checkpoint);
+
+        final InOrder inOrder = inOrder(service, extractResult);
+        inOrder.verify(service).executeSchedule(extract);
+        inOrder.verify(extractResult).get();
+        inOrder.verify(service).executeSchedule(load);
+        final Properties progress = readCheckpoint();
+        assertThat(progress.getProperty("extract"), is(ExecutionCheckpoint.DONE));
+        assertThat(progress.getProperty("load"), is(ExecutionCheckpoint.DONE));
+    }
+
+    @Test
+    public void shouldLimitRunningExecutionsPerProject() throws Exception {
+        final Schedule first = schedule("P1", "first");
+        final Schedule second = schedule("P1", "second");
+        final Schedule other = schedule("P2", "other");
+        final FutureResult<ScheduleExecution> firstResult = scheduleResult("P1", "first", "OK", true);
+        final FutureResult<ScheduleExecution> secondResult = scheduleResult("P1", "second", "OK", true);
+        final FutureResult<ScheduleExecution> otherResult = scheduleResult("P2", "other", "OK", true);
+        when(service.executeSchedule(first)).thenReturn(firstResult);
+        when(service.executeSchedule(second)).thenReturn(secondResult);
+        when(service.executeSchedule(other)).thenReturn(otherResult);
+
+        orchestrator.execute(new ExecutionGraph()
+                .addSchedule("first", first)
+                .addSchedule("second", second)
+                .addSchedule("other", other), checkpoint);
+
+        final InOrder inOrder = inOrder(service, firstResult);
+        inOrder.verify(service).executeSchedule(first);
+        inOrder.verify(service).executeSchedule(other);
+        inOrder.verify(firstResult).get();
+        inOrder.verify(service).executeSchedule(second);
+    }
+
+    @Test
+    public void shouldSkipDependentsOfFailedNode() throws Exception {
+        final Schedule extract = schedule("P1", "extract");
+        final Schedule load = schedule("P1", "load");
+        final Schedule other = schedule("P2", "other");
+        final FutureResult<ScheduleExecution> extractResult = scheduleResult("P1", "extract", "ERROR", true);
+        final FutureResult<ScheduleExecution> otherResult = scheduleResult("P2", "other", "OK", true);
+        when(service.executeSchedule(extract)).thenReturn(extractResult);
+        when(service.executeSchedule(other)).thenReturn(otherResult);
+
+        try {
+            orchestrator.execute(new ExecutionGraph()
+                    .addSchedule("extract", extract)
+                    .addSchedule("load", load, "extract")
+                    .addSchedule("other", other), checkpoint);
+            throw new AssertionError("ExecutionGraphException expected");
+        } catch (ExecutionGraphException e) {
+            assertThat(e.getFailures(), hasKey("extract"));
+            assertThat(e.getSkipped(), contains("load"));
+        }
+        verify(service, never()).executeSchedule(load);
+        final Properties progress = readCheckpoint();
+        assertThat(progress.getProperty("extract"), is(nullValue()));
+        assertThat(progress.getProperty("other"), is(ExecutionCheckpoint.DONE));
+    }
+
+    @Test
+    public void shouldFailOnFailedProcessExecution() throws Exception {
+        final ProcessExecution execution = mock(ProcessExecution.class);
+        when(execution.getExecutionsUri()).thenReturn("/gdc/projects/P1/dataload/processes/PROCESS_ID/executions");
+        @SuppressWarnings("unchecked")
+        final FutureResult<ProcessExecutionDetail> result = mock(FutureResult.class);
+        when(result.getPollingUri()).thenReturn("/gdc/projects/P1/dataload/processes/PROCESS_ID/executions/E1");
+        when(result.isDone()).thenThrow(new ProcessExecutionException("Execution was not successful"));
+        when(service.executeProcess(execution)).thenReturn(result);
+
+        try {
+            orchestrator.execute(new ExecutionGraph().addProcessExecution("transform", execution), checkpoint);
+            throw new AssertionError("ExecutionGraphException expected");
+        } catch (ExecutionGraphException e) {
+            assertThat(e.getFailures(), hasKey("transform"));
+        }
+    }
+
+    @Test
+    public void shouldRetryTransientPollFailure() throws Exception {
+        final Schedule load = schedule("P1", "load");
+        final FutureResult<ScheduleExecution> loadResult = scheduleResult("P1", "load", "OK", false);
+        when(loadResult.isDone()).thenThrow(new ResourceAccessException("Connection reset")).thenReturn(true);
+        when(service.executeSchedule(load)).thenReturn(loadResult);
+
+        orchestrator.execute(new ExecutionGraph().addSchedule("load", load), checkpoint);
+
+        verify(loadResult, times(2)).isDone();
+        assertThat(readCheckpoint().getProperty("load"), is(ExecutionCheckpoint.DONE));
+    }
+
+    @Test
+    public void shouldFailAfterRepeatedPollFailures() throws Exception {
+        final Schedule load = schedule("P1", "load");
+        final FutureResult<ScheduleExecution> loadResult = scheduleResult("P1", "load", "OK", false);
+        when(loadResult.isDone()).thenThrow(new ResourceAccessException("Connection reset"));
+        when(service.executeSchedule(load)).thenReturn(loadResult);
+
+        try {
+            orchestrator.execute(new ExecutionGraph().addSchedule("load", load), checkpoint);
+            throw new AssertionError("ExecutionGraphException expected");
+        } catch (ExecutionGraphException e) {
+            assertThat(e.getFailures().get("load").getCause(), is(instanceOf(ResourceAccessException.class)));
+        }
+        verify(loadResult, times(ExecutionOrchestrator.MAX_POLL_RETRIES + 1)).isDone();
+        assertThat(readCheckpoint().getProperty("load"), is(nullValue()));
+    }
+
+    @Test
+    public void shouldResumeFromCheckpoint() throws Exception {
+        final String loadExecutionUri = "/gdc/projects/P1/schedules/load/executions/E1";
+        Files.write(checkpoint, ("extract=DONE\nload=" + loadExecutionUri + "\n").getBytes(UTF_8));
+        final Schedule extract = schedule("P1", "extract");
+        final Schedule load = schedule("P1", "load");
+        final Schedule publish = schedule("P1", "publish");
+        final FutureResult<ScheduleExecution> loadResult = scheduleResult("P1", "load", "OK", false, true);
+        final FutureResult<ScheduleExecution> publishResult = scheduleResult("P1", "publish", "OK", true);
+        when(service.getScheduleExecution(loadExecutionUri)).thenReturn(loadResult);
+        when(service.executeSchedule(publish)).thenReturn(publishResult);
+
+        orchestrator.execute(new ExecutionGraph()
+                .addSchedule("extract", extract)
+                .addSchedule("load", load, "extract")
+                .addSchedule("publish", publish, "load"), checkpoint);
+
+        verify(service, never()).executeSchedule(extract);
+        verify(service, never()).executeSchedule(load);
+        verify(service).executeSchedule(publish);
+        assertThat(readCheckpoint().getProperty("load"), is(ExecutionCheckpoint.DONE));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectUnknownDependency() throws Exception {
+        new ExecutionGraph().addSchedule("load", schedule("P1", "load"), "extract");
+    }
+
+    private Properties readCheckpoint() throws Exception {
+        final Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(checkpoint)) {
+            properties.load(input);
+        }
+        return properties;
+    }
+
+    private static Schedule schedule(final String projectId, final String scheduleId) {
+        final Schedule schedule = mock(Schedule.class);
+        when(schedule.getUri()).thenReturn("/gdc/projects/" + projectId + "/schedules/" + scheduleId);
+        when(schedule.getExecutionsUri()).thenReturn("/gdc/projects/" + projectId + "/schedules/" + scheduleId + "/executions");
+        return schedule;
+    }
+
+    private static FutureResult<ScheduleExecution> scheduleResult(final String projectId, final String scheduleId,
+                                                                  final String status, final Boolean done,
+                                                                  final Boolean... nextDone) {
+        final ScheduleExecution execution = mock(ScheduleExecution.class);
+        when(execution.getStatus()).thenReturn(status);
+        @SuppressWarnings("unchecked")
+        final FutureResult<ScheduleExecution> result = mock(FutureResult.class);
+        when(result.getPollingUri()).thenReturn("/gdc/projects/" + projectId + "/schedules/" + scheduleId + "/executions/E1");
+        when(result.isDone()).thenReturn(done, nextDone);
+        when(result.get()).thenReturn(execution);
+        return result;
+    }
+}
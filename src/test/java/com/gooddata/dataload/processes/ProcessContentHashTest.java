@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.util.ZipHelper;
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class ProcessContentHashTest {
+
+    private Path temporaryFolder;
+    private Path processDir;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        temporaryFolder = Files.createTempDirectory("process-hash");
+        processDir = temporaryFolder.resolve("process");
+        Files.createDirectories(processDir.resolve("lib"));
+        Files.write(processDir.resolve("main.rb"), "puts 'hello'".getBytes(UTF_8));
+        Files.write(processDir.resolve("lib").resolve("util.rb"), "def util; end".getBytes(UTF_8));
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteQuietly(temporaryFolder.toFile());
+    }
+
+    @Test
+    public void shouldIgnoreTimestamps() throws Exception {
+        final String hash = ProcessContentHash.compute(processDir.toFile());
+        Files.setLastModifiedTime(processDir.resolve("main.rb"), FileTime.fromMillis(0));
+
+        assertThat(ProcessContentHash.compute(processDir.toFile()), is(hash));
+    }
+
+    @Test
+    public void shouldChangeWithContent() throws Exception {
+        final String hash = ProcessContentHash.compute(processDir.toFile());
+        Files.write(processDir.resolve("main.rb"), "puts 'bye'".getBytes(UTF_8));
+
+        assertThat(ProcessContentHash.compute(processDir.toFile()), is(not(hash)));
+    }
+
+    @Test
+    public void shouldChangeWithPath() throws Exception {
+        final String hash = ProcessContentHash.compute(processDir.toFile());
+        Files.move(processDir.resolve("main.rb"), processDir.resolve("lib").resolve("main.rb"));
+
+        assertThat(ProcessContentHash.compute(processDir.toFile()), is(not(hash)));
+    }
+
+    @Test
+    public void shouldHashZipSameAsDirectory() throws Exception {
+        final Path zip = temporaryFolder.resolve("process.zip");
+        try (OutputStream output = Files.newOutputStream(zip)) {
+            ZipHelper.zip(processDir.toFile(), output);
+        }
+
+        assertThat(ProcessContentHash.compute(zip.toFile()), is(ProcessContentHash.compute(processDir.toFile())));
+    }
+}
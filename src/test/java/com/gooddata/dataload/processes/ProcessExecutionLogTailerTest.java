@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import org.joda.time.DateTime;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProcessExecutionLogTailerTest {
+
+    private static final String DETAIL_URI = "/gdc/projects/PROJECT_ID/dataload/processes/PROCESS_ID/executions/EXECUTION_ID/detail";
+    private static final String LOG_URI = "/gdc/projects/PROJECT_ID/dataload/processes/PROCESS_ID/executions/EXECUTION_ID/log";
+
+    @Mock
+    private ProcessService service;
+
+    private ProcessExecutionLogTailer tailer;
+    private final List<String> lines = new ArrayList<>();
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        tailer = new ProcessExecutionLogTailer(service, 0, 0);
+        lines.clear();
+    }
+
+    @Test
+    public void shouldTailLogUntilFinished() throws Exception {
+        final ProcessExecutionDetail running = detail("RUNNING", null);
+        final ProcessExecutionDetail finished = detail("OK", new DateTime());
+        when(service.getExecutionDetail(DETAIL_URI)).thenReturn(running, running, running, finished);
+        when(service.getExecutionLog(LOG_URI, 0)).thenReturn(bytes("first\nsec"));
+        when(service.getExecutionLog(LOG_URI, 9)).thenReturn(new byte[0], bytes("ond\r\nthi"));
+        when(service.getExecutionLog(LOG_URI, 17)).thenReturn(bytes("rd"));
+
+        final ProcessExecutionDetail result = tailer.tail(DETAIL_URI, lines::add);
+
+        assertThat(result, is(finished));
+        assertThat(lines, contains("first", "second", "third"));
+    }
+
+    @Test
+    public void shouldKeepPollingUntilLogLinkAvailable() throws Exception {
+        final ProcessExecutionDetail queued = detail("QUEUED", null);
+        when(queued.getLogUri()).thenReturn(null);
+        final ProcessExecutionDetail finished = detail("OK", new DateTime());
+        when(service.getExecutionDetail(DETAIL_URI)).thenReturn(queued, queued, finished);
+        when(service.getExecutionLog(LOG_URI, 0)).thenReturn(bytes("done\n"));
+
+        final ProcessExecutionDetail result = tailer.tail(DETAIL_URI, lines::add);
+
+        assertThat(result, is(finished));
+        assertThat(lines, contains("done"));
+        verify(service, times(3)).getExecutionDetail(DETAIL_URI);
+        verify(service, times(1)).getExecutionLog(LOG_URI, 0);
+    }
+
+    @Test
+    public void shouldDecodeCharacterSplitBetweenChunks() throws Exception {
+        final byte[] log = bytes("žluťoučký\n");
+        final byte[] first = new byte[2];
+        final byte[] second = new byte[log.length - 2];
+        System.arraycopy(log, 0, first, 0, first.length);
+        System.arraycopy(log, first.length, second, 0, second.length);
+
+        final ProcessExecutionDetail running = detail("RUNNING", null);
+        final ProcessExecutionDetail finished = detail("ERROR", null);
+        when(service.getExecutionDetail(DETAIL_URI)).thenReturn(running, finished);
+        when(service.getExecutionLog(LOG_URI, 0)).thenReturn(first);
+        when(service.getExecutionLog(LOG_URI, 2)).thenReturn(second);
+
+        tailer.tail(DETAIL_URI, lines::add);
+
+        assertThat(lines, contains("žluťoučký"));
+    }
+
+    @Test
+    public void shouldTailExecutionOfFutureResult() throws Exception {
+        @SuppressWarnings("unchecked")
+        final FutureResult<ProcessExecutionDetail> execution = mock(FutureResult.class);
+        when(execution.getPollingUri())
+                .thenReturn("/gdc/projects/PROJECT_ID/dataload/processes/PROCESS_ID/executions/EXECUTION_ID");
+        final ProcessExecutionDetail finished = detail("OK", new DateTime());
+        when(service.getExecutionDetail(DETAIL_URI)).thenReturn(finished);
+        when(service.getExecutionLog(LOG_URI, 0)).thenReturn(bytes("done\n"));
+
+        tailer.tail(execution, lines::add);
+
+        verify(service).getExecutionDetail(DETAIL_URI);
+        assertThat(lines, contains("done"));
+    }
+
+    @Test(expectedExceptions = GoodDataException.class)
+    public void shouldFailWhenLogUnavailable() throws Exception {
+        final ProcessExecutionDetail running = detail("RUNNING", null);
+        when(service.getExecutionDetail(DETAIL_URI)).thenReturn(running);
+        when(service.getExecutionLog(LOG_URI, 0)).thenThrow(new GoodDataException("log unavailable"));
+
+        tailer.tail(DETAIL_URI, lines::add);
+    }
+
+    private static ProcessExecutionDetail detail(final String status, final DateTime finished) {
+        final ProcessExecutionDetail detail = mock(ProcessExecutionDetail.class);
+        when(detail.getStatus()).thenReturn(status);
+        when(detail.getFinished()).thenReturn(finished);
+        when(detail.getLogUri()).thenReturn(LOG_URI);
+        return detail;
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(UTF_8);
+    }
+}
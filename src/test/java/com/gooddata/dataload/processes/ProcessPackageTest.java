@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.GoodDataException;
+import org.springframework.util.StreamUtils;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+public class ProcessPackageTest {
+
+    @Test
+    public void shouldKeepSmallPackageInMemory() throws Exception {
+        final ProcessPackage processPackage = new ProcessPackage(10, input -> {
+            throw new AssertionError("upload not expected");
+        });
+        try (ProcessPackage output = processPackage) {
+            output.write(new byte[]{1, 2, 3});
+            output.write(4);
+        }
+
+        assertThat(processPackage.isUploaded(), is(false));
+        assertThat(processPackage.toByteArray(), is(new byte[]{1, 2, 3, 4}));
+    }
+
+    @Test
+    public void shouldUploadLargePackage() throws Exception {
+        final byte[] data = new byte[3 * ProcessPackage.PIPE_SIZE];
+        new Random().nextBytes(data);
+        final ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+        final ProcessPackage processPackage = new ProcessPackage(100, input -> {
+            try {
+                StreamUtils.copy(input, uploaded);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        try (ProcessPackage output = processPackage) {
+            output.write(data, 0, 50);
+            output.write(data, 50, data.length - 50);
+        }
+
+        assertThat(processPackage.isUploaded(), is(true));
+        assertThat(uploaded.toByteArray(), is(data));
+    }
+
+    @Test
+    public void shouldFailWhenUploadFails() throws Exception {
+        final GoodDataException failure = new GoodDataException("Unable to upload");
+        final ProcessPackage processPackage = new ProcessPackage(0, input -> {
+            throw failure;
+        });
+        try (ProcessPackage output = processPackage) {
+            for (int i = 0; i < 10; i++) {
+                output.write(new byte[ProcessPackage.PIPE_SIZE]);
+            }
+            throw new AssertionError("IOException expected");
+        } catch (IOException e) {
+            assertThat(e.getCause(), is(instanceOf(GoodDataException.class)));
+        }
+    }
+
+    @Test
+    public void shouldFailUploadOfAbortedPackage() throws Exception {
+        final AtomicReference<IOException> uploadFailure = new AtomicReference<>();
+        final ProcessPackage processPackage = new ProcessPackage(0, input -> {
+            try {
+                StreamUtils.copy(input, new ByteArrayOutputStream());
+            } catch (IOException e) {
+                uploadFailure.set(e);
+            }
+        });
+        processPackage.write(new byte[3 * ProcessPackage.PIPE_SIZE]);
+
+        processPackage.abort();
+        processPackage.close();
+
+        assertThat(processPackage.isUploaded(), is(true));
+        assertThat(uploadFailure.get(), is(notNullValue()));
+    }
+}
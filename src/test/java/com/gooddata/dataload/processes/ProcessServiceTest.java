@@ -11,8 +11,10 @@ import com.gooddata.GoodDataRestException;
 import com.gooddata.GoodDataSettings;
 import com.gooddata.account.Account;
 import com.gooddata.account.AccountService;
+import com.gooddata.gdc.DataStoreException;
 import com.gooddata.gdc.DataStoreService;
 import com.gooddata.project.Project;
+import org.apache.commons.io.FileUtils;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -21,18 +23,26 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipInputStream;
 
 import static java.net.URI.create;
 import static java.util.Arrays.asList;
@@ -45,7 +55,10 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.notNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -116,10 +129,89 @@ public class ProcessServiceTest {
         when(dataStoreService.getUri(anyString())).thenReturn(create("URI"));
         when(restTemplate.exchange(any(URI.class), eq(HttpMethod.POST), eq(new HttpEntity<>(process)), eq(DataloadProcess.class)))
             .thenReturn(new ResponseEntity<>(process, HttpStatus.CREATED));
+        final ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+        doAnswer(invocation -> {
+            StreamUtils.copy((InputStream) invocation.getArguments()[1], uploaded);
+            return null;
+        }).when(dataStoreService).upload(anyString(), any(InputStream.class));
 
-        processService.createProcess(project, process, createProcessOfSize(2048));
+        final File processData = createProcessOfSize(2048);
+        processService.createProcess(project, process, processData);
 
         verify(dataStoreService).upload(anyString(), notNull(InputStream.class));
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(uploaded.toByteArray()))) {
+            assertThat(zip.getNextEntry().getName(), is(processData.getName()));
+            assertThat(StreamUtils.copyToByteArray(zip).length, is(2048 * 1024));
+        }
+    }
+
+    @Test(expectedExceptions = GoodDataException.class)
+    public void shouldFailWhenLargeProcessUploadFails() throws Exception {
+        final DataloadProcess process = new DataloadProcess("test", ProcessType.GRAPH);
+        doThrow(new DataStoreException("Unable to upload", null)).when(dataStoreService)
+                .upload(anyString(), any(InputStream.class));
+
+        processService.createProcess(project, process, createProcessOfSize(2048));
+    }
+
+    @Test
+    public void shouldAbortLargeProcessUploadWhenZippingFails() throws Exception {
+        final DataloadProcess process = new DataloadProcess("test", ProcessType.GRAPH);
+        final Path processDir = Files.createTempDirectory("process");
+        for (int i = 0; i < 3; i++) {
+            Files.copy(createProcessOfSize(1536).toPath(), processDir.resolve("part" + i + ".txt"));
+        }
+        final AtomicReference<IOException> uploadFailure = new AtomicReference<>();
+        doAnswer(invocation -> {
+            // the files not zipped yet disappear, so zipping fails after the package switched to upload
+            FileUtils.cleanDirectory(processDir.toFile());
+            try {
+                StreamUtils.copy((InputStream) invocation.getArguments()[1], new ByteArrayOutputStream());
+            } catch (IOException e) {
+                uploadFailure.set(e);
+                throw new DataStoreException("Unable to upload", e);
+            }
+            return null;
+        }).when(dataStoreService).upload(anyString(), any(InputStream.class));
+
+        try {
+            processService.createProcess(project, process, processDir.toFile());
+            throw new AssertionError("GoodDataException expected");
+        } catch (GoodDataException e) {
+            assertThat(e.getMessage(), is("Unable to zip process data"));
+        } finally {
+            FileUtils.deleteQuietly(processDir.toFile());
+        }
+
+        assertNotNull(uploadFailure.get());
+        final ArgumentCaptor<String> uploadPath = ArgumentCaptor.forClass(String.class);
+        verify(dataStoreService).upload(uploadPath.capture(), any(InputStream.class));
+        verify(dataStoreService).delete(uploadPath.getValue());
+        verifyZeroInteractions(restTemplate);
+    }
+
+    @Test
+    public void shouldSkipUpdateOfUnchangedProcess() throws Exception {
+        final DataloadProcess process = new DataloadProcess("test", ProcessType.GRAPH) {
+            @Override
+            public String getUri() {
+                return PROCESS_URI;
+            }
+        };
+        final File processData = createProcessOfSize(1);
+        final File registryFile = File.createTempFile("registry", ".properties");
+        registryFile.delete();
+        registryFile.deleteOnExit();
+        when(restTemplate.exchange(any(URI.class), eq(HttpMethod.POST), any(HttpEntity.class), eq(DataloadProcess.class)))
+                .thenReturn(new ResponseEntity<>(process, HttpStatus.OK));
+
+        processService.updateProcessIfChanged(process, processData, new ProcessDeploymentRegistry(registryFile.toPath()));
+        final DataloadProcess skipped = processService.updateProcessIfChanged(process, processData,
+                new ProcessDeploymentRegistry(registryFile.toPath()));
+
+        assertThat(skipped, is(process));
+        verify(restTemplate, times(1))
+                .exchange(any(URI.class), eq(HttpMethod.POST), any(HttpEntity.class), eq(DataloadProcess.class));
     }
 
     private static File createProcessOfSize(int size) throws Exception {
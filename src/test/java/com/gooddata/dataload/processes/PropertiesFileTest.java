@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataload.processes;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class PropertiesFileTest {
+
+    private Path temporaryFolder;
+    private PropertiesFile file;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        temporaryFolder = Files.createTempDirectory("properties-file");
+        file = new PropertiesFile(temporaryFolder.resolve("test.properties"), "test file");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteQuietly(temporaryFolder.toFile());
+    }
+
+    @Test
+    public void shouldLoadEmptyPropertiesWhenFileDoesNotExist() throws Exception {
+        assertThat(file.load().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldLoadStoredProperties() throws Exception {
+        final Properties properties = new Properties();
+        properties.setProperty("key", "value");
+        file.store(properties, "comment");
+
+        assertThat(file.load(), is(properties));
+        try (Stream<Path> files = Files.list(temporaryFolder)) {
+            assertThat(files.count(), is(1L));
+        }
+    }
+}
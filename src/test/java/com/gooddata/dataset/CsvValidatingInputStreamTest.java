@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.testng.Assert.fail;
+
+public class CsvValidatingInputStreamTest {
+
+    private DatasetManifest manifest;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        manifest = new DatasetManifest("dataset.person", "dataset.person.csv", asList(
+                new DatasetManifest.Part("FULL", "name", singletonList("label.person.name"), true, null),
+                new DatasetManifest.Part("FULL", "born", singletonList("person.born"), false,
+                        singletonMap("date", "yyyy-MM-dd"))
+        ));
+    }
+
+    @Test
+    public void shouldPassValidCsv() throws Exception {
+        final String csv = "born,name\r\n2017-01-31,\"Doe, \"\"John\"\"\"\r\n,Jane\r\n";
+        assertThat(IOUtils.toString(validating(csv), UTF_8), is(csv));
+    }
+
+    @Test
+    public void shouldPassWithoutTrailingNewline() throws Exception {
+        IOUtils.toByteArray(validating("name,born\nJohn,2017-01-31"));
+    }
+
+    @Test
+    public void shouldFailOnHeaderMismatch() throws Exception {
+        assertFailure("name,birth\nJohn,2017-01-31\n", 1, 2);
+    }
+
+    @Test
+    public void shouldFailOnColumnCount() throws Exception {
+        assertFailure("name,born\nJohn,2017-01-31\nJane\n", 3, 1);
+    }
+
+    @Test
+    public void shouldFailOnTooManyColumns() throws Exception {
+        assertFailure("name,born\nJohn,2017-01-31,x\n", 2, 2);
+    }
+
+    @Test
+    public void shouldFailOnInvalidDate() throws Exception {
+        assertFailure("name,born\nJohn,2017-01-31\nJane,31.1.2017\n", 3, 2);
+    }
+
+    @Test
+    public void shouldFailOnQuoteInUnquotedValue() throws Exception {
+        assertFailure("name,born\nJo\"hn,2017-01-31\n", 2, 1);
+    }
+
+    @Test
+    public void shouldFailOnUnterminatedQuote() throws Exception {
+        assertFailure("name,born\n\"John,2017-01-31\n", 2, 1);
+    }
+
+    @Test
+    public void shouldFailOnEmptyInput() throws Exception {
+        assertFailure("", 1, 1);
+    }
+
+    @Test
+    public void shouldSkipNothingForNonPositiveCount() throws Exception {
+        final InputStream input = validating("name,born\nJohn,2017-01-31\n");
+        assertThat(input.skip(-1), is(0L));
+        assertThat(input.skip(0), is(0L));
+        assertThat(input.skip(4), is(4L));
+    }
+
+    private InputStream validating(final String csv) {
+        return new CsvValidatingInputStream(manifest, new ByteArrayInputStream(csv.getBytes(UTF_8)));
+    }
+
+    private void assertFailure(final String csv, final long row, final int column) throws Exception {
+        try {
+            IOUtils.toByteArray(validating(csv));
+            fail("validation should fail");
+        } catch (DatasetValidationException e) {
+            assertThat(e.getRow(), is(row));
+            assertThat(e.getColumn(), is(column));
+        }
+    }
+}
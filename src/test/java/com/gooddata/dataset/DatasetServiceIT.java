@@ -18,6 +18,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.Map;
 
 import static com.gooddata.util.ResourceUtils.OBJECT_MAPPER;
 import static com.gooddata.util.ResourceUtils.readFromResource;
@@ -314,6 +315,23 @@ public class DatasetServiceIT extends AbstractGoodDataIT {
         assertThat(upload.getStatus(), is("OK"));
     }
 
+    @Test
+    public void shouldGetLastUploads() throws Exception {
+        onRequest()
+                .havingPathEqualTo("/gdc/md/PROJECT_ID/data/sets")
+        .respond()
+                .withStatus(200)
+                .withBody(readFromResource("/dataset/uploads/data-sets.json"));
+
+        final Map<String, Upload> uploads = gd.getDatasetService().getLastUploads(project);
+
+        assertThat(uploads, hasKey("dataset.campaign"));
+        assertThat(uploads, not(hasKey("dataset.os")));
+        final Upload upload = uploads.get("dataset.campaign");
+        assertThat(upload.getStatus(), is("WARNING"));
+        assertThat(upload.getUri(), is("/gdc/md/PROJECT_ID/data/upload/1076"));
+    }
+
     @Test
     public void shouldGetUploadStatistics() throws Exception {
         onRequest()
@@ -34,6 +34,8 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DatasetServiceTest {
@@ -274,6 +276,67 @@ public class DatasetServiceTest {
         service.getUploadStatistics(project);
     }
 
+    @Test
+    public void testGetDatasetManifestCached() throws Exception {
+        final GoodDataSettings settings = new GoodDataSettings();
+        settings.setDatasetCacheTtlSeconds(60);
+        final DatasetService cachingService = new DatasetService(restTemplate, dataStoreService, settings);
+        final DatasetManifest fetched = new DatasetManifest(DATASET_ID, "file.csv", null);
+        when(restTemplate.getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID))
+                .thenReturn(fetched);
+
+        final DatasetManifest first = cachingService.getDatasetManifest(project, DATASET_ID);
+        first.setFile("changed.csv");
+        final DatasetManifest second = cachingService.getDatasetManifest(project, DATASET_ID);
+
+        assertThat(second.getFile(), is("file.csv"));
+        verify(restTemplate, times(1)).getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID);
+
+        cachingService.invalidateCache(project);
+        cachingService.getDatasetManifest(project, DATASET_ID);
+
+        verify(restTemplate, times(2)).getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID);
+    }
+
+    @Test
+    public void testGetDatasetManifestFetchedAgainWhenExpired() throws Exception {
+        final GoodDataSettings settings = new GoodDataSettings();
+        settings.setDatasetCacheTtl(1);
+        final DatasetService cachingService = new DatasetService(restTemplate, dataStoreService, settings);
+        when(restTemplate.getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID))
+                .thenReturn(new DatasetManifest(DATASET_ID, "file.csv", null));
+
+        cachingService.getDatasetManifest(project, DATASET_ID);
+        Thread.sleep(10);
+        cachingService.getDatasetManifest(project, DATASET_ID);
+
+        verify(restTemplate, times(2)).getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID);
+    }
+
+    @Test
+    public void testGetDatasetManifestNotCachedByDefault() throws Exception {
+        when(restTemplate.getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID))
+                .thenReturn(new DatasetManifest(DATASET_ID));
+
+        service.getDatasetManifest(project, DATASET_ID);
+        service.getDatasetManifest(project, DATASET_ID);
+
+        verify(restTemplate, times(2)).getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID);
+    }
+
+    @Test
+    public void testGetDataSetInfoCached() throws Exception {
+        final GoodDataSettings settings = new GoodDataSettings();
+        settings.setDatasetCacheTtlSeconds(60);
+        final DatasetService cachingService = new DatasetService(restTemplate, dataStoreService, settings);
+        mockDataSetInfo();
+
+        cachingService.getDataSetInfo(project, DATASET_ID);
+        cachingService.getLastUploads(project);
+
+        verify(restTemplate, times(1)).getForObject(UploadsInfo.URI_TEMPLATE.expand(PROJECT_ID), UploadsInfo.class);
+    }
+
     private UploadsInfo.DataSet mockDataSetInfo() {
         final UploadsInfo.DataSet dataSetInfo = mock(UploadsInfo.DataSet.class);
         when(dataSetInfo.getDatasetId()).thenReturn(DATASET_ID);
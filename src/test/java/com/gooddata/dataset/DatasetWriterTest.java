@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.FutureResult;
+import com.gooddata.project.Project;
+import org.apache.commons.io.IOUtils;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DatasetWriterTest {
+
+    @Mock
+    private DatasetService datasetService;
+    @Mock
+    private Project project;
+
+    private DatasetManifest manifest;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        manifest = new DatasetManifest("dataset.person", "person.csv", Arrays.asList(
+                new DatasetManifest.Part(null, "id", null, true, null),
+                new DatasetManifest.Part(null, "name", null, false, null),
+                new DatasetManifest.Part(null, "score", null, false, null)));
+    }
+
+    @Test
+    public void shouldWriteRows() throws Exception {
+        final AtomicReference<String> uploaded = new AtomicReference<>();
+        @SuppressWarnings("unchecked")
+        final FutureResult<Void> result = mock(FutureResult.class);
+        when(datasetService.loadDataset(eq(project), eq(manifest), any(InputStream.class))).thenAnswer(invocation -> {
+            uploaded.set(IOUtils.toString((InputStream) invocation.getArguments()[2], UTF_8));
+            return result;
+        });
+
+        try (DatasetWriter writer = new DatasetWriter(datasetService, project, manifest, 16, 1)) {
+            writer.setLong(0, -42);
+            writer.setString(1, "Doe, \"John\"");
+            writer.setDouble(2, 1.5);
+            writer.endRow();
+            writer.setInt(0, 7);
+            writer.setString(1, "Žluťoučký");
+            writer.endRow();
+
+            assertThat(writer.getRowCount(), is(2L));
+            assertThat(writer.finish(), is(sameInstance(result)));
+        }
+
+        assertThat(uploaded.get(), is("id,name,score\r\n-42,\"Doe, \"\"John\"\"\",1.5\r\n7,Žluťoučký,\r\n"));
+    }
+
+    @Test
+    public void shouldWriteDoublesWithoutExponent() throws Exception {
+        final AtomicReference<String> uploaded = new AtomicReference<>();
+        @SuppressWarnings("unchecked")
+        final FutureResult<Void> result = mock(FutureResult.class);
+        when(datasetService.loadDataset(eq(project), eq(manifest), any(InputStream.class))).thenAnswer(invocation -> {
+            uploaded.set(IOUtils.toString((InputStream) invocation.getArguments()[2], UTF_8));
+            return result;
+        });
+
+        try (DatasetWriter writer = new DatasetWriter(datasetService, project, manifest, 16, 1)) {
+            writer.setDouble(0, 1.0E10);
+            writer.setDouble(1, 1.0E-5);
+            writer.setDouble(2, -2.5E-10);
+            writer.endRow();
+            writer.finish();
+        }
+
+        assertThat(uploaded.get(), is("id,name,score\r\n10000000000,0.00001,-0.00000000025\r\n"));
+    }
+
+    @Test
+    public void shouldWriteDoublesWithManySignificantDigits() throws Exception {
+        final AtomicReference<String> uploaded = new AtomicReference<>();
+        @SuppressWarnings("unchecked")
+        final FutureResult<Void> result = mock(FutureResult.class);
+        when(datasetService.loadDataset(eq(project), eq(manifest), any(InputStream.class))).thenAnswer(invocation -> {
+            uploaded.set(IOUtils.toString((InputStream) invocation.getArguments()[2], UTF_8));
+            return result;
+        });
+
+        try (DatasetWriter writer = new DatasetWriter(datasetService, project, manifest, 16, 1)) {
+            writer.setDouble(0, -1234.5678);
+            writer.setDouble(1, 0.1 + 0.2);
+            writer.setDouble(2, 1.0E20);
+            writer.endRow();
+            writer.finish();
+        }
+
+        assertThat(uploaded.get(), is("id,name,score\r\n-1234.5678,0.30000000000000004,100000000000000000000\r\n"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectNonFiniteDouble() throws Exception {
+        try (DatasetWriter writer = new DatasetWriter(datasetService, project, manifest)) {
+            writer.setDouble(2, Double.NaN);
+        }
+    }
+
+    @Test(expectedExceptions = DatasetException.class, expectedExceptionsMessageRegExp = ".*Unable to upload.*")
+    public void shouldFailWhenUploadFails() throws Exception {
+        when(datasetService.loadDataset(eq(project), eq(manifest), any(InputStream.class)))
+                .thenThrow(new DatasetException("Unable to upload", "dataset.person"));
+
+        try (DatasetWriter writer = new DatasetWriter(datasetService, project, manifest, 16, 1)) {
+            for (int i = 0; i < 1000; i++) {
+                writer.setLong(0, i);
+                writer.endRow();
+            }
+            writer.finish();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidColumn() throws Exception {
+        try (DatasetWriter writer = new DatasetWriter(datasetService, project, manifest)) {
+            writer.setLong(3, 1);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void shouldRejectRowAfterFinish() throws Exception {
+        final DatasetWriter writer = new DatasetWriter(datasetService, project, manifest);
+        writer.finish();
+        writer.endRow();
+    }
+}
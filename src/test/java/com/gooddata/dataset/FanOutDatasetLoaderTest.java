@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.FutureResult;
+import com.gooddata.project.Project;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FanOutDatasetLoaderTest {
+
+    private static final String DIR = "/fanout_abc/";
+
+    @Mock
+    private DatasetService datasetService;
+    @Mock
+    private Project first;
+    @Mock
+    private Project second;
+    @Mock
+    private FutureResult<Void> success;
+    @Mock
+    private FutureResult<Void> failure;
+
+    private DatasetManifest manifest;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(first.getId()).thenReturn("FIRST");
+        when(second.getId()).thenReturn("SECOND");
+        when(datasetService.createStagingPath(anyString())).thenReturn(DIR);
+        manifest = new DatasetManifest("dataset.currency", new ByteArrayInputStream(new byte[0]));
+        manifest.setFile("dataset.currency.csv");
+    }
+
+    @Test
+    public void shouldUploadOnceAndLoadAllProjects() throws Exception {
+        when(datasetService.uploadDatasets(eq(DIR), anyCollectionOf(DatasetManifest.class)))
+                .thenReturn(singletonList("dataset.currency"));
+        when(datasetService.pullLoad(eq(first), eq(DIR), anyCollectionOf(String.class), eq(false))).thenReturn(success);
+        when(datasetService.pullLoad(eq(second), eq(DIR), anyCollectionOf(String.class), eq(false))).thenReturn(failure);
+        doThrow(new DatasetException("failed", "dataset.currency")).when(failure).get();
+
+        final FanOutLoadResult result = new FanOutDatasetLoader(datasetService, 2).load(asList(first, second), manifest);
+
+        assertThat(result.isSuccess(), is(false));
+        assertThat(result.getLoaded(), contains("FIRST"));
+        assertThat(result.getFailed().keySet(), contains("SECOND"));
+        verify(datasetService, times(1)).uploadDatasets(eq(DIR), anyCollectionOf(DatasetManifest.class));
+        verify(datasetService).deleteStagingPath(DIR);
+    }
+
+    @Test
+    public void shouldReportUncheckedPullFailure() throws Exception {
+        when(datasetService.uploadDatasets(eq(DIR), anyCollectionOf(DatasetManifest.class)))
+                .thenReturn(singletonList("dataset.currency"));
+        when(datasetService.pullLoad(eq(first), eq(DIR), anyCollectionOf(String.class), eq(false))).thenReturn(success);
+        when(datasetService.pullLoad(eq(second), eq(DIR), anyCollectionOf(String.class), eq(false))).thenReturn(failure);
+        doThrow(new IllegalStateException("unexpected")).when(failure).get();
+
+        final FanOutLoadResult result = new FanOutDatasetLoader(datasetService, 2).load(asList(first, second), manifest);
+
+        assertThat(result.getLoaded(), contains("FIRST"));
+        assertThat(result.getFailed().keySet(), contains("SECOND"));
+        assertThat(result.getFailed().get("SECOND"), is(instanceOf(DatasetException.class)));
+        assertThat(result.getFailed().get("SECOND").getCause(), is(instanceOf(IllegalStateException.class)));
+    }
+
+    @Test(expectedExceptions = DatasetException.class)
+    public void shouldFailWhenUploadFails() throws Exception {
+        when(datasetService.uploadDatasets(eq(DIR), anyCollectionOf(DatasetManifest.class)))
+                .thenThrow(new DatasetException("upload failed", "dataset.currency"));
+        try {
+            new FanOutDatasetLoader(datasetService, 2).load(asList(first, second), manifest);
+        } finally {
+            verify(datasetService, never()).pullLoad(eq(first), eq(DIR), anyCollectionOf(String.class), eq(false));
+            verify(datasetService).deleteStagingPath(DIR);
+        }
+    }
+
+    @Test
+    public void shouldKeepStagingDataWhenInterrupted() throws Exception {
+        when(datasetService.uploadDatasets(eq(DIR), anyCollectionOf(DatasetManifest.class)))
+                .thenReturn(singletonList("dataset.currency"));
+        when(datasetService.pullLoad(eq(first), eq(DIR), anyCollectionOf(String.class), eq(false))).thenReturn(success);
+        when(datasetService.pullLoad(eq(second), eq(DIR), anyCollectionOf(String.class), eq(false))).thenReturn(success);
+
+        Thread.currentThread().interrupt();
+        try {
+            new FanOutDatasetLoader(datasetService, 2).load(asList(first, second), manifest);
+            throw new AssertionError("DatasetException expected");
+        } catch (DatasetException e) {
+            assertThat(e.getMessage().contains(DIR), is(true));
+        } finally {
+            Thread.interrupted();
+        }
+        verify(datasetService, never()).deleteStagingPath(DIR);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.FutureResult;
+import com.gooddata.project.Project;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+public class IncrementalLoadPlannerTest {
+
+    @Mock
+    private DatasetService datasetService;
+    @Mock
+    private Project project;
+    @Mock
+    private FutureResult<Void> loadResult;
+
+    private Path snapshotDirectory;
+    private DatasetManifest manifest;
+    private IncrementalLoadPlanner planner;
+    private final List<String> uploads = new ArrayList<>();
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        uploads.clear();
+        when(project.getId()).thenReturn("PROJECT");
+        snapshotDirectory = Files.createTempDirectory("snapshots");
+        manifest = new DatasetManifest("dataset.person", "dataset.person.csv", asList(
+                new DatasetManifest.Part("FULL", "id", singletonList("label.person.id"), true, null),
+                new DatasetManifest.Part("FULL", "name", singletonList("label.person.name"), false, null)
+        ));
+        when(datasetService.loadDataset(eq(project), eq(manifest), any(InputStream.class))).thenAnswer(invocation -> {
+            uploads.add(IOUtils.toString((InputStream) invocation.getArguments()[2], UTF_8));
+            return loadResult;
+        });
+        planner = new IncrementalLoadPlanner(datasetService, snapshotDirectory);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(snapshotDirectory.toFile());
+    }
+
+    @Test
+    public void shouldLoadOnlyChangedRows() throws Exception {
+        final IncrementalLoadStatistics first = planner.loadDataset(project, manifest, csv("id,name\n1,a\n2,b\n")).get();
+        assertThat(first.getChangedRows(), is(2L));
+
+        final IncrementalLoadStatistics second = planner.loadDataset(project, manifest,
+                csv("id,name\r\n1,a\r\n2,\"c\"\r\n3,d\r\n")).get();
+        assertThat(second.getRows(), is(3L));
+        assertThat(second.getChangedRows(), is(2L));
+
+        assertThat(uploads, contains("id,name\n1,a\n2,b\n", "id,name\r\n2,\"c\"\r\n3,d\r\n"));
+        assertThat(manifest.getParts().get(0).getUploadMode(), is(UploadMode.INCREMENTAL.name()));
+    }
+
+    @Test
+    public void shouldSkipLoadWithoutChanges() throws Exception {
+        planner.loadDataset(project, manifest, csv("id,name\n1,a\n2,b\n")).get();
+
+        final IncrementalLoadStatistics statistics = planner.loadDataset(project, manifest,
+                csv("id,name\n2,b\n1,a")).get();
+
+        assertThat(statistics.isSkipped(), is(true));
+        assertThat(statistics.getRows(), is(2L));
+        assertThat(uploads.size(), is(1));
+    }
+
+    @Test
+    public void shouldNotUpdateSnapshotWhenLoadFails() throws Exception {
+        when(loadResult.get()).thenThrow(new DatasetException("failed", "dataset.person"));
+        try {
+            planner.loadDataset(project, manifest, csv("id,name\n1,a\n")).get();
+        } catch (DatasetException expected) {
+            // expected
+        }
+
+        doReturn(null).when(loadResult).get();
+        final IncrementalLoadStatistics statistics = planner.loadDataset(project, manifest, csv("id,name\n1,a\n")).get();
+
+        assertThat(statistics.getChangedRows(), is(1L));
+    }
+
+    @Test
+    public void shouldReadWrittenSnapshot() throws Exception {
+        final RowHashSnapshot snapshot = new RowHashSnapshot();
+        for (long i = 1; i <= 5000; i++) {
+            snapshot.put(i, i * 31);
+        }
+        final Path file = snapshotDirectory.resolve("test.snapshot");
+        snapshot.write(file);
+
+        final RowHashSnapshot read = RowHashSnapshot.read(file);
+        assertThat(read.size(), is(5000));
+        assertThat(read.get(42), is(42L * 31));
+        assertThat(read.get(5001), is(0L));
+    }
+
+    private static InputStream csv(final String csv) {
+        return new ByteArrayInputStream(csv.getBytes(UTF_8));
+    }
+}
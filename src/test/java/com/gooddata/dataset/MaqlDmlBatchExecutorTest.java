@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import com.gooddata.project.Project;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MaqlDmlBatchExecutorTest {
+
+    private static final String DELETE_1 = "DELETE FROM {attr.person.id} WHERE {label.person.id} = \"1\";";
+    private static final String DELETE_2 = "DELETE FROM {attr.person.id} WHERE {label.person.id} = \"2\"";
+    private static final String DELETE_3 = "DELETE FROM {attr.person.id} WHERE {label.person.id} = \"3\";";
+
+    @Mock
+    private DatasetService datasetService;
+    @Mock
+    private Project project;
+    @Mock
+    private FutureResult<Void> success;
+    @Mock
+    private FutureResult<Void> failure;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(project.getId()).thenReturn("PROJECT_ID");
+        when(failure.get()).thenThrow(new GoodDataException("Unable to update data"));
+        when(datasetService.updateProjectData(eq(project), anyString())).thenReturn(success);
+    }
+
+    @Test
+    public void shouldMergeStatementsIntoScripts() throws Exception {
+        final MaqlDmlBatchExecutor executor = new MaqlDmlBatchExecutor(datasetService, 2 * DELETE_1.length() + 1, 1);
+
+        final MaqlDmlBatchResult result = executor.execute(project, asList(DELETE_1, DELETE_2, DELETE_3));
+
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getStatementCount(), is(3));
+        assertThat(result.getScriptCount(), is(2));
+        assertThat(result.getSucceededCount(), is(3));
+        verify(datasetService).updateProjectData(project, DELETE_1 + "\n" + DELETE_2 + ";");
+        verify(datasetService).updateProjectData(project, DELETE_3);
+        verify(success, times(2)).get();
+    }
+
+    @Test
+    public void shouldMapFailureToStatements() throws Exception {
+        when(datasetService.updateProjectData(project, DELETE_1 + "\n" + DELETE_2 + ";")).thenReturn(failure);
+        final MaqlDmlBatchExecutor executor = new MaqlDmlBatchExecutor(datasetService, 2 * DELETE_1.length() + 1, 2);
+
+        final MaqlDmlBatchResult result = executor.execute(project, asList(DELETE_1, DELETE_2, DELETE_3));
+
+        assertThat(result.isSuccess(), is(false));
+        assertThat(result.getFailed().keySet(), contains(0, 1));
+        assertThat(result.getSucceededCount(), is(1));
+    }
+
+    @Test
+    public void shouldPutLongStatementIntoOwnScript() throws Exception {
+        final MaqlDmlBatchExecutor executor = new MaqlDmlBatchExecutor(datasetService, 10, 1);
+
+        final MaqlDmlBatchResult result = executor.execute(project, asList(DELETE_1, DELETE_3));
+
+        assertThat(result.getScriptCount(), is(2));
+        verify(datasetService).updateProjectData(project, DELETE_1);
+        verify(datasetService).updateProjectData(project, DELETE_3);
+    }
+}
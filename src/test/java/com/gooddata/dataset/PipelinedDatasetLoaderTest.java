@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.FutureResult;
+import com.gooddata.project.Project;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PipelinedDatasetLoaderTest {
+
+    @Mock
+    private DatasetService datasetService;
+    @Mock
+    private Project project;
+
+    private final DatasetManifest first = new DatasetManifest("dataset.first");
+    private final DatasetManifest second = new DatasetManifest("dataset.second");
+    private final DatasetManifest third = new DatasetManifest("dataset.third");
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(project.getId()).thenReturn("PROJECT");
+        when(datasetService.createStagingPath(project)).thenReturn("/dir1/", "/dir2/", "/dir3/");
+        when(datasetService.uploadDatasets(eq("/dir1/"), anyCollectionOf(DatasetManifest.class)))
+                .thenReturn(singletonList("dataset.first"));
+        when(datasetService.uploadDatasets(eq("/dir2/"), anyCollectionOf(DatasetManifest.class)))
+                .thenReturn(singletonList("dataset.second"));
+        when(datasetService.uploadDatasets(eq("/dir3/"), anyCollectionOf(DatasetManifest.class)))
+                .thenReturn(singletonList("dataset.third"));
+    }
+
+    @Test
+    public void shouldLoadBatchesInOrder() throws Exception {
+        final FutureResult<Void> success = pull(null);
+        when(datasetService.pullLoad(eq(project), eq("/dir1/"), anyCollectionOf(String.class))).thenReturn(success);
+        when(datasetService.pullLoad(eq(project), eq("/dir2/"), anyCollectionOf(String.class))).thenReturn(success);
+        when(datasetService.pullLoad(eq(project), eq("/dir3/"), anyCollectionOf(String.class))).thenReturn(success);
+
+        final List<BatchLoadResult> results = new PipelinedDatasetLoader(datasetService, 2)
+                .load(project, asList(first, second, third).iterator());
+
+        assertThat(results, hasSize(3));
+        for (int i = 0; i < results.size(); i++) {
+            assertThat(results.get(i).getIndex(), is(i));
+            assertThat(results.get(i).getStatus(), is(BatchLoadResult.Status.LOADED));
+        }
+        final InOrder pulls = inOrder(datasetService);
+        pulls.verify(datasetService).pullLoad(eq(project), eq("/dir1/"), anyCollectionOf(String.class));
+        pulls.verify(datasetService).pullLoad(eq(project), eq("/dir2/"), anyCollectionOf(String.class));
+        pulls.verify(datasetService).pullLoad(eq(project), eq("/dir3/"), anyCollectionOf(String.class));
+    }
+
+    @Test
+    public void shouldSkipBatchesAfterFailure() throws Exception {
+        final DatasetException failure = new DatasetException("failed", "dataset.first");
+        final FutureResult<Void> failed = pull(failure);
+        when(datasetService.pullLoad(eq(project), eq("/dir1/"), anyCollectionOf(String.class))).thenReturn(failed);
+
+        final List<BatchLoadResult> results = new PipelinedDatasetLoader(datasetService, 2)
+                .load(project, asList(first, second, third).iterator());
+
+        assertThat(results, hasSize(2));
+        assertThat(results.get(0).getStatus(), is(BatchLoadResult.Status.FAILED));
+        assertThat(results.get(0).getFailure(), is((Object) failure));
+        assertThat(results.get(1).getStatus(), is(BatchLoadResult.Status.SKIPPED));
+        verify(datasetService).deleteStagingPath("/dir1/");
+        verify(datasetService).deleteStagingPath("/dir2/");
+        verify(datasetService, never()).pullLoad(eq(project), eq("/dir2/"), anyCollectionOf(String.class));
+        verify(datasetService, times(2)).createStagingPath(project);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FutureResult<Void> pull(final DatasetException failure) {
+        final FutureResult<Void> result = mock(FutureResult.class);
+        if (failure != null) {
+            when(result.get()).thenThrow(failure);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm;
+
+import com.gooddata.executeafm.afm.Afm;
+import com.gooddata.executeafm.afm.AttributeItem;
+import com.gooddata.executeafm.afm.CompatibilityFilter;
+import com.gooddata.executeafm.afm.ExpressionFilter;
+import com.gooddata.executeafm.afm.MeasureItem;
+import com.gooddata.executeafm.afm.NegativeAttributeFilter;
+import com.gooddata.executeafm.afm.PositiveAttributeFilter;
+import com.gooddata.executeafm.afm.SimpleMeasureDefinition;
+import com.gooddata.md.MetadataService;
+import com.gooddata.project.Project;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AfmNormalizerTest {
+
+    private static final String PROJECT_ID = "PROJECT_ID";
+    private static final String DF_ID = "label.country";
+    private static final String DF_URI = "/gdc/md/PROJECT_ID/obj/1";
+    private static final String METRIC_ID = "metric.amount";
+    private static final String METRIC_URI = "/gdc/md/PROJECT_ID/obj/2";
+
+    @Mock
+    private MetadataService metadataService;
+    @Mock
+    private Project project;
+
+    private AfmNormalizer normalizer;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(project.getId()).thenReturn(PROJECT_ID);
+        final Map<String, String> uris = new HashMap<>();
+        uris.put(DF_ID, DF_URI);
+        uris.put(METRIC_ID, METRIC_URI);
+        when(metadataService.identifiersToUris(eq(project), anyCollectionOf(String.class))).thenReturn(uris);
+        normalizer = new AfmNormalizer(metadataService);
+    }
+
+    @Test
+    public void shouldResolveIdentifiersInSingleCall() throws Exception {
+        final Execution execution = new Execution(new Afm()
+                .addAttribute(new AttributeItem(new IdentifierObjQualifier(DF_ID), "a1"))
+                .addFilter(new PositiveAttributeFilter(new IdentifierObjQualifier(DF_ID), "x"))
+                .addMeasure(new MeasureItem(new SimpleMeasureDefinition(new IdentifierObjQualifier(METRIC_ID)), "m1")));
+
+        final Execution normalized = normalizer.normalize(project, execution);
+
+        assertThat(normalized.getAfm().getAttributes().get(0).getDisplayForm(), is(new UriObjQualifier(DF_URI)));
+        assertThat(((PositiveAttributeFilter) normalized.getAfm().getFilters().get(0)).getDisplayForm(),
+                is(new UriObjQualifier(DF_URI)));
+        assertThat(normalized.getAfm().getMeasures().get(0).getDefinition().getObjQualifier(),
+                is(new UriObjQualifier(METRIC_URI)));
+        verify(metadataService, times(1)).identifiersToUris(eq(project), anyCollectionOf(String.class));
+    }
+
+    @Test
+    public void shouldReuseResolvedIdentifiers() throws Exception {
+        final Execution execution = new Execution(new Afm()
+                .addAttribute(new AttributeItem(new IdentifierObjQualifier(DF_ID), "a1")));
+
+        normalizer.normalize(project, execution);
+        normalizer.normalize(project, execution);
+
+        verify(metadataService, times(1)).identifiersToUris(eq(project), anyCollectionOf(String.class));
+    }
+
+    @Test(expectedExceptions = ExecuteAfmException.class, expectedExceptionsMessageRegExp = ".*unknown.*")
+    public void shouldFailOnUnknownIdentifier() throws Exception {
+        normalizer.normalize(project, new Execution(new Afm()
+                .addAttribute(new AttributeItem(new IdentifierObjQualifier("unknown"), "a1"))));
+    }
+
+    @Test
+    public void shouldMergeAttributeFilters() throws Exception {
+        final Execution execution = new Execution(new Afm()
+                .addFilter(new PositiveAttributeFilter(new IdentifierObjQualifier(DF_ID), "c", "b", "a"))
+                .addFilter(new PositiveAttributeFilter(new UriObjQualifier(DF_URI), "a", "b"))
+                .addFilter(new NegativeAttributeFilter(new UriObjQualifier(DF_URI), "b"))
+                .addFilter(new NegativeAttributeFilter(new UriObjQualifier("/gdc/md/PROJECT_ID/obj/3")))
+                .addFilter(new ExpressionFilter("x"))
+                .addFilter(new ExpressionFilter("x")));
+
+        final List<CompatibilityFilter> filters = normalizer.normalize(project, execution).getAfm().getFilters();
+
+        assertThat(filters, hasSize(2));
+        assertThat(filters.get(0), is(instanceOf(ExpressionFilter.class)));
+        final PositiveAttributeFilter merged = (PositiveAttributeFilter) filters.get(1);
+        assertThat(merged.getDisplayForm(), is(new UriObjQualifier(DF_URI)));
+        assertThat(merged.getIn(), contains("a"));
+    }
+
+    @Test
+    public void shouldKeepDisjointPositiveFiltersUnmerged() throws Exception {
+        final Execution execution = new Execution(new Afm()
+                .addFilter(new PositiveAttributeFilter(new UriObjQualifier(DF_URI), "a"))
+                .addFilter(new PositiveAttributeFilter(new IdentifierObjQualifier(DF_ID), "b"))
+                .addFilter(new PositiveAttributeFilter(new UriObjQualifier(DF_URI))));
+
+        final List<CompatibilityFilter> filters = normalizer.normalize(project, execution).getAfm().getFilters();
+
+        final List<String> in = new ArrayList<>();
+        for (CompatibilityFilter filter : filters) {
+            assertThat(((PositiveAttributeFilter) filter).getDisplayForm(), is(new UriObjQualifier(DF_URI)));
+            in.add(String.join(",", ((PositiveAttributeFilter) filter).getIn()));
+        }
+        assertThat(in, containsInAnyOrder("a", "b", ""));
+    }
+
+    @Test
+    public void shouldIgnoreEmptyPositiveFilterWhenMerging() throws Exception {
+        final Execution execution = new Execution(new Afm()
+                .addFilter(new PositiveAttributeFilter(new UriObjQualifier(DF_URI), "a", "b"))
+                .addFilter(new PositiveAttributeFilter(new UriObjQualifier(DF_URI))));
+
+        final List<CompatibilityFilter> filters = normalizer.normalize(project, execution).getAfm().getFilters();
+
+        assertThat(filters, hasSize(1));
+        assertThat(((PositiveAttributeFilter) filters.get(0)).getIn(), contains("a", "b"));
+    }
+
+    @Test
+    public void shouldHaveSameFingerprintForEquivalentExecutions() throws Exception {
+        final Execution byIdentifier = new Execution(new Afm()
+                .addFilter(new ExpressionFilter("x"))
+                .addFilter(new PositiveAttributeFilter(new IdentifierObjQualifier(DF_ID), "b", "a")));
+        final Execution byUri = new Execution(new Afm()
+                .addFilter(new PositiveAttributeFilter(new UriObjQualifier(DF_URI), "a", "b"))
+                .addFilter(new ExpressionFilter("x")));
+
+        final String fingerprint = AfmNormalizer.fingerprint(normalizer.normalize(project, byIdentifier));
+
+        assertThat(fingerprint, is(AfmNormalizer.fingerprint(normalizer.normalize(project, byUri))));
+        assertThat(fingerprint.length(), is(32));
+        assertThat(fingerprint, is(not(AfmNormalizer.fingerprint(byIdentifier))));
+    }
+
+    @Test
+    public void shouldKeepMeasureOrder() throws Exception {
+        final Execution execution = new Execution(new Afm()
+                .addMeasure(new MeasureItem(new SimpleMeasureDefinition(new UriObjQualifier("/gdc/md/PROJECT_ID/obj/9")), "m9"))
+                .addMeasure(new MeasureItem(new SimpleMeasureDefinition(new UriObjQualifier(METRIC_URI)), "m2")));
+
+        final List<MeasureItem> measures = normalizer.normalize(project, execution).getAfm().getMeasures();
+
+        assertThat(measures.get(0).getLocalIdentifier(), is("m9"));
+        assertThat(measures.get(1).getLocalIdentifier(), is("m2"));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm;
+
+import com.gooddata.AbstractGoodDataIT;
+import com.gooddata.executeafm.response.ExecutionResponse;
+import com.gooddata.executeafm.result.ColumnarExecutionResult;
+import com.gooddata.executeafm.result.ExecutionResult;
+import com.gooddata.executeafm.result.Paging;
+import com.gooddata.project.Project;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.gooddata.util.ResourceUtils.OBJECT_MAPPER;
+import static com.gooddata.util.ResourceUtils.readFromResource;
+import static com.gooddata.util.ResourceUtils.readObjectFromResource;
+import static net.jadler.Jadler.onRequest;
+import static net.jadler.Jadler.verifyThatRequest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ExecuteAfmServiceIT extends AbstractGoodDataIT {
+
+    private static final String EXECUTION_URI = "/gdc/app/projects/PROJECT_ID/executeAfm";
+    private static final String RESULT_PATH = "/gdc/app/projects/PROJECT_ID/executionResults/123";
+    private static final String RESULT_URI = RESULT_PATH + "?q=abc&offset=0&limit=1000";
+
+    private Project project;
+    private ExecutionResponse response;
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+        project = readObjectFromResource("/project/project.json", Project.class);
+        final ExecutionResponse fixture = readObjectFromResource("/executeafm/response/executionResponse.json",
+                ExecutionResponse.class);
+        response = new ExecutionResponse(fixture.getDimensions(), RESULT_URI);
+    }
+
+    @Test
+    public void shouldExecuteAfm() throws Exception {
+        onRequest()
+                .havingPathEqualTo(EXECUTION_URI)
+                .havingMethodEqualTo("POST")
+            .respond()
+                .withStatus(201)
+                .withBody(OBJECT_MAPPER.writeValueAsString(response));
+        final Execution execution = readObjectFromResource("/executeafm/execution.json", Execution.class);
+
+        final ExecutionResponse executionResponse = gd.getExecuteAfmService().executeAfm(project, execution);
+
+        assertThat(executionResponse.getExecutionResultUri(), is(RESULT_URI));
+        assertThat(executionResponse.getDimensions(), hasSize(1));
+    }
+
+    @Test(expectedExceptions = ExecuteAfmException.class)
+    public void shouldFailExecuteAfm() throws Exception {
+        onRequest()
+                .havingPathEqualTo(EXECUTION_URI)
+                .havingMethodEqualTo("POST")
+            .respond()
+                .withStatus(400);
+
+        gd.getExecuteAfmService().executeAfm(project,
+                readObjectFromResource("/executeafm/execution.json", Execution.class));
+    }
+
+    @Test
+    public void shouldGetResult() throws Exception {
+        onRequest()
+                .havingPathEqualTo(RESULT_PATH)
+                .havingMethodEqualTo("GET")
+            .respond()
+                .withStatus(202)
+            .thenRespond()
+                .withStatus(200)
+                .withBody(readFromResource("/executeafm/result/executionResult.json"));
+
+        final ExecutionResult result = gd.getExecuteAfmService().getResult(response).get();
+
+        assertThat(result, notNullValue());
+        assertThat(result.getPaging().getTotal(), contains(4));
+    }
+
+    @Test
+    public void shouldGetColumnarResult() throws Exception {
+        onRequest()
+                .havingPathEqualTo(RESULT_PATH)
+                .havingMethodEqualTo("GET")
+            .respond()
+                .withStatus(200)
+                .withBody(readFromResource("/executeafm/result/executionResultFull.json"));
+
+        final ColumnarExecutionResult result = gd.getExecuteAfmService().getColumnarResult(response).get();
+
+        assertThat(result.getRowCount(), is(4));
+        assertThat(result.getValue(2, 0), is(-2748323.76));
+        assertThat(result.getHeaderItem(0, 0, 1).getName(), is("Salaries"));
+    }
+
+    @Test
+    public void shouldGetNoResultWhenNoData() throws Exception {
+        onRequest()
+                .havingPathEqualTo(RESULT_PATH)
+                .havingMethodEqualTo("GET")
+            .respond()
+                .withStatus(204);
+
+        assertThat(gd.getExecuteAfmService().getResult(response).get(), is(nullValue()));
+        assertThat(gd.getExecuteAfmService().getResultPages(response, 2).hasNext(), is(false));
+    }
+
+    @Test(expectedExceptions = ExecuteAfmException.class)
+    public void shouldFailGetResultWhenGone() throws Exception {
+        onRequest()
+                .havingPathEqualTo(RESULT_PATH)
+                .havingMethodEqualTo("GET")
+            .respond()
+                .withStatus(410);
+
+        gd.getExecuteAfmService().getResult(response).get();
+    }
+
+    @Test(expectedExceptions = ExecuteAfmException.class, expectedExceptionsMessageRegExp = "Timeout.*")
+    public void shouldFailReadResultOnTimeout() throws Exception {
+        onRequest()
+                .havingPathEqualTo(RESULT_PATH)
+                .havingMethodEqualTo("GET")
+            .respond()
+                .withStatus(202);
+
+        gd.getExecuteAfmService().readResult(RESULT_URI, r -> null, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void shouldIterateResultPages() throws Exception {
+        mockPage(0, "-12958511.8099999", "25315434.8199999");
+        mockPage(2, "-2748323.76", "-7252542.67");
+
+        final List<String> data = new ArrayList<>();
+        try (ExecutionResultIterator pages = gd.getExecuteAfmService().getResultPages(response, 2)) {
+            while (pages.hasNext()) {
+                final ExecutionResult page = pages.next();
+                assertThat(page.getPaging().getCount(), contains(2));
+                data.add(OBJECT_MAPPER.writeValueAsString(page));
+            }
+        }
+
+        assertThat(data, hasSize(2));
+        verifyThatRequest()
+                .havingPathEqualTo(RESULT_PATH)
+                .havingParameterEqualTo("q", "abc")
+                .havingParameterEqualTo("limit", "2")
+            .receivedTimes(2);
+    }
+
+    private static void mockPage(final int offset, final String... data) throws Exception {
+        final ExecutionResult page = new ExecutionResult(data, new Paging().count(2).offset(offset).total(4));
+        onRequest()
+                .havingPathEqualTo(RESULT_PATH)
+                .havingParameterEqualTo("offset", String.valueOf(offset))
+                .havingParameterEqualTo("limit", "2")
+            .respond()
+                .withBody(OBJECT_MAPPER.writeValueAsString(page));
+    }
+}
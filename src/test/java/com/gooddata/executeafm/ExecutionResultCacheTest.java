@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm;
+
+import com.gooddata.FutureResult;
+import com.gooddata.executeafm.afm.Afm;
+import com.gooddata.executeafm.afm.ExpressionFilter;
+import com.gooddata.executeafm.afm.PositiveAttributeFilter;
+import com.gooddata.executeafm.response.ExecutionResponse;
+import com.gooddata.executeafm.result.ExecutionResult;
+import com.gooddata.project.Project;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ExecutionResultCacheTest {
+
+    private static final String PROJECT_ID = "PROJECT_ID";
+
+    @Mock
+    private ExecuteAfmService service;
+    @Mock
+    private ExecutionResponse response;
+    @Mock
+    private Project project;
+    @Mock
+    private FutureResult<ExecutionResult> futureResult;
+    @Mock
+    private ExecutionResult result;
+
+    private ExecutionResultCache cache;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(project.getId()).thenReturn(PROJECT_ID);
+        when(service.executeAfm(eq(project), any(Execution.class))).thenReturn(response);
+        when(service.getResult(response)).thenReturn(futureResult);
+        when(futureResult.get()).thenReturn(result);
+        cache = new ExecutionResultCache(service, 2, 1, TimeUnit.HOURS);
+    }
+
+    @Test
+    public void shouldCacheResult() throws Exception {
+        assertThat(cache.getResult(project, execution("a", "b")), is(sameInstance(result)));
+        assertThat(cache.getResult(project, execution("a", "b")), is(sameInstance(result)));
+
+        verify(service, times(1)).executeAfm(eq(project), any(Execution.class));
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void shouldIgnoreFilterOrder() throws Exception {
+        cache.getResult(project, execution("a", "b"));
+        cache.getResult(project, execution("b", "a"));
+
+        verify(service, times(1)).executeAfm(eq(project), any(Execution.class));
+    }
+
+    @Test
+    public void shouldDistinguishExecutions() throws Exception {
+        final Execution filtered = new Execution(new Afm().addFilter(
+                new PositiveAttributeFilter(new UriObjQualifier("/gdc/md/PROJECT_ID/obj/1"), "a")));
+        cache.getResult(project, execution("a", "b"));
+        cache.getResult(project, filtered);
+
+        verify(service, times(2)).executeAfm(eq(project), any(Execution.class));
+        assertThat(AfmNormalizer.fingerprint(execution("a", "b")), is(not(AfmNormalizer.fingerprint(filtered))));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        cache.getResult(project, execution("a"));
+        cache.getResult(project, execution("b"));
+        cache.getResult(project, execution("a"));
+        cache.getResult(project, execution("c"));
+        cache.getResult(project, execution("a"));
+        cache.getResult(project, execution("b"));
+
+        assertThat(cache.size(), is(2));
+        verify(service, times(4)).executeAfm(eq(project), any(Execution.class));
+    }
+
+    @Test
+    public void shouldExpireResult() throws Exception {
+        final ExecutionResultCache expiring = new ExecutionResultCache(service, 2, 1, TimeUnit.MILLISECONDS);
+        expiring.getResult(project, execution("a"));
+        Thread.sleep(10);
+        expiring.getResult(project, execution("a"));
+
+        verify(service, times(2)).executeAfm(eq(project), any(Execution.class));
+    }
+
+    @Test
+    public void shouldNotCacheFailure() throws Exception {
+        when(futureResult.get()).thenThrow(new ExecuteAfmException("failed")).thenReturn(result);
+        try {
+            cache.getResult(project, execution("a"));
+        } catch (ExecuteAfmException ignored) {
+        }
+
+        assertThat(cache.getResult(project, execution("a")), is(sameInstance(result)));
+        verify(service, times(2)).executeAfm(eq(project), any(Execution.class));
+    }
+
+    @Test
+    public void shouldInvalidateWhenLoadDone() throws Exception {
+        @SuppressWarnings("unchecked")
+        final FutureResult<Void> load = mock(FutureResult.class);
+        cache.getResult(project, execution("a"));
+
+        cache.invalidateWhenDone(project, load).get();
+        cache.getResult(project, execution("a"));
+
+        assertThat(cache.size(), is(1));
+        verify(service, times(2)).executeAfm(eq(project), any(Execution.class));
+    }
+
+    private static Execution execution(final String... expressions) {
+        final Afm afm = new Afm();
+        for (String expression : expressions) {
+            afm.addFilter(new ExpressionFilter(expression));
+        }
+        return new Execution(afm);
+    }
+}
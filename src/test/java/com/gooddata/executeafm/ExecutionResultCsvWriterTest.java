@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm;
+
+import com.gooddata.executeafm.response.ExecutionResponse;
+import com.gooddata.executeafm.response.ResultDimension;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseExtractor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExecutionResultCsvWriterTest {
+
+    private static final String RESULT_URI = "/gdc/app/projects/PROJECT_ID/executionResults/123?q=abc";
+
+    @Mock
+    private ExecuteAfmService service;
+    @Mock
+    private ExecutionResponse response;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(response.getDimensions()).thenReturn(asList(mock(ResultDimension.class), mock(ResultDimension.class)));
+        when(response.getExecutionResultUri()).thenReturn(RESULT_URI);
+    }
+
+    @Test
+    public void shouldWriteRowPages() throws Exception {
+        doAnswer(invocation -> {
+            final String uri = (String) invocation.getArguments()[0];
+            final int row = uri.contains("offset=0,0") ? 0 : 1;
+            final ClientHttpResponse page = mock(ClientHttpResponse.class);
+            when(page.getBody()).thenReturn(new ByteArrayInputStream(page(row).getBytes(UTF_8)));
+            ((ResponseExtractor<?>) invocation.getArguments()[1]).extractData(page);
+            return true;
+        }).when(service).readResult(anyString(), any(ResponseExtractor.class), anyLong(), any(TimeUnit.class));
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        final long rows = new ExecutionResultCsvWriter(service, 1, 10).write(response, output);
+
+        assertThat(rows, is(2L));
+        assertThat(output.toString("UTF-8"), is(",Amount,\"Sum, \"\"total\"\"\"\r\nFood,1,\r\nDrink,2,3.5\r\n"));
+    }
+
+    @Test
+    public void shouldWriteNothingWithoutData() throws Exception {
+        doReturn(false).when(service).readResult(anyString(), any(ResponseExtractor.class), anyLong(), any(TimeUnit.class));
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertThat(new ExecutionResultCsvWriter(service, 1, 10).write(response, output), is(0L));
+        assertThat(output.size(), is(0));
+    }
+
+    private static String page(final int row) {
+        final String[] names = {"Food", "Drink"};
+        final String[] data = {"[\"1\", null]", "[\"2\", \"3.5\"]"};
+        return "{\"executionResult\": {"
+                + "\"data\": [" + data[row] + "],"
+                + "\"paging\": {\"count\": [1, 2], \"offset\": [" + row + ", 0], \"total\": [2, 2]},"
+                + "\"headerItems\": ["
+                + "[[{\"attributeHeaderItem\": {\"name\": \"" + names[row] + "\", \"uri\": \"/gdc/md/PROJECT_ID/obj/1/elements?id=" + row + "\"}}]],"
+                + "[[{\"measureHeaderItem\": {\"name\": \"Amount\", \"order\": 0}},"
+                + "{\"totalHeaderItem\": {\"name\": \"Sum, \\\"total\\\"\", \"type\": \"sum\"}}]]"
+                + "]}}";
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.executeafm;
+
+import com.gooddata.FutureResult;
+import com.gooddata.executeafm.response.ExecutionResponse;
+import com.gooddata.executeafm.response.ResultDimension;
+import com.gooddata.executeafm.result.AttributeHeaderItem;
+import com.gooddata.executeafm.result.ExecutionResult;
+import com.gooddata.executeafm.result.Paging;
+import com.gooddata.executeafm.result.ResultHeaderItem;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ParallelResultFetcherTest {
+
+    private static final int ROWS = 3;
+    private static final int COLUMNS = 2;
+
+    @Mock
+    private ExecuteAfmService service;
+    @Mock
+    private ExecutionResponse response;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(response.getDimensions()).thenReturn(asList(mock(ResultDimension.class), mock(ResultDimension.class)));
+        when(response.getExecutionResultUri()).thenReturn("/gdc/app/projects/PROJECT_ID/executionResults/123");
+    }
+
+    @Test
+    public void shouldStitchPages() throws Exception {
+        mockPages(this::page);
+
+        final ExecutionResult result = new ParallelResultFetcher(service, 2).fetch(response, 2, 1);
+
+        assertThat(result.getPaging().getTotal(), contains(ROWS, COLUMNS));
+        assertThat(result.getPaging().getCount(), contains(ROWS, COLUMNS));
+        assertThat(result.getData(), is((Object) asList(asList("0:0", "0:1"), asList("1:0", "1:1"), asList("2:0", "2:1"))));
+        assertThat(names(result.getHeaderItems().get(0).get(0)), contains("row0", "row1", "row2"));
+        assertThat(names(result.getHeaderItems().get(1).get(0)), contains("column0", "column1"));
+        verify(service, times(4)).getResult(eq(response), any(Paging.class));
+    }
+
+    @Test
+    public void shouldStreamPagesInOrder() throws Exception {
+        mockPages(this::page);
+        final List<List<Integer>> offsets = new ArrayList<>();
+
+        final int pages = new ParallelResultFetcher(service, 3)
+                .fetch(response, page -> offsets.add(page.getPaging().getOffset()), 2, 1);
+
+        assertThat(pages, is(4));
+        assertThat(offsets, contains(asList(0, 0), asList(0, 1), asList(2, 0), asList(2, 1)));
+    }
+
+    @Test
+    public void shouldReturnNullWhenNoData() throws Exception {
+        mockPages(paging -> null);
+
+        assertThat(new ParallelResultFetcher(service, 2).fetch(response, 10), is(nullValue()));
+    }
+
+    private void mockPages(final Function<Paging, ExecutionResult> pages) {
+        when(service.getResult(eq(response), any(Paging.class))).thenAnswer(invocation -> {
+            final ExecutionResult page = pages.apply((Paging) invocation.getArguments()[1]);
+            @SuppressWarnings("unchecked")
+            final FutureResult<ExecutionResult> future = mock(FutureResult.class);
+            when(future.get()).thenReturn(page);
+            return future;
+        });
+    }
+
+    private ExecutionResult page(final Paging request) {
+        final int rowOffset = request.getOffset().get(0);
+        final int columnOffset = request.getOffset().get(1);
+        final int rows = Math.min(request.getCount().get(0), ROWS - rowOffset);
+        final int columns = Math.min(request.getCount().get(1), COLUMNS - columnOffset);
+
+        final String[][] data = new String[rows][columns];
+        final List<ResultHeaderItem> rowItems = new ArrayList<>();
+        final List<ResultHeaderItem> columnItems = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            rowItems.add(new AttributeHeaderItem("row" + (rowOffset + row), "/row/" + (rowOffset + row)));
+            for (int column = 0; column < columns; column++) {
+                data[row][column] = (rowOffset + row) + ":" + (columnOffset + column);
+            }
+        }
+        for (int column = 0; column < columns; column++) {
+            columnItems.add(new AttributeHeaderItem("column" + (columnOffset + column), "/column/" + (columnOffset + column)));
+        }
+
+        final ExecutionResult page = new ExecutionResult(data,
+                new Paging().offset(rowOffset, columnOffset).count(rows, columns).total(ROWS, COLUMNS));
+        page.setHeaderItems(asList(singletonList(rowItems), singletonList(columnItems)));
+        return page;
+    }
+
+    private static List<String> names(final List<ResultHeaderItem> items) {
+        final List<String> names = new ArrayList<>();
+        items.forEach(item -> names.add(item.getName()));
+        return names;
+    }
+}
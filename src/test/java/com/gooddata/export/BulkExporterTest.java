@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.export;
+
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataRestException;
+import com.gooddata.md.report.Report;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.client.ResourceAccessException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static com.gooddata.util.ResourceUtils.readObjectFromResource;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BulkExporterTest {
+
+    private static final byte[] EXEC_RESULT = "{}".getBytes();
+    private static final String EXPORT_URI = "/gdc/exporter/result/123";
+
+    @Mock
+    private ExportService service;
+    private Report report;
+    @Mock
+    private FutureResult<Void> exportResult;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        report = readObjectFromResource("/md/report/report.json", Report.class);
+        when(service.executeReportResult(eq(ReportRequest.URI), any(ReportRequest.class))).thenReturn(EXEC_RESULT);
+        when(service.exportReport(EXEC_RESULT, ExportFormat.CSV)).thenReturn(EXPORT_URI);
+        when(service.awaitExport(eq(EXPORT_URI), any(ExportService.ExportTarget.class))).thenReturn(exportResult);
+    }
+
+    @Test
+    public void shouldExportAllJobs() throws Exception {
+        final List<BulkExportResult> results = new BulkExporter(service, 1, 1, 2)
+                .export(asList(job("1"), job("2"), job("3")));
+
+        assertThat(results.size(), is(3));
+        for (int i = 0; i < results.size(); i++) {
+            assertThat(results.get(i).isSuccess(), is(true));
+            assertThat(results.get(i).getJob().getTarget(), is(target(String.valueOf(i + 1))));
+            assertThat(results.get(i).getAttempts(), is(3));
+        }
+        verify(exportResult, times(3)).get();
+    }
+
+    @Test
+    public void shouldRetryTransientFailure() throws Exception {
+        when(service.exportReport(EXEC_RESULT, ExportFormat.CSV))
+                .thenThrow(new ExportException("Unable to export report", new GoodDataRestException(503, "", "", "", "")))
+                .thenReturn(EXPORT_URI);
+
+        final BulkExportResult result = new BulkExporter(service, 1, 1, 1, 3, 0).export(asList(job("1"))).get(0);
+
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getFailure(), is(nullValue()));
+        assertThat(result.getAttempts(), is(4));
+    }
+
+    @Test
+    public void shouldFailJobOnPermanentFailure() throws Exception {
+        final ExportException failure = new ExportException("Unable to execute report",
+                new GoodDataRestException(400, "", "", "", ""));
+        when(service.executeReportResult(eq(ReportRequest.URI), any(ReportRequest.class)))
+                .thenThrow(failure)
+                .thenReturn(EXEC_RESULT);
+
+        final List<BulkExportResult> results = new BulkExporter(service, 1, 1, 1, 3, 0)
+                .export(asList(job("1"), job("2")));
+
+        assertThat(results.get(0).isSuccess(), is(false));
+        assertThat(results.get(0).getFailure(), is(sameInstance((Object) failure)));
+        assertThat(results.get(0).getAttempts(), is(1));
+        assertThat(results.get(1).isSuccess(), is(true));
+        verify(service, times(1)).exportReport(EXEC_RESULT, ExportFormat.CSV);
+    }
+
+    @Test
+    public void shouldRecognizeTransientFailures() throws Exception {
+        assertThat(BulkExporter.isTransient(new ExportException("x", new GoodDataRestException(500, "", "", "", ""))),
+                is(true));
+        assertThat(BulkExporter.isTransient(new GoodDataRestException(429, "", "", "", "")), is(true));
+        assertThat(BulkExporter.isTransient(new GoodDataRestException(404, "", "", "", "")), is(false));
+        assertThat(BulkExporter.isTransient(new NoDataExportException()), is(false));
+        assertThat(BulkExporter.isTransient(new ResourceAccessException("connection reset")),
+                is(true));
+    }
+
+    private BulkExportJob job(final String name) {
+        return new BulkExportJob(report, ExportFormat.CSV, target(name));
+    }
+
+    private static Path target(final String name) {
+        return Paths.get("/tmp", name + ".csv");
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.export;
+
+import com.gooddata.FutureResult;
+import com.gooddata.md.ProjectDashboard;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static com.gooddata.util.ResourceUtils.readObjectFromResource;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DashboardPdfExporterTest {
+
+    @Mock
+    private ExportService service;
+    private ProjectDashboard dashboard;
+    private ProjectDashboard.Tab tab1;
+    private ProjectDashboard.Tab tab2;
+    private Path directory;
+    private Path file1;
+    private Path file2;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        dashboard = readObjectFromResource("/md/projectDashboard.json", ProjectDashboard.class);
+        directory = Files.createTempDirectory("dashboard-export-test");
+        final List<ProjectDashboard.Tab> tabs = asList(dashboard.getTabs().toArray(new ProjectDashboard.Tab[0]));
+        tab1 = tabs.get(0);
+        tab2 = tabs.get(1);
+        file1 = directory.resolve("12345-tab1abc.pdf");
+        file2 = directory.resolve("12345-tab2def.pdf");
+        when(service.getPollSleep()).thenReturn(0);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void shouldExportAllTabsInOrder() throws Exception {
+        // the second tab finishes first, the first one needs another poll
+        final FutureResult<Void> result1 = finishedAfter(2, file1, "tab1");
+        final FutureResult<Void> result2 = finishedAfter(1, file2, "tab2");
+        when(service.exportPdfToFile(dashboard, tab1, file1)).thenReturn(result1);
+        when(service.exportPdfToFile(dashboard, tab2, file2)).thenReturn(result2);
+
+        final List<Path> files = new DashboardPdfExporter(service, 2).export(dashboard, directory);
+
+        assertThat(files, is(asList(file1, file2)));
+        assertThat(read(files.get(0)), is("tab1"));
+        assertThat(read(files.get(1)), is("tab2"));
+        verify(result1, times(2)).isDone();
+        verify(result2, times(1)).isDone();
+    }
+
+    @Test
+    public void shouldExportOtherTabsWhenOneFails() throws Exception {
+        final ExportException failure = new ExportException("Unable to export dashboard");
+        @SuppressWarnings("unchecked")
+        final FutureResult<Void> result1 = mock(FutureResult.class);
+        when(result1.isDone()).thenThrow(failure);
+        final FutureResult<Void> result2 = finishedAfter(1, file2, "tab2");
+        when(service.exportPdfToFile(dashboard, tab1, file1)).thenReturn(result1);
+        when(service.exportPdfToFile(dashboard, tab2, file2)).thenReturn(result2);
+
+        try {
+            new DashboardPdfExporter(service, 1).export(dashboard, directory);
+            throw new AssertionError("ExportException expected");
+        } catch (ExportException e) {
+            assertThat(e.getCause(), is((Throwable) failure));
+        }
+        assertThat(read(file2), is("tab2"));
+    }
+
+    @Test(expectedExceptions = ExportException.class)
+    public void shouldFailWhenExportCantBeStarted() throws Exception {
+        when(service.exportPdfToFile(any(ProjectDashboard.class), any(ProjectDashboard.Tab.class), any(Path.class)))
+                .thenThrow(new ExportException("Unable to export dashboard"));
+
+        new DashboardPdfExporter(service, 2).export(dashboard, directory);
+    }
+
+    @Test
+    public void shouldFailTabsNotExportedInTime() throws Exception {
+        final FutureResult<Void> result1 = finishedAfter(Integer.MAX_VALUE, file1, "tab1");
+        final FutureResult<Void> result2 = finishedAfter(1, file2, "tab2");
+        when(service.exportPdfToFile(dashboard, tab1, file1)).thenReturn(result1);
+        when(service.exportPdfToFile(dashboard, tab2, file2)).thenReturn(result2);
+
+        try {
+            new DashboardPdfExporter(service, 2, 50, TimeUnit.MILLISECONDS).export(dashboard, directory);
+            throw new AssertionError("ExportException expected");
+        } catch (ExportException e) {
+            assertThat(e.getMessage(), containsString("1 of 2"));
+        }
+        assertThat(read(file2), is("tab2"));
+    }
+
+    @Test
+    public void shouldExportZipInTabOrder() throws Exception {
+        // the tabs are exported to a temporary directory
+        when(service.exportPdfToFile(eq(dashboard), eq(tab1), any(Path.class)))
+                .thenAnswer(invocation -> finishedAfter(1, (Path) invocation.getArguments()[2], "tab1"));
+        when(service.exportPdfToFile(eq(dashboard), eq(tab2), any(Path.class)))
+                .thenAnswer(invocation -> finishedAfter(1, (Path) invocation.getArguments()[2], "tab2"));
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new DashboardPdfExporter(service, 2).exportZip(dashboard, output);
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertThat(entry.getName(), is("01-12345-tab1abc.pdf"));
+            assertThat(readEntry(zip), is("tab1"));
+            entry = zip.getNextEntry();
+            assertThat(entry.getName(), is("02-12345-tab2def.pdf"));
+            assertThat(readEntry(zip), is("tab2"));
+            assertThat(zip.getNextEntry(), is(nullValue()));
+        }
+    }
+
+    /**
+     * @return export result finished on the given poll, writing the given content to the file then
+     */
+    private static FutureResult<Void> finishedAfter(final int polls, final Path file, final String content) {
+        @SuppressWarnings("unchecked")
+        final FutureResult<Void> result = mock(FutureResult.class);
+        final AtomicInteger count = new AtomicInteger();
+        when(result.isDone()).thenAnswer(invocation -> {
+            if (count.incrementAndGet() < polls) {
+                return false;
+            }
+            write(file, content);
+            return true;
+        });
+        return result;
+    }
+
+    private static void write(final Path file, final String content) throws IOException {
+        Files.write(file, content.getBytes(UTF_8));
+    }
+
+    private static String read(final Path file) throws IOException {
+        return new String(Files.readAllBytes(file), UTF_8);
+    }
+
+    private static String readEntry(final ZipInputStream zip) throws IOException {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = zip.read(buffer)) != -1) {
+            content.write(buffer, 0, read);
+        }
+        return new String(content.toByteArray(), UTF_8);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.export;
+
+import com.gooddata.FutureResult;
+import com.gooddata.dataset.DatasetService;
+import com.gooddata.dataset.Upload;
+import com.gooddata.md.report.Report;
+import com.gooddata.project.Project;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.gooddata.util.ResourceUtils.readObjectFromResource;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ExportCacheTest {
+
+    @Mock
+    private ExportService exportService;
+    @Mock
+    private DatasetService datasetService;
+    @Mock
+    private Project project;
+    @Mock
+    private FutureResult<Void> exportResult;
+    private Report report;
+    private Path directory;
+    private final AtomicInteger exports = new AtomicInteger();
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        report = readObjectFromResource("/md/report/report.json", Report.class);
+        directory = Files.createTempDirectory("export-cache-test");
+        exports.set(0);
+        when(project.getId()).thenReturn("PROJECT_ID");
+        final Upload upload = upload("/gdc/md/PROJECT_ID/data/upload/1");
+        when(datasetService.getLastUploads(project)).thenReturn(Collections.singletonMap("dataset.person", upload));
+        when(exportService.exportToFile(eq(report), any(ExportFormat.class), any(Path.class))).thenAnswer(invocation -> {
+            Files.write((Path) invocation.getArguments()[2], ("export" + exports.incrementAndGet()).getBytes(UTF_8));
+            return exportResult;
+        });
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void shouldServeHitFromDisk() throws Exception {
+        final ExportCache cache = new ExportCache(exportService, datasetService, directory, 1024);
+
+        assertThat(export(cache, ExportFormat.CSV), is("export1"));
+        assertThat(export(cache, ExportFormat.CSV), is("export1"));
+
+        verify(exportService, times(1)).exportToFile(eq(report), eq(ExportFormat.CSV), any(Path.class));
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(1L));
+        assertThat(cache.getHitRatio(), is(closeTo(0.5, 0.001)));
+        assertThat(cache.size(), is(1));
+        assertThat(cache.getTotalBytes(), is(7L));
+    }
+
+    @Test
+    public void shouldMissForOtherFormat() throws Exception {
+        final ExportCache cache = new ExportCache(exportService, datasetService, directory, 1024);
+
+        assertThat(export(cache, ExportFormat.CSV), is("export1"));
+        assertThat(export(cache, ExportFormat.XLSX), is("export2"));
+
+        assertThat(cache.getMissCount(), is(2L));
+    }
+
+    @Test
+    public void shouldMissAfterDataLoad() throws Exception {
+        final ExportCache cache = new ExportCache(exportService, datasetService, directory, 1024);
+        assertThat(export(cache, ExportFormat.CSV), is("export1"));
+
+        final Upload upload = upload("/gdc/md/PROJECT_ID/data/upload/2");
+        when(datasetService.getLastUploads(project)).thenReturn(Collections.singletonMap("dataset.person", upload));
+
+        assertThat(export(cache, ExportFormat.CSV), is("export2"));
+        assertThat(cache.getHitCount(), is(0L));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        final ExportCache cache = new ExportCache(exportService, datasetService, directory, 14);
+
+        assertThat(export(cache, ExportFormat.CSV), is("export1"));
+        assertThat(export(cache, ExportFormat.XLSX), is("export2"));
+        assertThat(export(cache, ExportFormat.CSV), is("export1"));
+        assertThat(export(cache, ExportFormat.PDF), is("export3"));
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.getTotalBytes(), is(14L));
+        assertThat(export(cache, ExportFormat.CSV), is("export1"));
+        assertThat(export(cache, ExportFormat.XLSX), is("export4"));
+    }
+
+    @Test
+    public void shouldReuseStoredExports() throws Exception {
+        assertThat(export(new ExportCache(exportService, datasetService, directory, 1024), ExportFormat.CSV),
+                is("export1"));
+
+        final ExportCache cache = new ExportCache(exportService, datasetService, directory, 1024);
+
+        assertThat(cache.size(), is(1));
+        assertThat(export(cache, ExportFormat.CSV), is("export1"));
+        assertThat(cache.getHitCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotCacheFailedExport() throws Exception {
+        when(exportResult.get()).thenThrow(new NoDataExportException()).thenReturn(null);
+        final ExportCache cache = new ExportCache(exportService, datasetService, directory, 1024);
+
+        try {
+            export(cache, ExportFormat.CSV);
+            throw new AssertionError("NoDataExportException expected");
+        } catch (NoDataExportException expected) {
+            assertThat(cache.size(), is(0));
+        }
+        assertThat(export(cache, ExportFormat.CSV), is("export2"));
+    }
+
+    private String export(final ExportCache cache, final ExportFormat format) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        cache.export(project, report, format, output);
+        return new String(output.toByteArray(), UTF_8);
+    }
+
+    private static Upload upload(final String uri) {
+        final Upload upload = mock(Upload.class);
+        when(upload.getUri()).thenReturn(uri);
+        when(upload.getStatus()).thenReturn("OK");
+        return upload;
+    }
+}
@@ -17,11 +17,15 @@ import org.testng.annotations.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static com.gooddata.util.ResourceUtils.OBJECT_MAPPER;
 import static com.gooddata.util.ResourceUtils.readObjectFromResource;
 import static net.jadler.Jadler.onRequest;
 import static net.jadler.Jadler.port;
+import static net.jadler.Jadler.verifyThatRequest;
+import static net.javacrumbs.jsonunit.JsonMatchers.jsonEquals;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 
@@ -104,6 +108,17 @@ public class ExportServiceIT extends AbstractGoodDataIT {
         assertThat(output.toString(StandardCharsets.US_ASCII.name()), is(RESPONSE));
     }
 
+    @Test
+    public void shouldPassExecutionResultToExport() throws Exception {
+        service.export(REPORT, ExportFormat.CSV, new ByteArrayOutputStream()).get();
+
+        verifyThatRequest()
+                .havingPathEqualTo(ExportService.EXPORTING_URI)
+                .havingMethodEqualTo("POST")
+                .havingBody(jsonEquals("{\"result_req\": {\"result\": {}, \"format\": \"csv\"}}"))
+                .receivedOnce();
+    }
+
     @Test
     public void shouldExportReport() throws Exception {
         final ByteArrayOutputStream output = new ByteArrayOutputStream();
@@ -204,4 +219,36 @@ public class ExportServiceIT extends AbstractGoodDataIT {
         service.exportCsv(REPORT, new ByteArrayOutputStream()).get();
     }
 
+    @Test
+    public void shouldExportReportToFile() throws Exception {
+        final Path file = Files.createTempFile("export", ".csv");
+        try {
+            service.exportToFile(REPORT, ExportFormat.CSV, file).get();
+            assertThat(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII), is(RESPONSE));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void shouldExportDashboardToFile() throws Exception {
+        final Path file = Files.createTempFile("export", ".pdf");
+        try {
+            service.exportPdfToFile(DASHBOARD, DASHBOARD.getTabs().iterator().next(), file).get();
+            assertThat(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII), is(RESPONSE));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void shouldExportRawToFile() throws Exception {
+        final Path file = Files.createTempFile("export", ".csv");
+        try {
+            service.exportCsvToFile(REPORT, file).get();
+            assertThat(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII), is(RESPONSE));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
 }
\ No newline at end of file
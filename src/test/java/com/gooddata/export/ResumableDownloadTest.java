@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.export;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ResumableDownloadTest {
+
+    private static final URI URI = java.net.URI.create("/gdc/exporter/result/123");
+    private static final String CONTENT = "0123456789";
+
+    private RestTemplate restTemplate;
+    private Path file;
+    private List<String> ranges;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        restTemplate = mock(RestTemplate.class);
+        file = Files.createTempFile("export", ".csv");
+        ranges = new ArrayList<>();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void shouldResumeInterruptedDownload() throws Exception {
+        when(restTemplate.execute(eq(URI), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenAnswer(invocation -> respond(invocation, HttpStatus.OK, null, broken(CONTENT.substring(0, 4))))
+                .thenAnswer(invocation -> respond(invocation, HttpStatus.PARTIAL_CONTENT, "bytes 4-9/10",
+                        stream(CONTENT.substring(4))));
+
+        final long size = new ResumableDownload(restTemplate, URI, file).download();
+
+        assertThat(size, is(10L));
+        assertThat(new String(Files.readAllBytes(file), US_ASCII), is(CONTENT));
+        assertThat(ranges, is(asList(null, "bytes=4-")));
+    }
+
+    @Test
+    public void shouldRestartWhenRangeIgnored() throws Exception {
+        when(restTemplate.execute(eq(URI), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenAnswer(invocation -> respond(invocation, HttpStatus.OK, null, broken(CONTENT.substring(0, 4))))
+                .thenAnswer(invocation -> respond(invocation, HttpStatus.OK, null, stream(CONTENT)));
+
+        new ResumableDownload(restTemplate, URI, file).download();
+
+        assertThat(new String(Files.readAllBytes(file), US_ASCII), is(CONTENT));
+    }
+
+    @Test(expectedExceptions = ExportException.class, expectedExceptionsMessageRegExp = ".*has 4 bytes, expected 10")
+    public void shouldVerifySize() throws Exception {
+        when(restTemplate.execute(eq(URI), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenAnswer(invocation -> respond(invocation, HttpStatus.PARTIAL_CONTENT, "bytes 0-3/10",
+                        stream(CONTENT.substring(0, 4))));
+
+        new ResumableDownload(restTemplate, URI, file).download();
+    }
+
+    @Test(expectedExceptions = ExportException.class, expectedExceptionsMessageRegExp = ".*giving up after 5 attempts")
+    public void shouldGiveUp() throws Exception {
+        when(restTemplate.execute(eq(URI), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenAnswer(invocation -> respond(invocation, HttpStatus.OK, null, broken("")));
+
+        new ResumableDownload(restTemplate, URI, file).download();
+    }
+
+    private Object respond(final InvocationOnMock invocation, final HttpStatus status, final String contentRange,
+                           final InputStream body) throws IOException {
+        final HttpHeaders requestHeaders = new HttpHeaders();
+        final ClientHttpRequest request = mock(ClientHttpRequest.class);
+        when(request.getHeaders()).thenReturn(requestHeaders);
+        ((RequestCallback) invocation.getArguments()[2]).doWithRequest(request);
+        ranges.add(requestHeaders.getFirst(HttpHeaders.RANGE));
+
+        final HttpHeaders headers = new HttpHeaders();
+        if (contentRange != null) {
+            headers.set(HttpHeaders.CONTENT_RANGE, contentRange);
+        } else {
+            headers.setContentLength(CONTENT.length());
+        }
+        final ClientHttpResponse response = mock(ClientHttpResponse.class);
+        when(response.getStatusCode()).thenReturn(status);
+        when(response.getHeaders()).thenReturn(headers);
+        when(response.getBody()).thenReturn(body);
+        try {
+            return ((ResponseExtractor<?>) invocation.getArguments()[3]).extractData(response);
+        } catch (IOException e) {
+            // as done by RestTemplate
+            throw new ResourceAccessException("I/O error", e);
+        }
+    }
+
+    private static InputStream stream(final String content) {
+        return new ByteArrayInputStream(content.getBytes(US_ASCII));
+    }
+
+    private static InputStream broken(final String content) {
+        return new SequenceInputStream(stream(content), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+    }
+}
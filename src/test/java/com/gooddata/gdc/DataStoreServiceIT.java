@@ -6,16 +6,29 @@
 package com.gooddata.gdc;
 
 import com.gooddata.AbstractGoodDataIT;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 
 import static com.gooddata.util.ResourceUtils.readFromResource;
 import static net.jadler.Jadler.onRequest;
 import static net.jadler.Jadler.port;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static java.util.Arrays.asList;
+import static net.jadler.Jadler.verifyThatRequest;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
 
 public class DataStoreServiceIT extends AbstractGoodDataIT {
 
@@ -61,4 +74,125 @@ public class DataStoreServiceIT extends AbstractGoodDataIT {
         gd.getDataStoreService().upload("/test", content);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldDownloadToFileUsingRanges() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo("/uploads/test")
+                .havingHeaderEqualTo("Range", "bytes=0-" + (DataStoreService.MIN_RANGE_SIZE - 1))
+            .respond()
+                .withStatus(206)
+                .withHeader("Content-Range", "bytes 0-3/4")
+                .withBody("test");
+
+        final File target = File.createTempFile("datastore", ".txt");
+        target.deleteOnExit();
+        gd.getDataStoreService().download("/test", target.toPath(), 4);
+
+        assertThat(FileUtils.readFileToString(target), is("test"));
+    }
+
+    @Test
+    public void shouldDownloadLargeFileUsingParallelRanges() throws Exception {
+        final int size = DataStoreService.MIN_RANGE_SIZE;
+        final byte[] data = new byte[3 * size + 1000];
+        new Random().nextBytes(data);
+        // the probe range is followed by the rest split between two parallel requests
+        final int[][] ranges = {{0, size - 1}, {size, 2 * size + 499}, {2 * size + 500, data.length - 1}};
+        for (int[] range : ranges) {
+            onRequest()
+                    .havingMethodEqualTo("GET")
+                    .havingPathEqualTo("/uploads/test")
+                    .havingHeaderEqualTo("Range", "bytes=" + range[0] + "-" + range[1])
+                .respond()
+                    .withStatus(206)
+                    .withHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + data.length)
+                    .withBody(Arrays.copyOfRange(data, range[0], range[1] + 1));
+        }
+
+        final File target = File.createTempFile("datastore", ".bin");
+        target.deleteOnExit();
+        gd.getDataStoreService().download("/test", target.toPath(), 2);
+
+        assertThat(FileUtils.readFileToByteArray(target), is(data));
+        verifyThatRequest().havingMethodEqualTo("GET").havingPathEqualTo("/uploads/test").receivedTimes(3);
+    }
+
+    @Test
+    public void shouldDownloadToFileWithoutRangeSupport() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo("/uploads/test")
+            .respond()
+                .withStatus(200)
+                .withBody("test");
+
+        final File target = File.createTempFile("datastore", ".txt");
+        target.deleteOnExit();
+        gd.getDataStoreService().download("/test", target.toPath(), 4);
+
+        assertThat(FileUtils.readFileToString(target), is("test"));
+    }
+
+    @Test
+    public void shouldListRecursive() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("PROPFIND")
+                .havingPathEqualTo("/uploads/dir/")
+            .respond()
+                .withStatus(207)
+                .withContentType("application/xml")
+                .withBody(readFromResource("/gdc/list_dir.xml"));
+        onRequest()
+                .havingMethodEqualTo("PROPFIND")
+                .havingPathEqualTo("/uploads/dir/sub/")
+            .respond()
+                .withStatus(207)
+                .withContentType("application/xml")
+                .withBody(readFromResource("/gdc/list_sub.xml"));
+
+        final Iterator<DataStoreResource> iterator = gd.getDataStoreService().listRecursive("/dir");
+        final List<String> paths = new ArrayList<>();
+        while (iterator.hasNext()) {
+            final DataStoreResource resource = iterator.next();
+            paths.add(resource.getPath());
+            if ("/dir/file.csv".equals(resource.getPath())) {
+                assertThat(resource.getSize(), is(4L));
+                assertThat(resource.isDirectory(), is(false));
+            }
+        }
+
+        assertThat(paths, contains("/dir/sub/", "/dir/file.csv", "/dir/sub/upload_info.json"));
+    }
+
+    @Test
+    public void shouldDeleteInBulk() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("DELETE")
+                .havingPathEqualTo("/uploads/a/")
+            .respond()
+                .withStatus(204);
+        onRequest()
+                .havingMethodEqualTo("DELETE")
+                .havingPathEqualTo("/uploads/b/")
+            .respond()
+                .withStatus(500);
+
+        final DataStoreDeleteResult result = gd.getDataStoreService().delete(asList("/a/", "/b/"), 2, false);
+
+        assertThat(result.isSuccess(), is(false));
+        assertThat(result.getDeleted(), contains("/a/"));
+        assertThat(result.getFailed().keySet(), contains("/b/"));
+        verifyThatRequest().havingMethodEqualTo("GET").havingPathEqualTo("/gdc").receivedOnce();
+    }
+
+    @Test
+    public void shouldNotDeleteInDryRun() throws Exception {
+        final DataStoreDeleteResult result = gd.getDataStoreService().delete(asList("/a/", "/b/"), 2, true);
+
+        assertThat(result.isDryRun(), is(true));
+        assertThat(result.getDeleted(), containsInAnyOrder("/a/", "/b/"));
+        verifyThatRequest().havingMethodEqualTo("DELETE").receivedNever();
+    }
+
+}
@@ -12,6 +12,9 @@ import com.gooddata.project.Project;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.gooddata.model.ModelDiff.UpdateScript;
 import static com.gooddata.util.ResourceUtils.OBJECT_MAPPER;
 import static com.gooddata.util.ResourceUtils.readFromResource;
@@ -19,6 +22,7 @@ import static com.gooddata.util.ResourceUtils.readObjectFromResource;
 import static net.jadler.Jadler.onRequest;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 public class ModelServiceIT extends AbstractGoodDataIT {
@@ -104,6 +108,29 @@ public class ModelServiceIT extends AbstractGoodDataIT {
         gd.getModelService().updateProjectModel(project, diff).get();
     }
 
+    @Test
+    public void shouldNotifyListenersWhenModelUpdated() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(LDM_MANAGE2)
+            .respond()
+                .withStatus(202)
+                .withBody(readFromResource("/model/maqlDdlLinks.json"));
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(STATUS_URI)
+            .respond()
+                .withStatus(200)
+                .withBody(OBJECT_MAPPER.writeValueAsString(new TaskStatus("OK", STATUS_URI)))
+        ;
+        final List<Project> updated = new ArrayList<>();
+        gd.getModelService().addModelUpdateListener(updated::add);
+
+        gd.getModelService().updateProjectModel(project, "synchronize {dataset.chunk1} preserve data").get();
+
+        assertThat(updated, contains(project));
+    }
+
     @Test(expectedExceptions = ModelException.class, expectedExceptionsMessageRegExp = "Unable to update project model")
     public void shouldFailUpdateModel() throws Exception {
         onRequest()
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.util;
+
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class Sha256Test {
+
+    @Test
+    public void shouldHashValue() throws Exception {
+        assertThat(Sha256.hash("abc"), is("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad"));
+    }
+
+    @Test
+    public void shouldEncodeLeadingBytes() throws Exception {
+        assertThat(Sha256.toHex(new byte[]{0x0f, (byte) 0xa0, 0x7f}, 2), is("0fa0"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectLengthOverBytes() throws Exception {
+        Sha256.toHex(new byte[]{0x0f}, 2);
+    }
+}
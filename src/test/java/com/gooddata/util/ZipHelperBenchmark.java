@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2004-2017, GoodData(R) Corporation. All rights reserved.
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE.txt file in the root directory of this source tree.
+ */
+package com.gooddata.util;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the serial and the parallel {@link ZipHelper} on synthetic directory trees. It's not run by the test
+ * suite, run the {@link #main(String[])} method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ZipHelperBenchmark {
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789 ,;\n";
+
+    /**
+     * Synthetic directory tree, the files contain random text compressible about as well as CSV data
+     */
+    public enum Tree {
+        SMALL_FILES(2000, 4 * 1024),
+        LARGE_FILES(8, 16 * 1024 * 1024);
+
+        private static final int DIRECTORIES = 20;
+
+        private final int files;
+        private final int fileSize;
+
+        Tree(final int files, final int fileSize) {
+            this.files = files;
+            this.fileSize = fileSize;
+        }
+
+        private void create(final Path root) throws IOException {
+            final Random random = new Random(files);
+            for (int i = 0; i < files; i++) {
+                final Path file = root.resolve("dir" + (i % DIRECTORIES)).resolve("file" + i + ".csv");
+                Files.createDirectories(file.getParent());
+                Files.write(file, content(random, fileSize));
+            }
+        }
+
+        private static byte[] content(final Random random, final int size) {
+            final byte[] content = new byte[size];
+            for (int i = 0; i < size; i++) {
+                content[i] = (byte) ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            }
+            return content;
+        }
+    }
+
+    @Param
+    public Tree tree;
+
+    private Path directory;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("zip-benchmark");
+        tree.create(directory);
+        pool = new ForkJoinPool();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+        FileUtils.deleteQuietly(directory.toFile());
+    }
+
+    @Benchmark
+    public long serial() throws IOException {
+        final CountingOutputStream output = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        ZipHelper.zip(directory.toFile(), output, false);
+        return output.getByteCount();
+    }
+
+    @Benchmark
+    public long parallel() throws IOException {
+        final CountingOutputStream output = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        ZipHelper.zip(directory.toFile(), output, false, pool);
+        return output.getByteCount();
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ZipHelperBenchmark.class.getSimpleName()).build()).run();
+    }
+}
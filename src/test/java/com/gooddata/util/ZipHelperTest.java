@@ -5,10 +5,13 @@
  */
 package com.gooddata.util;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.StreamUtils;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -17,9 +20,17 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -98,6 +109,67 @@ public class ZipHelperTest {
         }
     }
 
+    @Test
+    public void shouldZipDirInParallel() throws Exception {
+        final Path toZipDir = temporaryFolder.resolve("toZipParallel");
+        for (int i = 0; i < 20; i++) {
+            final Path file = toZipDir.resolve("dir" + (i % 3)).resolve("file" + i + ".txt");
+            Files.createDirectories(file.getParent());
+            Files.write(file, StringUtils.repeat("content of file " + i + "\n", i * 100).getBytes(UTF_8));
+        }
+
+        final ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        ZipHelper.zip(toZipDir.toFile(), serial, true);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+            ZipHelper.zip(toZipDir.toFile(), parallel, true, pool);
+            final ByteArrayOutputStream parallelAgain = new ByteArrayOutputStream();
+            ZipHelper.zip(toZipDir.toFile(), parallelAgain, true, pool);
+
+            final Map<String, String> entries = readZip(parallel);
+            assertThat(entries, is(readZip(serial)));
+            assertThat(entries.size(), is(20));
+            assertThat(new ArrayList<>(entries.keySet()), is(sorted(entries.keySet())));
+            assertThat(parallelAgain.toByteArray(), is(parallel.toByteArray()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldZipDirWithBigFileSerially() throws Exception {
+        final Path toZipDir = temporaryFolder.resolve("toZipBigFile");
+        Files.createDirectories(toZipDir);
+        try (RandomAccessFile bigFile = new RandomAccessFile(toZipDir.resolve("big.bin").toFile(), "rw")) {
+            bigFile.setLength(ParallelZip.MAX_FILE_SIZE + 1);
+        }
+        // the shut down pool rejects any task, so the zip succeeds only when zipped serially
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        pool.shutdown();
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ZipHelper.zip(toZipDir.toFile(), output, false, pool);
+        verifyZipContent(output, "big.bin");
+    }
+
+    private static Map<String, String> readZip(final ByteArrayOutputStream zip) throws Exception {
+        final Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(StreamUtils.copyToByteArray(zipInputStream), UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    private static List<String> sorted(final Collection<String> values) {
+        final List<String> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
     private static void verifyZipContent(ByteArrayOutputStream zip, String shouldContain) throws Exception {
         try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
             ZipEntry entry = zipInputStream.getNextEntry();